@@ -0,0 +1,151 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CaseInsensitiveMap lookups against a plain HashMap holding the same String keys.  The CaseInsensitiveMap is
+ * probed with a differently-cased copy of the key so the case-folding path is always exercised.  Run through the
+ * benchmark profile (GC profiler on), gc.alloc.rate.norm shows bytes allocated per call - 0 for get/containsKey.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseInsensitiveMapBenchmark
+{
+    @Param({"8", "64", "1024", "65536"})
+    int size;
+
+    /** Map instance behind the CaseInsensitiveMap. */
+    @Param({"LinkedHashMap", "CaseInsensitiveHashMap"})
+    String backing;
+
+    /** CaseInsensitiveString intern cache capacity (0 = off). */
+    @Param({"0", "131072"})
+    int internCache;
+
+    Map<String, Integer> ciMap;
+    Map<String, Integer> hashMap;
+    String[] keys;
+    String[] upperKeys;
+    int index;
+
+    @Setup
+    public void setup()
+    {
+        CaseInsensitiveMap.CaseInsensitiveString.setInternCacheCapacity(internCache);
+        if (backing.equals("CaseInsensitiveHashMap"))
+        {
+            ciMap = new CaseInsensitiveMap<>(Collections.emptyMap(), new CaseInsensitiveHashMap<>(size));
+        }
+        else
+        {
+            ciMap = new CaseInsensitiveMap<>(size);
+        }
+        hashMap = new HashMap<>(size);
+        keys = new String[size];
+        upperKeys = new String[size];
+        for (int i = 0; i < size; i++)
+        {
+            keys[i] = "Content-Header-" + i;
+            upperKeys[i] = keys[i].toUpperCase();
+            ciMap.put(keys[i], i);
+            hashMap.put(keys[i], i);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        CaseInsensitiveMap.CaseInsensitiveString.setInternCacheCapacity(0);
+    }
+
+    private int next()
+    {
+        int i = index + 1;
+        if (i == size)
+        {
+            i = 0;
+        }
+        index = i;
+        return i;
+    }
+
+    @Benchmark
+    public Integer caseInsensitiveGet()
+    {
+        return ciMap.get(upperKeys[next()]);
+    }
+
+    @Benchmark
+    public Integer caseInsensitiveGetMiss()
+    {
+        return ciMap.get("X-Absent-Header");
+    }
+
+    @Benchmark
+    public boolean caseInsensitiveContainsKey()
+    {
+        return ciMap.containsKey(upperKeys[next()]);
+    }
+
+    @Benchmark
+    public Integer caseInsensitivePut()
+    {
+        int i = next();
+        return ciMap.put(upperKeys[i], i);
+    }
+
+    @Benchmark
+    public Integer hashMapGet()
+    {
+        return hashMap.get(keys[next()]);
+    }
+
+    @Benchmark
+    public Integer hashMapGetMiss()
+    {
+        return hashMap.get("X-Absent-Header");
+    }
+
+    @Benchmark
+    public Integer hashMapPut()
+    {
+        int i = next();
+        return hashMap.put(keys[i], i);
+    }
+}
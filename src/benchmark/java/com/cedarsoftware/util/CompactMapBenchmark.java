@@ -0,0 +1,205 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompactMap get/put/remove across every storage state: empty, single entry, Object[] (2 to compactSize()),
+ * and the overflow Map (compactSize() + N).  HashMap is measured alongside as the baseline.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactMapBenchmark
+{
+    private static final int COMPACT_SIZE = 80;
+
+    /** 0, 1, a few, half of compactSize(), exactly compactSize(), and past it into the overflow Map. */
+    @Param({"0", "1", "2", "10", "40", "80", "81", "120"})
+    int size;
+
+    @Param({"CompactMap", "CompactMapHashed", "CompactMapSharedKeys", "CompactSortedMap", "CompactCIHashMap", "ConcurrentCompactMap", "HashMap"})
+    String type;
+
+    Map<String, Integer> map;
+    String[] keys;
+    String hitKey;
+    String missKey;
+    final CompactMap.Cursor<String, Integer> cursor = new CompactMap.Cursor<>();
+
+    @Setup
+    public void setup()
+    {
+        keys = new String[Math.max(size, 1)];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = "field" + i;
+        }
+        map = newMap(type);
+        for (int i = 0; i < size; i++)
+        {
+            map.put(keys[i], i);
+        }
+        // Probe the last key in insertion order - worst case for a linear scan.
+        hitKey = new String(keys[keys.length - 1].toCharArray());
+        missKey = "absentField";
+    }
+
+    static Map<String, Integer> newMap(String type)
+    {
+        switch (type)
+        {
+            case "CompactMap":
+                return new CompactMap<String, Integer>()
+                {
+                    protected int compactSize() { return COMPACT_SIZE; }
+                };
+            case "CompactMapHashed":
+                return new CompactMap<String, Integer>()
+                {
+                    protected int compactSize() { return COMPACT_SIZE; }
+                    protected boolean useHashIndex() { return true; }
+                };
+            case "CompactMapSharedKeys":
+                return new SharedKeysMap();
+            case "CompactSortedMap":
+                return new CompactSortedMap<String, Integer>()
+                {
+                    protected int compactSize() { return COMPACT_SIZE; }
+                };
+            case "CompactCIHashMap":
+                return new CompactCIHashMap<String, Integer>()
+                {
+                    protected int compactSize() { return COMPACT_SIZE; }
+                };
+            case "ConcurrentCompactMap":
+                return new ConcurrentCompactMap<String, Integer>()
+                {
+                    protected int compactSize() { return COMPACT_SIZE; }
+                };
+            case "HashMap":
+                return new HashMap<>();
+            default:
+                throw new IllegalArgumentException("Unknown map type: " + type);
+        }
+    }
+
+    /** Named (not anonymous) so every instance built by build() shares the same key shapes. */
+    static class SharedKeysMap extends CompactMap<String, Integer>
+    {
+        protected int compactSize() { return COMPACT_SIZE; }
+        protected boolean useSharedKeys() { return true; }
+    }
+
+    @Benchmark
+    public Integer getHit()
+    {
+        return map.get(hitKey);
+    }
+
+    @Benchmark
+    public Integer getMiss()
+    {
+        return map.get(missKey);
+    }
+
+    @Benchmark
+    public boolean containsKeyMiss()
+    {
+        return map.containsKey(missKey);
+    }
+
+    @Benchmark
+    public Integer putOverwrite()
+    {
+        return map.put(hitKey, 7);
+    }
+
+    /**
+     * Adds an absent key and removes it again, leaving the map at its original size.  At size == compactSize()
+     * this crosses the Object[] / Map boundary in both directions every invocation.
+     */
+    @Benchmark
+    public Integer putRemove()
+    {
+        map.put(missKey, 1);
+        return map.remove(missKey);
+    }
+
+    /** Builds a fresh map of the parameterized size from scratch, including every storage transition. */
+    @Benchmark
+    public void build(Blackhole bh)
+    {
+        Map<String, Integer> m = newMap(type);
+        for (int i = 0; i < size; i++)
+        {
+            m.put(keys[i], i);
+        }
+        bh.consume(m);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh)
+    {
+        for (Map.Entry<String, Integer> entry : map.entrySet())
+        {
+            bh.consume(entry.getKey());
+            bh.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void forEach(Blackhole bh)
+    {
+        map.forEach((k, v) -> { bh.consume(k); bh.consume(v); });
+    }
+
+    /** One Cursor reused for every invocation - CompactMap types only. */
+    @Benchmark
+    public void cursor(Blackhole bh)
+    {
+        if (!(map instanceof CompactMap))
+        {
+            return;
+        }
+        cursor.reset((CompactMap<String, Integer>) map);
+        while (cursor.next())
+        {
+            bh.consume(cursor.getKey());
+            bh.consume(cursor.getValue());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converter.convert() for each (source, target) pair in common use.  The pair is named "Source-&gt;target",
+ * where target is either a primitive or a wrapper/JDK class simple name.  The column benchmarks convert an array of
+ * COLUMN_SIZE copies of the source, one convert() per element versus one Converter.convertAll().
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark
+{
+    private static final int COLUMN_SIZE = 1000;
+    private static final Map<String, Object> sources = new HashMap<>();
+    private static final Map<String, Class<?>> targets = new HashMap<>();
+
+    static
+    {
+        sources.put("String", "1234567");
+        sources.put("DecimalString", "12345.67");
+        sources.put("Integer", 1234567);
+        sources.put("Long", 1234567L);
+        sources.put("Double", 12345.67d);
+        sources.put("BigDecimal", new BigDecimal("12345.67"));
+        sources.put("BigInteger", new BigInteger("1234567"));
+        sources.put("AtomicLong", new AtomicLong(1234567L));
+        sources.put("Boolean", Boolean.TRUE);
+        sources.put("Date", new Date(1700000000000L));
+        sources.put("LocalDate", LocalDate.of(2023, 11, 14));
+        sources.put("LocalDateTime", LocalDateTime.of(2023, 11, 14, 22, 13, 20));
+        sources.put("ZonedDateTime", ZonedDateTime.of(2023, 11, 14, 22, 13, 20, 0, ZoneId.of("UTC")));
+        sources.put("DateString", "2023-11-14T22:13:20");
+
+        targets.put("long", long.class);
+        targets.put("Long", Long.class);
+        targets.put("int", int.class);
+        targets.put("Integer", Integer.class);
+        targets.put("double", double.class);
+        targets.put("boolean", boolean.class);
+        targets.put("String", String.class);
+        targets.put("BigDecimal", BigDecimal.class);
+        targets.put("BigInteger", BigInteger.class);
+        targets.put("Date", Date.class);
+        targets.put("LocalDate", LocalDate.class);
+        targets.put("AtomicLong", AtomicLong.class);
+    }
+
+    @Param({
+            "String->long",
+            "String->Integer",
+            "DecimalString->long",
+            "DecimalString->double",
+            "String->BigDecimal",
+            "Integer->long",
+            "Long->int",
+            "Double->long",
+            "BigDecimal->long",
+            "BigInteger->Long",
+            "AtomicLong->long",
+            "Boolean->int",
+            "Long->String",
+            "Double->String",
+            "BigDecimal->String",
+            "Date->String",
+            "LocalDate->String",
+            "LocalDateTime->String",
+            "ZonedDateTime->String",
+            "Date->long",
+            "LocalDate->Date",
+            "DateString->Date",
+            "Long->AtomicLong"
+    })
+    String pair;
+
+    Object source;
+    Class<?> target;
+    Object[] column;
+
+    @Setup
+    public void setup()
+    {
+        int arrow = pair.indexOf("->");
+        source = sources.get(pair.substring(0, arrow));
+        target = targets.get(pair.substring(arrow + 2));
+        if (source == null || target == null)
+        {
+            throw new IllegalArgumentException("Unknown conversion pair: " + pair);
+        }
+        column = new Object[COLUMN_SIZE];
+        Arrays.fill(column, source);
+    }
+
+    @Benchmark
+    public Object convert()
+    {
+        return Converter.convert(source, target);
+    }
+
+    @Benchmark
+    public Object convertColumnPerElement()
+    {
+        Object[] result = new Object[COLUMN_SIZE];
+        for (int i=0; i < COLUMN_SIZE; i++)
+        {
+            result[i] = Converter.convert(column[i], target);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object convertColumnBulk()
+    {
+        return Converter.convertAll(column, target);
+    }
+}
@@ -0,0 +1,134 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeepEquals.deepEquals() and DeepEquals.deepHashCode() over two separately built (identity-distinct) object
+ * graphs.  Each node has 'width' children, the tree is 'depth' levels deep, and every node carries a List,
+ * a Map and a Set so the ordered, keyed and unordered comparison paths are all exercised.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepEqualsBenchmark
+{
+    @Param({"2", "4", "8"})
+    int depth;
+
+    @Param({"2", "4"})
+    int width;
+
+    Node graph1;
+    Node graph2;
+    Node graph3;    // same shape as graph1, but one leaf differs
+    Map<String, Object> parallel = new HashMap<>();
+
+    static class Node
+    {
+        String name;
+        int id;
+        double weight;
+        Node parent;
+        List<Node> children = new ArrayList<>();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        Set<String> tags = new HashSet<>();
+    }
+
+    @Setup
+    public void setup()
+    {
+        graph1 = build(null, depth, "root", 0);
+        graph2 = build(null, depth, "root", 0);
+        graph3 = build(null, depth, "root", 0);
+        Node leaf = graph3;
+        while (!leaf.children.isEmpty())
+        {
+            leaf = leaf.children.get(leaf.children.size() - 1);
+        }
+        leaf.weight += 1.0d;
+        parallel.put(DeepEquals.PARALLEL, true);
+    }
+
+    private Node build(Node parent, int level, String name, int id)
+    {
+        Node node = new Node();
+        node.name = name;
+        node.id = id;
+        node.weight = id * 1.5d;
+        node.parent = parent;     // back reference -> cycles
+        node.attributes.put("level", level);
+        node.attributes.put("label", name.toUpperCase());
+        node.tags.add("t" + (id % 7));
+        node.tags.add("level" + level);
+        if (level > 0)
+        {
+            for (int i = 0; i < width; i++)
+            {
+                node.children.add(build(node, level - 1, name + '.' + i, id * width + i + 1));
+            }
+        }
+        return node;
+    }
+
+    @Benchmark
+    public boolean deepEqualsSame()
+    {
+        return DeepEquals.deepEquals(graph1, graph2);
+    }
+
+    @Benchmark
+    public boolean deepEqualsDifferent()
+    {
+        return DeepEquals.deepEquals(graph1, graph3);
+    }
+
+    @Benchmark
+    public boolean deepEqualsSameParallel()
+    {
+        return DeepEquals.deepEquals(graph1, graph2, parallel);
+    }
+
+    @Benchmark
+    public int deepHashCode()
+    {
+        return DeepEquals.deepHashCode(graph1);
+    }
+}
@@ -0,0 +1,697 @@
+package com.cedarsoftware.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies the fields of one class onto another class by field name, for example DTOs onto entities:
+ * <pre>
+ *     BeanMapper{@literal <}CustomerDto, Customer{@literal >} mapper = BeanMapper.of(CustomerDto.class, Customer.class);
+ *     Customer customer = mapper.map(dto);       // new Customer (public or private no-arg constructor)
+ *     mapper.copy(dto, existingCustomer);         // onto an existing instance
+ * </pre>
+ * The (source class, target class) pair is analysed once, when the mapper is created (mappers are cached by
+ * of()).  Every non-static, non-transient, non-final field of the target (including inherited ones, as returned by
+ * ReflectionUtils.getDeepDeclaredFields()) that has a source field of the same name - optionally ignoring case - gets
+ * a precomputed copier:<ul>
+ * <li>Same type, or a source type assignable to the target type (with the same type arguments, compared on the
+ * generic field types): a single MethodHandle that reads the source field and writes the target field.  Primitives
+ * are not boxed, and references are copied as-is (not deep copied).</li>
+ * <li>Collections, arrays and Maps whose element (key, value) types differ, such as List{@literal <}ChildDto{@literal >}
+ * to List{@literal <}Child{@literal >}: a new container is built, with each element mapped by these same rules.</li>
+ * <li>Other types Converter supports: the source value is converted with the Converter conversion for the (source
+ * type, target type) pair, resolved once.  Conversions registered with Converter.addConversion() after the mapper is
+ * created are not seen by it.</li>
+ * <li>Any other pair of types: the value is mapped with BeanMapper.of(source type, target type), so nested objects are
+ * mapped too.  Within one map() or copy() call, each source object is mapped once, so shared references and cycles
+ * map to shared references and cycles in the target graph.</li></ul>
+ * A pair of types that cannot be mapped, such as an object to a String or a Long field, or
+ * Holder{@literal <}A{@literal >} to Holder{@literal <}B{@literal >}, throws IllegalArgumentException when the mapper
+ * is created.  Fields without a match are left alone.  A copy is then a flat loop over these copiers.  A BeanMapper is
+ * immutable and thread-safe.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public final class BeanMapper<S, T>
+{
+    private static final Map<Class<?>, Map<Class<?>, BeanMapper<?, ?>>> MAPPERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<Class<?>, BeanMapper<?, ?>>> CASE_INSENSITIVE_MAPPERS = new ConcurrentHashMap<>();
+    private static final MethodType COPY_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class, Object.class);
+    private final Class<S> sourceClass;
+    private final Class<T> targetClass;
+    private final FieldCopy[] copies;
+    private final boolean nested;               // true if any field maps objects, which then need identity tracking
+    private final MethodHandle constructor;     // ()Object, or null if the target has no no-arg constructor
+
+    private BeanMapper(Class<S> sourceClass, Class<T> targetClass, boolean ignoreCase)
+    {
+        this.sourceClass = sourceClass;
+        this.targetClass = targetClass;
+        copies = analyse(sourceClass, targetClass, ignoreCase);
+        boolean nested = false;
+        for (FieldCopy copy : copies)
+        {
+            nested |= copy instanceof MappedCopy && !(((MappedCopy) copy).mapping instanceof ConvertMapping);
+        }
+        this.nested = nested;
+        constructor = findConstructor(targetClass);
+    }
+
+    /**
+     * @return the (cached) mapper from 'sourceClass' to 'targetClass', matching field names exactly.
+     */
+    public static <S, T> BeanMapper<S, T> of(Class<S> sourceClass, Class<T> targetClass)
+    {
+        return of(sourceClass, targetClass, false);
+    }
+
+    /**
+     * @param ignoreCase true to match field names case-insensitively ("userId" to "userID").  When several source
+     * fields match one target field this way, the first one in ReflectionUtils.getDeepDeclaredFields() order is used.
+     * @return the (cached) mapper from 'sourceClass' to 'targetClass'.
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> BeanMapper<S, T> of(Class<S> sourceClass, Class<T> targetClass, boolean ignoreCase)
+    {
+        if (sourceClass == null || targetClass == null)
+        {
+            throw new IllegalArgumentException("Source class and target class cannot be null in BeanMapper.of()");
+        }
+        Map<Class<?>, BeanMapper<?, ?>> byTarget = (ignoreCase ? CASE_INSENSITIVE_MAPPERS : MAPPERS)
+                .computeIfAbsent(sourceClass, k -> new ConcurrentHashMap<>());
+        BeanMapper<?, ?> mapper = byTarget.get(targetClass);
+        if (mapper == null)
+        {   // Not computeIfAbsent(): analysing may create mappers for nested types
+            mapper = new BeanMapper<>(sourceClass, targetClass, ignoreCase);
+            BeanMapper<?, ?> prior = byTarget.putIfAbsent(targetClass, mapper);
+            if (prior != null)
+            {
+                mapper = prior;
+            }
+        }
+        return (BeanMapper<S, T>) mapper;
+    }
+
+    public Class<S> getSourceClass()
+    {
+        return sourceClass;
+    }
+
+    public Class<T> getTargetClass()
+    {
+        return targetClass;
+    }
+
+    /**
+     * @return names of the target fields this mapper copies, in copy order.
+     */
+    public List<String> getMappedFields()
+    {
+        List<String> names = new ArrayList<>(copies.length);
+        for (FieldCopy copy : copies)
+        {
+            names.add(copy.name);
+        }
+        return names;
+    }
+
+    /**
+     * @return new target instance (created with its no-arg constructor) with the matching fields copied from
+     * 'source', or null if 'source' is null.
+     */
+    public T map(S source)
+    {
+        return source == null ? null : map(source, nested ? new IdentityHashMap<>() : null);
+    }
+
+    /**
+     * @param mapped source object to target object for the objects already mapped in this map() or copy() call, or
+     * null if no field maps objects.
+     */
+    @SuppressWarnings("unchecked")
+    private T map(S source, Map<Object, Object> mapped)
+    {
+        if (mapped != null)
+        {
+            Object target = mapped.get(source);
+            if (targetClass.isInstance(target))
+            {   // Shared reference or cycle
+                return (T) target;
+            }
+        }
+        if (constructor == null)
+        {
+            throw new IllegalArgumentException("Unable to create an instance of '" + targetClass.getName() + "', it needs a no-arg constructor");
+        }
+        T target;
+        try
+        {
+            target = (T) (Object) constructor.invokeExact();
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Unable to create an instance of '" + targetClass.getName() + "'", t);
+        }
+        if (mapped != null)
+        {   // Before its fields, so that references back to 'source' resolve to 'target'
+            mapped.put(source, target);
+        }
+        return copy(source, target, mapped);
+    }
+
+    /**
+     * Copy the matching fields of 'source' onto 'target'.  Target fields without a matching source field keep their
+     * values.
+     * @return target
+     */
+    public T copy(S source, T target)
+    {
+        if (source == null || target == null)
+        {
+            throw new IllegalArgumentException("Source and target cannot be null in BeanMapper.copy()");
+        }
+        Map<Object, Object> mapped = null;
+        if (nested)
+        {
+            mapped = new IdentityHashMap<>();
+            mapped.put(source, target);
+        }
+        return copy(source, target, mapped);
+    }
+
+    private T copy(S source, T target, Map<Object, Object> mapped)
+    {
+        for (FieldCopy copy : copies)
+        {
+            try
+            {
+                copy.copy(source, target, mapped);
+            }
+            catch (RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {
+                throw new IllegalStateException("Unable to copy field '" + copy.name + "' to " + targetClass.getName(), t);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @return one copier per target field with a matching source field.
+     */
+    private static FieldCopy[] analyse(Class<?> sourceClass, Class<?> targetClass, boolean ignoreCase)
+    {
+        Map<String, Field> sourceFields = ignoreCase ? new CaseInsensitiveMap<>() : new LinkedHashMap<>();
+        for (Field field : ReflectionUtils.getDeepDeclaredFields(sourceClass))
+        {   // Subclass fields come first, and hide same-named superclass fields
+            if (!sourceFields.containsKey(field.getName()))
+            {
+                sourceFields.put(field.getName(), field);
+            }
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<FieldCopy> copies = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Field target : ReflectionUtils.getDeepDeclaredFields(targetClass))
+        {
+            Field source = sourceFields.get(target.getName());
+            if (source == null || !seen.add(target.getName()) || Modifier.isFinal(target.getModifiers()))
+            {
+                continue;
+            }
+            try
+            {
+                copies.add(copierFor(lookup, source, target, ignoreCase));
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalArgumentException("Unable to access field '" + target.getName() + "' mapping " + sourceClass.getName() + " to " + targetClass.getName(), e);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("Unable to map field '" + target.getName() + "' mapping " + sourceClass.getName() + " to " + targetClass.getName() + ": " + e.getMessage(), e);
+            }
+        }
+        return copies.toArray(new FieldCopy[0]);
+    }
+
+    private static FieldCopy copierFor(MethodHandles.Lookup lookup, Field source, Field target, boolean ignoreCase) throws IllegalAccessException
+    {
+        MethodHandle getter = lookup.unreflectGetter(source);     // (S)X
+        MethodHandle setter = lookup.unreflectSetter(target);     // (T, Y)void
+        ValueMapping mapping = mappingFor(source.getGenericType(), target.getGenericType(), ignoreCase);
+        if (mapping == SAME)
+        {   // setter(target, getter(source)) as (source, target)
+            Class<?> sourceType = source.getType();
+            MethodHandle copy = MethodHandles.filterArguments(setter.asType(setter.type().changeParameterType(1, sourceType)), 1, getter);
+            copy = MethodHandles.permuteArguments(copy.asType(MethodType.methodType(void.class, Object.class, Object.class)), COPY_TYPE, 1, 0);
+            return new DirectCopy(target.getName(), copy);
+        }
+        return new MappedCopy(target.getName(), getter.asType(GET_TYPE), setter.asType(COPY_TYPE), mapping);
+    }
+
+    /**
+     * @return how to map a value declared as 'sourceType' to one declared as 'targetType'.
+     * @throws IllegalArgumentException if they cannot be mapped.
+     */
+    private static ValueMapping mappingFor(Type sourceType, Type targetType, boolean ignoreCase)
+    {
+        Class<?> source = rawType(sourceType);
+        Class<?> target = rawType(targetType);
+        if (target == source || (!target.isPrimitive() && target.isAssignableFrom(wrapper(source))))
+        {
+            if (sameTypeArguments(sourceType, targetType))
+            {
+                return SAME;
+            }
+            if (!isContainer(source) || !isContainer(target))
+            {
+                throw new IllegalArgumentException("cannot map " + sourceType.getTypeName() + " to " + targetType.getTypeName());
+            }
+        }
+        if (Map.class.isAssignableFrom(source) && Map.class.isAssignableFrom(target))
+        {
+            return new MapMapping(target,
+                    mappingFor(typeArgument(sourceType, Map.class, 0), typeArgument(targetType, Map.class, 0), ignoreCase),
+                    mappingFor(typeArgument(sourceType, Map.class, 1), typeArgument(targetType, Map.class, 1), ignoreCase));
+        }
+        if (isElements(source) && isElements(target))
+        {
+            ValueMapping elements = mappingFor(elementType(sourceType), elementType(targetType), ignoreCase);
+            return target.isArray() ? new ArrayMapping(target, elements) : new CollectionMapping(target, elements);
+        }
+
+        Converter.Work<?> work = Converter.getConversion(wrapper(source), target);
+        if (work != null)
+        {   // An Object source is only known when copying, so it is left to the conversion
+            if (source != Object.class && !Converter.isConvertible(wrapper(source), target))
+            {
+                throw new IllegalArgumentException("Converter does not support " + source.getName() + " to " + target.getName());
+            }
+            return new ConvertMapping(target, work);
+        }
+        if (source.isPrimitive() || target.isPrimitive())
+        {
+            throw new IllegalArgumentException("cannot map " + source.getName() + " to " + target.getName());
+        }
+        return new BeanMapping(source, target, ignoreCase);
+    }
+
+    private static boolean isContainer(Class<?> type)
+    {
+        return isElements(type) || Map.class.isAssignableFrom(type);
+    }
+
+    private static boolean isElements(Class<?> type)
+    {
+        return type.isArray() || Collection.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return true if a 'sourceType' value can be copied as-is to a 'targetType' of an assignable raw type: the target
+     * is not parameterized (or is only by wildcards), the source is raw, or their type arguments are equal.
+     */
+    private static boolean sameTypeArguments(Type sourceType, Type targetType)
+    {
+        if (targetType instanceof GenericArrayType || (targetType instanceof Class && ((Class<?>) targetType).isArray()))
+        {
+            return !rawType(sourceType).isArray() || sameTypeArguments(elementType(sourceType), elementType(targetType));
+        }
+        if (!(targetType instanceof ParameterizedType))
+        {
+            return true;
+        }
+        Class<?> target = rawType(targetType);
+        Type[] sourceArguments = typeArguments(sourceType, target);
+        Type[] targetArguments = ((ParameterizedType) targetType).getActualTypeArguments();
+        for (int i = 0; sourceArguments != null && i < targetArguments.length; i++)
+        {
+            Type argument = targetArguments[i];
+            if (!(argument instanceof WildcardType) && !(argument instanceof TypeVariable) && !argument.equals(sourceArguments[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the type arguments of 'of' as declared by 'type' (List{@literal <}String{@literal >} for ArrayList of
+     * String, Map.class), or null if 'type' is raw.
+     */
+    private static Type[] typeArguments(Type type, Class<?> of)
+    {
+        Class<?> raw = rawType(type);
+        if (raw == of)
+        {
+            return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments() : null;
+        }
+        List<Type> supertypes = new ArrayList<>();
+        supertypes.add(raw.getGenericSuperclass());
+        supertypes.addAll(Arrays.asList(raw.getGenericInterfaces()));
+        for (Type supertype : supertypes)
+        {
+            if (supertype == null || !of.isAssignableFrom(rawType(supertype)))
+            {
+                continue;
+            }
+            Type[] arguments = typeArguments(supertype, of);
+            if (arguments == null)
+            {
+                return null;
+            }
+            arguments = arguments.clone();
+            TypeVariable<?>[] variables = raw.getTypeParameters();
+            for (int i = 0; i < arguments.length; i++)
+            {   // Substitute the variables of 'raw' with the arguments 'type' gives them
+                for (int j = 0; j < variables.length; j++)
+                {
+                    if (variables[j].equals(arguments[i]))
+                    {
+                        if (!(type instanceof ParameterizedType))
+                        {
+                            return null;
+                        }
+                        arguments[i] = ((ParameterizedType) type).getActualTypeArguments()[j];
+                    }
+                }
+            }
+            return arguments;
+        }
+        return null;
+    }
+
+    /**
+     * @return argument 'index' of 'of' as declared by 'type', or Object.class if 'type' is raw.
+     */
+    private static Type typeArgument(Type type, Class<?> of, int index)
+    {
+        Type[] arguments = typeArguments(type, of);
+        return arguments == null ? Object.class : arguments[index];
+    }
+
+    /**
+     * @return component type of an array type, or element type of a Collection type.
+     */
+    private static Type elementType(Type type)
+    {
+        if (type instanceof GenericArrayType)
+        {
+            return ((GenericArrayType) type).getGenericComponentType();
+        }
+        Class<?> raw = rawType(type);
+        return raw.isArray() ? raw.getComponentType() : typeArgument(type, Collection.class, 0);
+    }
+
+    private static Class<?> rawType(Type type)
+    {
+        if (type instanceof Class)
+        {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType)
+        {
+            return rawType(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType)
+        {
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType)
+        {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable)
+        {
+            return rawType(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static Class<?> wrapper(Class<?> type)
+    {
+        return type.isPrimitive() ? Converter.convert(null, type).getClass() : type;
+    }
+
+    private static MethodHandle findConstructor(Class<?> targetClass)
+    {
+        try
+        {
+            Constructor<?> constructor = targetClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    private abstract static class FieldCopy
+    {
+        final String name;
+
+        FieldCopy(String name)
+        {
+            this.name = name;
+        }
+
+        abstract void copy(Object source, Object target, Map<Object, Object> mapped) throws Throwable;
+    }
+
+    /**
+     * Field of the same (or an assignable) type: one MethodHandle reads and writes it.
+     */
+    private static final class DirectCopy extends FieldCopy
+    {
+        private final MethodHandle copy;    // (Object source, Object target)void
+
+        DirectCopy(String name, MethodHandle copy)
+        {
+            super(name);
+            this.copy = copy;
+        }
+
+        void copy(Object source, Object target, Map<Object, Object> mapped) throws Throwable
+        {
+            copy.invokeExact(source, target);
+        }
+    }
+
+    /**
+     * Field whose value is converted or mapped.
+     */
+    private static final class MappedCopy extends FieldCopy
+    {
+        private final MethodHandle getter;  // (Object)Object
+        private final MethodHandle setter;  // (Object, Object)void
+        final ValueMapping mapping;
+
+        MappedCopy(String name, MethodHandle getter, MethodHandle setter, ValueMapping mapping)
+        {
+            super(name);
+            this.getter = getter;
+            this.setter = setter;
+            this.mapping = mapping;
+        }
+
+        void copy(Object source, Object target, Map<Object, Object> mapped) throws Throwable
+        {
+            setter.invokeExact(target, mapping.apply((Object) getter.invokeExact(source), mapped));
+        }
+    }
+
+    /**
+     * Maps a source value (a field value, or an element of one) to its target value.
+     */
+    private abstract static class ValueMapping
+    {
+        private final Object nullValue;     // what a null maps to (a primitive's zero)
+
+        ValueMapping(Class<?> targetType)
+        {
+            nullValue = targetType.isPrimitive() ? Converter.convert(null, targetType) : null;
+        }
+
+        final Object apply(Object value, Map<Object, Object> mapped)
+        {
+            return value == null ? nullValue : map(value, mapped);
+        }
+
+        abstract Object map(Object value, Map<Object, Object> mapped);
+    }
+
+    /**
+     * Value copied as-is.
+     */
+    private static final ValueMapping SAME = new ValueMapping(Object.class)
+    {
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            return value;
+        }
+    };
+
+    /**
+     * Value that goes through a Converter conversion.
+     */
+    private static final class ConvertMapping extends ValueMapping
+    {
+        private final Converter.Work<Object> work;
+
+        @SuppressWarnings("unchecked")
+        ConvertMapping(Class<?> targetType, Converter.Work<?> work)
+        {
+            super(targetType);
+            this.work = (Converter.Work<Object>) work;
+        }
+
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            return work.convert(value);
+        }
+    }
+
+    /**
+     * Object mapped with its own BeanMapper, looked up on first use (so that types referring to each other do not
+     * recurse while being analysed).
+     */
+    private static final class BeanMapping extends ValueMapping
+    {
+        private final Class<?> sourceType;
+        private final Class<?> targetType;
+        private final boolean ignoreCase;
+        private volatile BeanMapper<Object, Object> mapper;
+
+        BeanMapping(Class<?> sourceType, Class<?> targetType, boolean ignoreCase)
+        {
+            super(targetType);
+            this.sourceType = sourceType;
+            this.targetType = targetType;
+            this.ignoreCase = ignoreCase;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            BeanMapper<Object, Object> mapper = this.mapper;
+            if (mapper == null || mapper.sourceClass != value.getClass())
+            {   // Declared type, or a subclass instance (mapped with its own fields)
+                mapper = (BeanMapper<Object, Object>) of(value.getClass(), targetType, ignoreCase);
+                if (value.getClass() == sourceType)
+                {
+                    this.mapper = mapper;
+                }
+            }
+            return mapper.map(value, mapped == null ? new IdentityHashMap<>() : mapped);
+        }
+    }
+
+    /**
+     * Collection (or array) mapped to a new Collection of the target type, element by element.
+     */
+    private static final class CollectionMapping extends ValueMapping
+    {
+        private final Class<?> collectionType;
+        private final ValueMapping elements;
+
+        CollectionMapping(Class<?> collectionType, ValueMapping elements)
+        {
+            super(collectionType);
+            this.collectionType = collectionType;
+            this.elements = elements;
+        }
+
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            return Converter.convertElementsToCollection(value, collectionType, element -> elements.apply(element, mapped));
+        }
+    }
+
+    /**
+     * Array (or Collection) mapped to a new array of the target type, element by element.
+     */
+    private static final class ArrayMapping extends ValueMapping
+    {
+        private final Class<?> componentType;
+        private final ValueMapping elements;
+
+        ArrayMapping(Class<?> arrayType, ValueMapping elements)
+        {
+            super(arrayType);
+            componentType = arrayType.getComponentType();
+            this.elements = elements;
+        }
+
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            return Converter.convertElementsToArray(value, componentType, element -> elements.apply(element, mapped));
+        }
+    }
+
+    /**
+     * Map mapped to a new Map of the target type, entry by entry.
+     */
+    private static final class MapMapping extends ValueMapping
+    {
+        private final Class<?> mapType;
+        private final ValueMapping keys;
+        private final ValueMapping values;
+
+        MapMapping(Class<?> mapType, ValueMapping keys, ValueMapping values)
+        {
+            super(mapType);
+            this.mapType = mapType;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        Object map(Object value, Map<Object, Object> mapped)
+        {
+            return Converter.convertEntriesToMap((Map<?, ?>) value, mapType, key -> keys.apply(key, mapped), entry -> values.apply(entry, mapped));
+        }
+    }
+}
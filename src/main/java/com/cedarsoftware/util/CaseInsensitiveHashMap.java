@@ -0,0 +1,483 @@
+package com.cedarsoftware.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map whose String keys are matched case-insensitively, built for large maps (millions of header or attribute
+ * entries) where per-entry overhead dominates.  Instead of wrapping each key in a CaseInsensitiveString and storing
+ * it in a HashMap.Node, entries live in flat parallel arrays: the original key, its cached case-folded hash, and the
+ * value, kept in insertion order.  An open-addressed int[] index (linear probing, at most 3/4 full) maps a hash to
+ * the entry's position.  That is 12 bytes per entry in the arrays plus about 5 in the index (before spare capacity),
+ * against 60 or more for a CaseInsensitiveString plus a LinkedHashMap entry.<p></p>
+ *
+ * It can be used on its own, or as the mapInstance of a CaseInsensitiveMap (which then stops wrapping String keys):
+ * <pre>
+ *     Map{@literal <}String, Object{@literal >} headers = new CaseInsensitiveMap{@literal <}{@literal >}(Collections.emptyMap(), new CaseInsensitiveHashMap{@literal <}{@literal >}());
+ * </pre>
+ * Keys retain the case they were first put with.  Non-String keys use their own equals() and hashCode(), and a null
+ * key and null values are supported.  Iteration is in insertion order.  A removed entry leaves a hole in the arrays
+ * that is reclaimed the next time the arrays fill up.  Like HashMap, this class is not thread-safe.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@SuppressWarnings("unchecked")
+public class CaseInsensitiveHashMap<K, V> extends AbstractMap<K, V>
+{
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final Object NULL_KEY = new Object();    // stored in place of a null key
+    private static final Object REMOVED = new Object();     // position of a removed entry
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int[] index;        // 0 = empty slot, otherwise position + 1
+    private int count;          // positions used in keys[], including removed ones
+    private int size;
+    private int modCount;
+
+    public CaseInsensitiveHashMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity number of entries to hold before the arrays grow.
+     */
+    public CaseInsensitiveHashMap(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("Initial capacity must be >= 0, value: " + initialCapacity);
+        }
+        allocate(Math.max(initialCapacity, 2));
+    }
+
+    public CaseInsensitiveHashMap(Map<? extends K, ? extends V> other)
+    {
+        this(other.size());
+        putAll(other);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        index = new int[indexSizeFor(capacity)];
+        count = 0;
+    }
+
+    /**
+     * @return power of 2 index size that holds 'capacity' positions at no more than 3/4 full.
+     */
+    private static int indexSizeFor(int capacity)
+    {
+        int needed = capacity + (capacity + 2) / 3;
+        return Integer.highestOneBit(Math.max(needed, 2) - 1) << 1;
+    }
+
+    /**
+     * CaseInsensitiveStrings (as handed over by CaseInsensitiveMap) are stored as their original String.
+     */
+    private static Object unwrap(Object key)
+    {
+        if (key instanceof CaseInsensitiveMap.CaseInsensitiveString)
+        {
+            return key.toString();
+        }
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static int hash(Object key)
+    {
+        if (key instanceof String)
+        {
+            return StringUtilities.hashCodeIgnoreCase((String) key);
+        }
+        return key == NULL_KEY ? 0 : key.hashCode();
+    }
+
+    private static int slot(int hash, int mask)
+    {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean keysMatch(Object key, Object stored)
+    {
+        if (key == stored)
+        {
+            return true;
+        }
+        if (key instanceof String)
+        {
+            return stored instanceof String && StringUtilities.equalsIgnoreCase((String) key, (String) stored);
+        }
+        return key.equals(stored);
+    }
+
+    /**
+     * @return position of the (already unwrapped) key in the entry arrays, or -1 if it is not present.
+     */
+    private int positionOf(Object key, int hash)
+    {
+        final int[] index = this.index;
+        final int mask = index.length - 1;
+        int i = slot(hash, mask);
+        int entry;
+        while ((entry = index[i]) != 0)
+        {
+            int pos = entry - 1;
+            if (hashes[pos] == hash)
+            {
+                Object stored = keys[pos];
+                if (stored != REMOVED && keysMatch(key, stored))
+                {
+                    return pos;
+                }
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        Object k = unwrap(key);
+        return positionOf(k, hash(k)) >= 0;
+    }
+
+    public V get(Object key)
+    {
+        Object k = unwrap(key);
+        int pos = positionOf(k, hash(k));
+        return pos < 0 ? null : (V) values[pos];
+    }
+
+    public boolean containsValue(Object value)
+    {
+        for (int pos=0; pos < count; pos++)
+        {
+            if (keys[pos] != REMOVED && Objects.equals(value, values[pos]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public V put(K key, V value)
+    {
+        Object k = unwrap(key);
+        int h = hash(k);
+        int pos = positionOf(k, h);
+        if (pos >= 0)
+        {   // Overwrite - the key keeps the case it was first put with
+            V save = (V) values[pos];
+            values[pos] = value;
+            return save;
+        }
+
+        if (count == keys.length)
+        {   // Arrays full - reclaim removed positions, or grow
+            rebuild(size >= count >> 1 ? keys.length << 1 : keys.length);
+        }
+        pos = count++;
+        keys[pos] = k;
+        values[pos] = value;
+        hashes[pos] = h;
+        addToIndex(h, pos);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private void addToIndex(int hash, int pos)
+    {
+        final int[] index = this.index;
+        final int mask = index.length - 1;
+        int i = slot(hash, mask);
+        while (index[i] != 0)
+        {
+            i = (i + 1) & mask;
+        }
+        index[i] = pos + 1;
+    }
+
+    /**
+     * Copy the live entries, in order, into arrays of the given capacity and re-index them.
+     */
+    private void rebuild(int capacity)
+    {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldCount = count;
+        allocate(capacity);
+        for (int pos=0; pos < oldCount; pos++)
+        {
+            if (oldKeys[pos] != REMOVED)
+            {
+                keys[count] = oldKeys[pos];
+                values[count] = oldValues[pos];
+                hashes[count] = oldHashes[pos];
+                addToIndex(oldHashes[pos], count);
+                count++;
+            }
+        }
+    }
+
+    public V remove(Object key)
+    {
+        Object k = unwrap(key);
+        int pos = positionOf(k, hash(k));
+        if (pos < 0)
+        {
+            return null;
+        }
+        V save = (V) values[pos];
+        removeAt(pos);
+        return save;
+    }
+
+    /**
+     * The index slot keeps pointing at the position (so probe chains stay intact); the REMOVED key makes lookups
+     * pass over it until the next rebuild().
+     */
+    private void removeAt(int pos)
+    {
+        keys[pos] = REMOVED;
+        values[pos] = null;
+        size--;
+        modCount++;
+        if (size == 0)
+        {   // Nothing left to keep in order - start the arrays over
+            Arrays.fill(keys, 0, count, null);
+            Arrays.fill(index, 0);
+            count = 0;
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        Arrays.fill(index, 0);
+        count = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Hash code matching CaseInsensitiveMap: String keys contribute their case-insensitive hash.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (int pos=0; pos < count; pos++)
+        {
+            Object key = keys[pos];
+            if (key != REMOVED)
+            {
+                Object value = values[pos];
+                h += hashes[pos] ^ (value == null ? 0 : value.hashCode());
+            }
+        }
+        return h;
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            public int size() { return size; }
+            public void clear() { CaseInsensitiveHashMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object k = unwrap(entry.getKey());
+                int pos = positionOf(k, hash(k));
+                return pos >= 0 && Objects.equals(values[pos], entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!contains(o))
+                {
+                    return false;
+                }
+                CaseInsensitiveHashMap.this.remove(((Entry<?, ?>) o).getKey());
+                return true;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>>
+    {
+        int next = advance(0);
+        int current = -1;
+        int expectedModCount = modCount;
+
+        private int advance(int pos)
+        {
+            while (pos < count && keys[pos] == REMOVED)
+            {
+                pos++;
+            }
+            return pos;
+        }
+
+        public boolean hasNext()
+        {
+            return next < count;
+        }
+
+        public Entry<K, V> next()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= count)
+            {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = advance(next + 1);
+            return new PositionEntry(current);
+        }
+
+        public void remove()
+        {
+            if (current < 0)
+            {
+                throw new IllegalStateException("remove() called on an Iterator before calling next()");
+            }
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            boolean last = size == 1;
+            removeAt(current);
+            if (last)
+            {   // removeAt() restarted the arrays
+                next = 0;
+            }
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry view of one position.  setValue() writes through to the map.  If the key has moved (the arrays were
+     * rebuilt), it is looked up again; if it has been removed, getValue() and setValue() throw IllegalStateException.
+     */
+    private final class PositionEntry implements Entry<K, V>
+    {
+        private int pos;
+        private final Object stored;    // keys[pos] when created
+        private final K key;
+
+        PositionEntry(int pos)
+        {
+            this.pos = pos;
+            stored = keys[pos];
+            key = stored == NULL_KEY ? null : (K) stored;
+        }
+
+        /**
+         * @return current position of this entry's key.
+         */
+        private int position()
+        {
+            if (pos < count && keys[pos] == stored)
+            {
+                return pos;
+            }
+            int moved = positionOf(stored, hash(stored));
+            if (moved < 0)
+            {
+                throw new IllegalStateException("Entry for key '" + key + "' has been removed from the map");
+            }
+            return pos = moved;
+        }
+
+        public K getKey()
+        {
+            return key;
+        }
+
+        public V getValue()
+        {
+            return (V) values[position()];
+        }
+
+        public V setValue(V value)
+        {
+            int at = position();
+            V save = (V) values[at];
+            values[at] = value;
+            return save;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode()
+        {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString()
+        {
+            return key + "=" + getValue();
+        }
+    }
+}
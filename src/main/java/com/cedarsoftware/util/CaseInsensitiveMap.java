@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Useful Map that does not care about the case-sensitivity of keys
@@ -23,6 +24,14 @@ import java.util.concurrent.ConcurrentSkipListMap;
  * Similarly, .entrySet() returns a case-insensitive entry set, such that
  * .getKey() on the entry is case insensitive when compared, but the
  * returned key is a String.
+ * <p>
+ * get() and containsKey() probe the backing Map with a per-thread lookup key, so String lookups allocate nothing.
+ * Other operations wrap String keys in a CaseInsensitiveString.  When the same keys are used over and over (HTTP
+ * header names, JSON field names), CaseInsensitiveString.setInternCacheCapacity() enables a bounded, concurrent
+ * cache of the wrappers, so a repeated key costs one lookup instead of an allocation plus a case-insensitive hash.
+ * The cache is shared by all CaseInsensitiveMaps (and CaseInsensitiveSets) and is off by default.  When the
+ * mapInstance is a CaseInsensitiveHashMap, String keys are not wrapped at all - it matches them case-insensitively
+ * itself and stores the original Strings in flat arrays.
  *
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
@@ -92,6 +101,10 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         {
             map = copy(m, new TreeMap<>());
         }
+        else if (m instanceof CaseInsensitiveHashMap)
+        {
+            map = copy(m, new CaseInsensitiveHashMap<>(m.size()));
+        }
         else if (m instanceof LinkedHashMap)
         {
             map = copy(m, new LinkedHashMap<>(m.size()));
@@ -137,9 +150,9 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             // Wrap any String keys with a CaseInsensitiveString.  Keys that were already CaseInsensitiveStrings will
             // remain as such.
             K altKey;
-            if (key instanceof String)
+            if (key instanceof String && !(dest instanceof CaseInsensitiveHashMap))
             {
-                altKey = (K) new CaseInsensitiveString((String)key);
+                altKey = (K) CaseInsensitiveString.of((String)key);
             }
             else
             {
@@ -158,20 +171,34 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
 
     public V get(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && !(map instanceof CaseInsensitiveHashMap))
         {
-            String keyString = (String) key;
-            return map.get(new CaseInsensitiveString(keyString));
+            LookupKey lookup = LookupKey.forString((String) key);
+            try
+            {
+                return map.get(lookup);
+            }
+            finally
+            {
+                lookup.release();
+            }
         }
         return map.get(key);
     }
 
     public boolean containsKey(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && !(map instanceof CaseInsensitiveHashMap))
         {
-            String keyString = (String) key;
-            return map.containsKey(new CaseInsensitiveString(keyString));
+            LookupKey lookup = LookupKey.forString((String) key);
+            try
+            {
+                return map.containsKey(lookup);
+            }
+            finally
+            {
+                lookup.release();
+            }
         }
         return map.containsKey(key);
     }
@@ -179,9 +206,9 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
     @SuppressWarnings("unchecked")
     public V put(K key, V value)
     {
-        if (key instanceof String)
+        if (key instanceof String && !(map instanceof CaseInsensitiveHashMap))
         {
-            final CaseInsensitiveString newKey = new CaseInsensitiveString((String) key);
+            final CaseInsensitiveString newKey = CaseInsensitiveString.of((String) key);
             return map.put((K) newKey, value);
         }
         return map.put(key, value);
@@ -190,9 +217,9 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
     @SuppressWarnings("unchecked")
     public Object putObject(Object key, Object value)
     {   // not calling put() to save a little speed.
-        if (key instanceof String)
+        if (key instanceof String && !(map instanceof CaseInsensitiveHashMap))
         {   
-            final CaseInsensitiveString newKey = new CaseInsensitiveString((String) key);
+            final CaseInsensitiveString newKey = CaseInsensitiveString.of((String) key);
             return map.put((K) newKey, (V)value);
         }
         return map.put((K)key, (V)value);
@@ -222,10 +249,10 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
 
     public V remove(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && !(map instanceof CaseInsensitiveHashMap))
         {
             String keyString = (String) key;
-            return map.remove(new CaseInsensitiveString(keyString));
+            return map.remove(CaseInsensitiveString.of(keyString));
         }
         return map.remove(key);
     }
@@ -276,7 +303,7 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         for (Entry<K, V> entry : map.entrySet())
         {
             Object key = entry.getKey();
-            int hKey = key == null ? 0 : key.hashCode();
+            int hKey = hashKey(key);
             Object value = entry.getValue();
             int hValue = value == null ? 0 : value.hashCode();
             h += hKey ^ hValue;
@@ -289,6 +316,19 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         return map.toString();
     }
 
+    /**
+     * @return hash of a key as held by the backing Map - case-insensitive for Strings, whether wrapped in a
+     * CaseInsensitiveString or held as-is (CaseInsensitiveHashMap).
+     */
+    private static int hashKey(Object key)
+    {
+        if (key instanceof String)
+        {
+            return StringUtilities.hashCodeIgnoreCase((String) key);
+        }
+        return key == null ? 0 : key.hashCode();
+    }
+
     public void clear()
     {
         map.clear();
@@ -403,10 +443,7 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
                 // with map.keySet() will return the hashCode of .toLowerCase() of those strings).
                 for (Object key : map.keySet())
                 {
-                    if (key != null)
-                    {
-                        h += key.hashCode();
-                    }
+                    h += hashKey(key);
                 }
                 return h;
             }
@@ -581,6 +618,79 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         }
     }
 
+    /**
+     * Reusable (one per thread) stand-in for a CaseInsensitiveString, used only to probe the wrapped Map in get() and
+     * containsKey() so that String lookups allocate nothing.  It hashes, equals(), and compares exactly like a
+     * CaseInsensitiveString, and is never stored in the Map - read-only probes do not retain their key.  Callers must
+     * release() it when the probe is done (also used by ConcurrentCaseInsensitiveMap).
+     */
+    static final class LookupKey implements Comparable<Object>
+    {
+        private static final ThreadLocal<LookupKey> lookupKey = ThreadLocal.withInitial(LookupKey::new);
+        private String original;
+        private int hash;
+
+        static LookupKey forString(String string)
+        {
+            LookupKey lookup = lookupKey.get();
+            if (lookup.original != null)
+            {   // Re-entered (a key's equals() called back into a CaseInsensitiveMap) - do not clobber the outer probe
+                lookup = new LookupKey();
+            }
+            lookup.original = string;
+            lookup.hash = StringUtilities.hashCodeIgnoreCase(string);
+            return lookup;
+        }
+
+        void release()
+        {
+            original = null;
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object other)
+        {
+            if (other instanceof CaseInsensitiveString)
+            {
+                return hash == other.hashCode() && StringUtilities.equalsIgnoreCase(original, ((CaseInsensitiveString) other).original);
+            }
+            else if (other instanceof LookupKey)
+            {
+                return hash == ((LookupKey) other).hash && StringUtilities.equalsIgnoreCase(original, ((LookupKey) other).original);
+            }
+            else if (other instanceof String)
+            {
+                return StringUtilities.equalsIgnoreCase(original, (String) other);
+            }
+            return false;
+        }
+
+        public int compareTo(Object o)
+        {
+            if (o instanceof CaseInsensitiveString)
+            {
+                return StringUtilities.compareIgnoreCase(original, ((CaseInsensitiveString) o).original);
+            }
+            else if (o instanceof String)
+            {
+                return StringUtilities.compareIgnoreCase(original, (String) o);
+            }
+            else
+            {   // Strings are less than non-Strings (come before)
+                return -1;
+            }
+        }
+
+        public String toString()
+        {
+            return original;
+        }
+    }
+
     /**
      * Class used to wrap String keys.  This class ignores the
      * case of Strings when they are compared.  Based on known usage,
@@ -588,6 +698,10 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
      */
     public static final class CaseInsensitiveString implements Comparable
     {
+        private static final ConcurrentMap<String, CaseInsensitiveString> internCache = new ConcurrentHashMap<>();
+        private static final LongAdder internHits = new LongAdder();
+        private static final LongAdder internMisses = new LongAdder();
+        private static volatile int internCacheCapacity = 0;
         private final String original;
         private final int hash;
 
@@ -597,6 +711,92 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             hash = StringUtilities.hashCodeIgnoreCase(string);  // no new String created unlike .toLowerCase()
         }
 
+        /**
+         * @return a CaseInsensitiveString wrapping 'string' - the cached instance when the intern cache is enabled
+         * and already holds this exact String, otherwise a new instance (added to the cache when enabled).
+         */
+        public static CaseInsensitiveString of(String string)
+        {
+            final int capacity = internCacheCapacity;
+            if (capacity <= 0)
+            {
+                return new CaseInsensitiveString(string);
+            }
+            CaseInsensitiveString ciString = internCache.get(string);
+            if (ciString != null)
+            {
+                internHits.increment();
+                return ciString;
+            }
+            internMisses.increment();
+            ciString = new CaseInsensitiveString(string);
+            if (internCache.size() >= capacity)
+            {   // Bounded: start over rather than grow (the working set repopulates it quickly)
+                internCache.clear();
+            }
+            internCache.putIfAbsent(string, ciString);
+            return ciString;
+        }
+
+        /**
+         * Enable (capacity {@literal >} 0) or disable (0) the intern cache of CaseInsensitiveString instances, keyed
+         * by the exact (case-retaining) String.  When the cache reaches capacity it is emptied and refilled.
+         * Disabling it also empties it.
+         * @param capacity maximum number of cached Strings
+         */
+        public static void setInternCacheCapacity(int capacity)
+        {
+            if (capacity < 0)
+            {
+                throw new IllegalArgumentException("Intern cache capacity must be >= 0, value: " + capacity);
+            }
+            internCacheCapacity = capacity;
+            if (capacity == 0)
+            {
+                internCache.clear();
+            }
+        }
+
+        public static int getInternCacheCapacity()
+        {
+            return internCacheCapacity;
+        }
+
+        /**
+         * @return number of Strings currently held in the intern cache.
+         */
+        public static int getInternCacheSize()
+        {
+            return internCache.size();
+        }
+
+        /**
+         * @return number of of() calls answered from the intern cache since the last clearInternCache().
+         */
+        public static long getInternCacheHits()
+        {
+            return internHits.sum();
+        }
+
+        /**
+         * @return number of of() calls, with the cache enabled, that had to create an instance since the last
+         * clearInternCache().
+         */
+        public static long getInternCacheMisses()
+        {
+            return internMisses.sum();
+        }
+
+        /**
+         * Empty the intern cache and zero its hit and miss counters.
+         */
+        public static void clearInternCache()
+        {
+            internCache.clear();
+            internHits.reset();
+            internMisses.reset();
+        }
+
         public String toString()
         {
             return original;
@@ -616,11 +816,15 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             else if (other instanceof CaseInsensitiveString)
             {
                 return hash == ((CaseInsensitiveString)other).hash &&
-                        original.equalsIgnoreCase(((CaseInsensitiveString)other).original);
+                        StringUtilities.equalsIgnoreCase(original, ((CaseInsensitiveString)other).original);
             }
             else if (other instanceof String)
             {
-                return original.equalsIgnoreCase((String)other);
+                return StringUtilities.equalsIgnoreCase(original, (String)other);
+            }
+            else if (other instanceof LookupKey)
+            {   // Backing Maps that call storedKey.equals(probe)
+                return hash == other.hashCode() && StringUtilities.equalsIgnoreCase(original, other.toString());
             }
             return false;
         }
@@ -630,12 +834,16 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             if (o instanceof CaseInsensitiveString)
             {
                 CaseInsensitiveString other = (CaseInsensitiveString) o;
-                return original.compareToIgnoreCase(other.original);
+                return StringUtilities.compareIgnoreCase(original, other.original);
+            }
+            else if (o instanceof LookupKey)
+            {
+                return StringUtilities.compareIgnoreCase(original, o.toString());
             }
             else if (o instanceof String)
             {
                 String other = (String)o;
-                return original.compareToIgnoreCase(other);
+                return StringUtilities.compareIgnoreCase(original, other);
             }
             else
             {   // Strings are less than non-Strings (come before)
@@ -0,0 +1,158 @@
+package com.cedarsoftware.util;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * NavigableMap with String keys ordered and matched case-insensitively (the same ordering as
+ * String.CASE_INSENSITIVE_ORDER, with StringUtilities' ASCII fast path).  Keys retain the case they were first put
+ * with.  subMap(), headMap(), tailMap() and the other NavigableMap views work as they do for any TreeMap, and
+ * prefixMap() adds a live view of all keys starting with a given prefix, ignoring case:
+ * <pre>
+ *     CaseInsensitiveTreeMap{@literal <}String{@literal >} headers = new CaseInsensitiveTreeMap{@literal <}{@literal >}();
+ *     headers.put("X-Request-Id", "42");
+ *     headers.put("x-trace-id", "7");
+ *     headers.prefixMap("X-") // {X-Request-Id=42, x-trace-id=7}
+ * </pre>
+ * A prefix view is a subMap() between the prefix and the smallest key that sorts after every key with that prefix,
+ * so it costs O(log n) to create, and each step of its iteration is O(1) amortized - no scan of non-matching keys.
+ * Null keys are not permitted.  Like TreeMap, this class is not thread-safe.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CaseInsensitiveTreeMap<V> extends TreeMap<String, V>
+{
+    private static final long serialVersionUID = 1L;
+    static final Comparator<String> ORDER = new CaseInsensitiveOrder();
+
+    public CaseInsensitiveTreeMap()
+    {
+        super(ORDER);
+    }
+
+    public CaseInsensitiveTreeMap(Map<String, ? extends V> source)
+    {
+        super(ORDER);
+        putAll(source);
+    }
+
+    /**
+     * @param prefix String that every key in the returned view starts with, ignoring case.
+     * @return live view of the entries whose keys start with 'prefix', ignoring case.  Like any subMap(), putting a
+     * key outside the prefix through the view throws IllegalArgumentException.
+     */
+    public NavigableMap<String, V> prefixMap(String prefix)
+    {
+        String upper = prefixUpperBound(prefix);
+        return upper == null ? tailMap(prefix, true) : subMap(prefix, true, upper, false);
+    }
+
+    /**
+     * Hash code matching CaseInsensitiveMap: keys contribute their case-insensitive hash.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (Entry<String, V> entry : entrySet())
+        {
+            V value = entry.getValue();
+            h += StringUtilities.hashCodeIgnoreCase(entry.getKey()) ^ (value == null ? 0 : value.hashCode());
+        }
+        return h;
+    }
+
+    /**
+     * The keys that start with 'prefix' (ignoring case) are exactly those in [prefix, upper bound).  The bound is the
+     * prefix with its last character replaced by the character with the next higher case-folded value - the first
+     * value that no key with the prefix can have there.  When no higher value exists, the character is dropped and
+     * the one before it is raised instead.
+     * @return exclusive upper bound, or null if every key {@literal >=} prefix starts with it.
+     */
+    static String prefixUpperBound(String prefix)
+    {
+        for (int i = prefix.length() - 1; i >= 0; i--)
+        {
+            int next = FoldedChars.next(fold(prefix.charAt(i)));
+            if (next >= 0)
+            {
+                return prefix.substring(0, i) + (char) next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value a char is compared by in String.CASE_INSENSITIVE_ORDER.
+     */
+    private static char fold(char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Every char that is the case-folded value of some char, built on first use of prefixMap() (8K).
+     */
+    private static final class FoldedChars
+    {
+        private static final BitSet FOLDED = new BitSet(Character.MAX_VALUE + 1);
+
+        static
+        {
+            for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++)
+            {
+                FOLDED.set(fold((char) c));
+            }
+        }
+
+        /**
+         * @return smallest char that is a folded value and that is {@literal >} 'folded', or -1 if there is none.
+         * Each folded value is its own folded value, so it can stand in the bound String for itself.
+         */
+        static int next(char folded)
+        {
+            int next = FOLDED.nextSetBit(folded + 1);
+            return next > Character.MAX_VALUE ? -1 : next;
+        }
+    }
+
+    /**
+     * String.CASE_INSENSITIVE_ORDER with the ASCII fast path of StringUtilities.compareIgnoreCase().  Nulls are
+     * rejected, as TreeMap does for natural ordering.
+     */
+    private static final class CaseInsensitiveOrder implements Comparator<String>, Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        public int compare(String s1, String s2)
+        {
+            if (s1 == null || s2 == null)
+            {
+                throw new NullPointerException("Case-insensitive ordering does not permit null keys");
+            }
+            return StringUtilities.compareIgnoreCase(s1, s2);
+        }
+
+        private Object readResolve()
+        {
+            return ORDER;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cedarsoftware.util;
+
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * NavigableSet of Strings ordered and matched case-insensitively, the Set counterpart of CaseInsensitiveTreeMap.
+ * Items retain the case they were first added with.  prefixSet() is a live view of all items starting with a given
+ * prefix, ignoring case, created in O(log n) time.  Null items are not permitted.  Like TreeSet, this class is not
+ * thread-safe.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CaseInsensitiveTreeSet extends TreeSet<String>
+{
+    private static final long serialVersionUID = 1L;
+
+    public CaseInsensitiveTreeSet()
+    {
+        super(CaseInsensitiveTreeMap.ORDER);
+    }
+
+    public CaseInsensitiveTreeSet(Collection<String> source)
+    {
+        super(CaseInsensitiveTreeMap.ORDER);
+        addAll(source);
+    }
+
+    /**
+     * @param prefix String that every item in the returned view starts with, ignoring case.
+     * @return live view of the items that start with 'prefix', ignoring case.
+     */
+    public NavigableSet<String> prefixSet(String prefix)
+    {
+        String upper = CaseInsensitiveTreeMap.prefixUpperBound(prefix);
+        return upper == null ? tailSet(prefix, true) : subSet(prefix, true, upper, false);
+    }
+
+    /**
+     * Hash code matching CaseInsensitiveSet: items contribute their case-insensitive hash.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (String item : this)
+        {
+            h += StringUtilities.hashCodeIgnoreCase(item);
+        }
+        return h;
+    }
+}
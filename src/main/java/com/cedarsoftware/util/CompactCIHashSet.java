@@ -34,5 +34,6 @@ public class CompactCIHashSet<E> extends CompactSet<E>
      * @return new empty Set instance to use when size() becomes {@literal >} compactSize().
      */
     protected Set<E> getNewSet() { return new CaseInsensitiveSet<>(Collections.emptySet(), new CaseInsensitiveMap<>(Collections.emptyMap(), new HashMap<>(compactSize() + 1))); }
+    protected boolean useCopyIterator() { return false; }
     protected boolean isCaseInsensitive() { return true; }
 }
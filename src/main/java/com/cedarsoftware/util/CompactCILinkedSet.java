@@ -33,5 +33,6 @@ public class CompactCILinkedSet<E> extends CompactSet<E>
      * @return new empty Set instance to use when size() becomes {@literal >} compactSize().
      */
     protected Set<E> getNewSet() { return new CaseInsensitiveSet<>(compactSize() + 1); }
+    protected boolean useCopyIterator() { return false; }
     protected boolean isCaseInsensitive() { return true; }
 }
@@ -0,0 +1,45 @@
+package com.cedarsoftware.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Useful Map that does not care about the case-sensitivity of keys
+ * when the key value is a String.  Other key types can be used.
+ * String keys will be treated case insensitively, yet key case will
+ * be retained.  Entries are always kept in key order (String keys by
+ * String.CASE_INSENSITIVE_ORDER).
+ * <p>
+ * This Map uses very little memory (See CompactMap).  When the Map
+ * has 2 thru 'compactSize()' elements in it, they are held sorted in a
+ * single Object[] and looked up by binary search.  When it has more than
+ * 'compactSize()' elements in it, the 'delegate' Map is a case-insensitive
+ * TreeMap.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactCISortedMap<K, V> extends CompactMap<K, V>
+{
+    public CompactCISortedMap() { }
+    public CompactCISortedMap(Map<K ,V> other) { super(other); }
+    protected Map<K, V> getNewMap() { return new CaseInsensitiveMap<>(Collections.emptyMap(), new TreeMap<>()); }
+    protected Map<K, V> getNewMap(int size) { return getNewMap(); }   // TreeMap has no capacity to pre-size
+    protected boolean isCaseInsensitive() { return true; }
+    protected boolean useSortedArray() { return true; }
+    protected boolean useCopyIterator() { return false; }
+}
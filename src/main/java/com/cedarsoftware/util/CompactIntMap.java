@@ -0,0 +1,526 @@
+package com.cedarsoftware.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * CompactMap specialized for primitive int keys.  The keys are held in an int[] and never boxed by the primitive
+ * API - get(int), containsKey(int), put(int, V), remove(int) - so int-indexed lookups do not allocate.  It still
+ * implements Map&lt;Integer, V&gt; (boxing at that boundary) so it can be handed to code expecting a Map.<p></p>
+ *
+ * Storage follows CompactMap's tiers.  When empty, both arrays are zero length.  From 1 to compactSize() entries, the
+ * keys and values are held in exactly-sized parallel arrays (int[] keys, Object[] values) that are scanned linearly.
+ * When size() {@literal >} compactSize(), the same two arrays become an open-addressed (linear probing) hash table,
+ * sized to a power of 2 and kept no more than half full, still with primitive keys.  When size() drops back to
+ * compactSize(), the entries are packed back into exactly-sized arrays.<p></p>
+ *
+ * Null values are supported.  Null keys are not (there is no int for them).
+ * When V is itself Integer, pass the key as a primitive and the value boxed (or cast) to pick put() unambiguously.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@SuppressWarnings("unchecked")
+public class CompactIntMap<V> extends AbstractMap<Integer, V>
+{
+    private static final int[] EMPTY_KEYS = new int[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+    private static final Object NULL_VALUE = new Object();  // hash tier: stands in for a null value
+    private static final Object DELETED = new Object();     // hash tier: tombstone left by remove()
+    private int[] keys = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+    private int size;
+    private int filled;     // hash tier: occupied slots, including tombstones
+
+    public CompactIntMap()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public CompactIntMap(Map<Integer, ? extends V> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    /**
+     * @return when size() {@literal >} than this amount, the entries are stored in an open-addressed hash table.
+     */
+    protected int compactSize() { return 80; }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * In the array tier the arrays are exactly size() long, in the hash tier they are at least twice size().
+     */
+    private boolean isHashed()
+    {
+        return keys.length != size;
+    }
+
+    public boolean containsKey(int key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    public V get(int key)
+    {
+        int i = indexOf(key);
+        return i < 0 ? null : valueAt(i);
+    }
+
+    public V getOrDefault(int key, V defaultValue)
+    {
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : valueAt(i);
+    }
+
+    public V put(int key, V value)
+    {
+        if (isHashed())
+        {
+            return hashPut(key, value);
+        }
+
+        final int[] keys = this.keys;
+        final int len = keys.length;
+        for (int i=0; i < len; i++)
+        {
+            if (keys[i] == key)
+            {   // Overwrite case
+                V prior = (V) values[i];
+                values[i] = value;
+                return prior;
+            }
+        }
+
+        if (len < compactSize())
+        {   // Grow arrays by one, new entry at end
+            int[] expandKeys = Arrays.copyOf(keys, len + 1);
+            Object[] expandValues = Arrays.copyOf(values, len + 1);
+            expandKeys[len] = key;
+            expandValues[len] = value;
+            this.keys = expandKeys;
+            this.values = expandValues;
+            size++;
+        }
+        else
+        {   // Switch to hash table - copy entries
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            resize(tableSizeFor(len + 1));
+            for (int i=0; i < len; i++)
+            {
+                hashPut(oldKeys[i], (V) oldValues[i]);
+            }
+            hashPut(key, value);
+        }
+        return null;
+    }
+
+    public V remove(int key)
+    {
+        int i = indexOf(key);
+        if (i < 0)
+        {
+            return null;
+        }
+        V prior = valueAt(i);
+
+        if (isHashed())
+        {
+            values[i] = DELETED;
+            size--;
+            if (size == compactSize())
+            {   // Down to compactSize, switch back to exactly-sized arrays
+                pack();
+            }
+            return prior;
+        }
+
+        // Array tier - shrink by one
+        final int len = keys.length;
+        int[] shrinkKeys = new int[len - 1];
+        Object[] shrinkValues = new Object[len - 1];
+        System.arraycopy(keys, 0, shrinkKeys, 0, i);
+        System.arraycopy(keys, i + 1, shrinkKeys, i, len - i - 1);
+        System.arraycopy(values, 0, shrinkValues, 0, i);
+        System.arraycopy(values, i + 1, shrinkValues, i, len - i - 1);
+        keys = shrinkKeys;
+        values = shrinkValues;
+        size--;
+        return prior;
+    }
+
+    public V get(Object key)
+    {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    public V put(Integer key, V value)
+    {
+        return put(key.intValue(), value);
+    }
+
+    public V remove(Object key)
+    {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    public boolean containsValue(Object value)
+    {
+        final Object[] values = this.values;
+        final boolean hashed = isHashed();
+        for (Object aValue : values)
+        {
+            if (hashed)
+            {
+                if (aValue == null || aValue == DELETED)
+                {
+                    continue;
+                }
+                if (aValue == NULL_VALUE)
+                {
+                    aValue = null;
+                }
+            }
+            if (Objects.equals(value, aValue))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear()
+    {
+        keys = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+        size = 0;
+        filled = 0;
+    }
+
+    /**
+     * @return index of the key within keys[] / values[], or -1 if not present.
+     */
+    private int indexOf(int key)
+    {
+        final int[] keys = this.keys;
+        if (keys.length != size)
+        {   // hash tier
+            final Object[] values = this.values;
+            final int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            Object aValue;
+            while ((aValue = values[i]) != null)
+            {
+                if (aValue != DELETED && keys[i] == key)
+                {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        final int len = keys.length;
+        for (int i=0; i < len; i++)
+        {
+            if (keys[i] == key)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private V valueAt(int i)
+    {
+        Object value = values[i];
+        return value == NULL_VALUE ? null : (V) value;
+    }
+
+    private V hashPut(int key, V value)
+    {
+        final int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        int tombstone = -1;
+        Object aValue;
+        while ((aValue = values[i]) != null)
+        {
+            if (aValue == DELETED)
+            {
+                if (tombstone < 0)
+                {
+                    tombstone = i;
+                }
+            }
+            else if (keys[i] == key)
+            {   // Overwrite case
+                values[i] = value == null ? NULL_VALUE : value;
+                return aValue == NULL_VALUE ? null : (V) aValue;
+            }
+            i = (i + 1) & mask;
+        }
+
+        if (tombstone >= 0)
+        {   // Reuse the slot left by a remove()
+            i = tombstone;
+        }
+        else
+        {
+            filled++;
+        }
+        keys[i] = key;
+        values[i] = value == null ? NULL_VALUE : value;
+        size++;
+        if (filled << 1 > keys.length)
+        {   // More than half full (counting tombstones) - rebuild, growing if live entries need the room
+            rehash(tableSizeFor(size));
+        }
+        return null;
+    }
+
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        resize(capacity);
+        for (int i=0; i < oldKeys.length; i++)
+        {
+            Object aValue = oldValues[i];
+            if (aValue != null && aValue != DELETED)
+            {
+                insertFresh(oldKeys[i], aValue);
+            }
+        }
+    }
+
+    private void resize(int capacity)
+    {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        size = 0;
+        filled = 0;
+    }
+
+    /**
+     * Insert into a table known not to contain the key and to have no tombstones (value already masked).
+     */
+    private void insertFresh(int key, Object value)
+    {
+        final int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (values[i] != null)
+        {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        filled++;
+    }
+
+    /**
+     * Hash tier to exactly-sized arrays, in table order.
+     */
+    private void pack()
+    {
+        int[] packedKeys = new int[size];
+        Object[] packedValues = new Object[size];
+        int idx = 0;
+        for (int i=0; i < keys.length; i++)
+        {
+            Object aValue = values[i];
+            if (aValue != null && aValue != DELETED)
+            {
+                packedKeys[idx] = keys[i];
+                packedValues[idx++] = aValue == NULL_VALUE ? null : aValue;
+            }
+        }
+        keys = packedKeys;
+        values = packedValues;
+        filled = 0;
+    }
+
+    /**
+     * @return power of 2 table size that holds 'count' entries at no more than half full.
+     */
+    private static int tableSizeFor(int count)
+    {
+        return Integer.highestOneBit((count << 2) - 1);
+    }
+
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public Set<Entry<Integer, V>> entrySet()
+    {
+        return new AbstractSet<Entry<Integer, V>>()
+        {
+            public Iterator<Entry<Integer, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            public int size()
+            {
+                return CompactIntMap.this.size();
+            }
+
+            public void clear()
+            {
+                CompactIntMap.this.clear();
+            }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object key = entry.getKey();
+                if (!(key instanceof Integer))
+                {
+                    return false;
+                }
+                int i = indexOf((Integer) key);
+                return i >= 0 && Objects.equals(valueAt(i), entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!contains(o))
+                {
+                    return false;
+                }
+                CompactIntMap.this.remove((Integer) ((Entry<?, ?>) o).getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Walks the arrays that were current when the iterator was created.  remove() and put() never rewrite an
+     * existing slot's key in place (they overwrite values, leave tombstones, or allocate new arrays), so the walk
+     * stays correct across Iterator.remove() and Entry.setValue(), including tier changes.
+     */
+    private final class EntryIterator implements Iterator<Entry<Integer, V>>
+    {
+        final int[] iterKeys = keys;
+        final Object[] iterValues = values;
+        final boolean hashed = isHashed();
+        int expectedSize = size;
+        int next = -1;
+        int current = -1;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            next++;
+            if (hashed)
+            {
+                while (next < iterValues.length && (iterValues[next] == null || iterValues[next] == DELETED))
+                {
+                    next++;
+                }
+            }
+        }
+
+        public boolean hasNext()
+        {
+            return next < iterKeys.length;
+        }
+
+        public Entry<Integer, V> next()
+        {
+            if (expectedSize != size)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= iterKeys.length)
+            {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            advance();
+            Object value = iterValues[current];
+            return new IntEntry(iterKeys[current], value == NULL_VALUE ? null : (V) value);
+        }
+
+        public void remove()
+        {
+            if (current < 0)
+            {
+                throw new IllegalStateException("remove() called on an Iterator before calling next()");
+            }
+            if (expectedSize != size)
+            {
+                throw new ConcurrentModificationException();
+            }
+            CompactIntMap.this.remove(iterKeys[current]);
+            expectedSize--;
+            current = -1;
+        }
+    }
+
+    private final class IntEntry extends SimpleEntry<Integer, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        IntEntry(int key, V value)
+        {
+            super(key, value);
+        }
+
+        public V setValue(V value)
+        {
+            CompactIntMap.this.put(getKey().intValue(), value);    // "Transmit" (write-thru) to underlying Map.
+            return super.setValue(value);
+        }
+    }
+}
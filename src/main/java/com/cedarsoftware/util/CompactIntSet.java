@@ -0,0 +1,471 @@
+package com.cedarsoftware.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * CompactSet specialized for primitive int elements.  The elements are held in a int[] and never boxed by the
+ * primitive API - add(int), contains(int), remove(int) - so membership tests do not allocate.  It still implements
+ * Set&lt;Integer&gt; (boxing at that boundary) so it can be handed to code expecting a Set.<p></p>
+ *
+ * Storage follows CompactSet's tiers.  When empty, the array is zero length.  From 1 to compactSize() elements, they
+ * are held in an exactly-sized int[] that is scanned linearly.  When size() {@literal >} compactSize(), the int[]
+ * becomes an open-addressed (linear probing) hash table, sized to a power of 2 and kept no more than half full, where
+ * 0 marks an empty slot (the element 0 itself is then tracked by a flag).  When size() drops back to compactSize(),
+ * the elements are packed back into an exactly-sized int[].<p></p>
+ *
+ * addAll() (union) and retainAll() (intersection) run entirely on primitives when given another CompactIntSet.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactIntSet extends AbstractSet<Integer>
+{
+    private static final int[] EMPTY_ELEMENTS = new int[0];
+    private int[] elements = EMPTY_ELEMENTS;
+    private int size;
+    private boolean containsZero;   // hash tier: 0 marks an empty slot, so the element 0 is held here
+
+    public CompactIntSet()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public CompactIntSet(Collection<Integer> other)
+    {
+        this();
+        addAll(other);
+    }
+
+    /**
+     * @return when size() {@literal >} than this amount, the elements are stored in an open-addressed hash table.
+     */
+    protected int compactSize() { return 80; }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * In the array tier the array is exactly size() long, in the hash tier it is at least twice size().
+     */
+    private boolean isHashed()
+    {
+        return elements.length != size;
+    }
+
+    public boolean contains(int item)
+    {
+        final int[] elements = this.elements;
+        if (elements.length != size)
+        {   // hash tier
+            if (item == 0)
+            {
+                return containsZero;
+            }
+            final int mask = elements.length - 1;
+            int i = hash(item) & mask;
+            int element;
+            while ((element = elements[i]) != 0)
+            {
+                if (element == item)
+                {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        for (int element : elements)
+        {
+            if (element == item)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean add(int item)
+    {
+        if (isHashed())
+        {
+            return hashAdd(item);
+        }
+
+        final int[] elements = this.elements;
+        final int len = elements.length;
+        for (int element : elements)
+        {
+            if (element == item)
+            {
+                return false;
+            }
+        }
+
+        if (len < compactSize())
+        {   // Grow array by one, new element at end
+            int[] expand = Arrays.copyOf(elements, len + 1);
+            expand[len] = item;
+            this.elements = expand;
+            size++;
+        }
+        else
+        {   // Switch to hash table - copy elements
+            resize(tableSizeFor(len + 1));
+            for (int element : elements)
+            {
+                hashAdd(element);
+            }
+            hashAdd(item);
+        }
+        return true;
+    }
+
+    public boolean remove(int item)
+    {
+        if (isHashed())
+        {
+            if (!hashRemove(item))
+            {
+                return false;
+            }
+            if (size == compactSize())
+            {   // Down to compactSize, switch back to an exactly-sized array
+                elements = toIntArray();
+                containsZero = false;
+            }
+            return true;
+        }
+
+        final int[] elements = this.elements;
+        final int len = elements.length;
+        for (int i=0; i < len; i++)
+        {
+            if (elements[i] == item)
+            {   // Found, must shrink
+                int[] shrink = new int[len - 1];
+                System.arraycopy(elements, 0, shrink, 0, i);
+                System.arraycopy(elements, i + 1, shrink, i, len - i - 1);
+                this.elements = shrink;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object item)
+    {
+        return item instanceof Integer && contains(((Integer) item).intValue());
+    }
+
+    public boolean add(Integer item)
+    {
+        return add(item.intValue());
+    }
+
+    public boolean remove(Object item)
+    {
+        return item instanceof Integer && remove(((Integer) item).intValue());
+    }
+
+    public void clear()
+    {
+        elements = EMPTY_ELEMENTS;
+        size = 0;
+        containsZero = false;
+    }
+
+    /**
+     * Union.  When 'c' is a CompactIntSet, its elements are read directly (no boxing).
+     */
+    public boolean addAll(Collection<? extends Integer> c)
+    {
+        if (!(c instanceof CompactIntSet))
+        {
+            return super.addAll(c);
+        }
+        boolean modified = false;
+        for (int item : ((CompactIntSet) c).toIntArray())
+        {
+            modified |= add(item);
+        }
+        return modified;
+    }
+
+    /**
+     * Intersection.  When 'c' is a CompactIntSet, membership is tested with contains(int) (no boxing).
+     */
+    public boolean retainAll(Collection<?> c)
+    {
+        if (!(c instanceof CompactIntSet))
+        {
+            return super.retainAll(c);
+        }
+        CompactIntSet other = (CompactIntSet) c;
+        int[] current = toIntArray();
+        int[] kept = new int[current.length];
+        int count = 0;
+        for (int item : current)
+        {
+            if (other.contains(item))
+            {
+                kept[count++] = item;
+            }
+        }
+        if (count == current.length)
+        {
+            return false;
+        }
+        clear();
+        for (int i=0; i < count; i++)
+        {
+            add(kept[i]);
+        }
+        return true;
+    }
+
+    /**
+     * @return the elements as a new int[] (array tier order, or table order once size() {@literal >} compactSize()).
+     */
+    public int[] toIntArray()
+    {
+        if (!isHashed())
+        {
+            return elements.clone();
+        }
+        int[] result = new int[size];
+        int idx = 0;
+        if (containsZero)
+        {
+            result[idx++] = 0;
+        }
+        for (int element : elements)
+        {
+            if (element != 0)
+            {
+                result[idx++] = element;
+            }
+        }
+        return result;
+    }
+
+    private boolean hashAdd(int item)
+    {
+        if (item == 0)
+        {
+            if (containsZero)
+            {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        final int[] elements = this.elements;
+        final int mask = elements.length - 1;
+        int i = hash(item) & mask;
+        int element;
+        while ((element = elements[i]) != 0)
+        {
+            if (element == item)
+            {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        elements[i] = item;
+        size++;
+        if (size << 1 > elements.length)
+        {   // More than half full - double the table
+            int[] old = elements;
+            boolean zero = containsZero;
+            resize(old.length << 1);
+            for (int anItem : old)
+            {
+                if (anItem != 0)
+                {
+                    hashAdd(anItem);
+                }
+            }
+            if (zero)
+            {
+                hashAdd(0);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Linear probing removal with backward shift, so the table never holds tombstones.
+     */
+    private boolean hashRemove(int item)
+    {
+        if (item == 0)
+        {
+            if (!containsZero)
+            {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        final int[] elements = this.elements;
+        final int mask = elements.length - 1;
+        int i = hash(item) & mask;
+        int element;
+        while ((element = elements[i]) != item)
+        {
+            if (element == 0)
+            {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Shift later members of the probe run back into the gap
+        int gap = i;
+        int j = i;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            int next = elements[j];
+            if (next == 0)
+            {
+                break;
+            }
+            int home = hash(next) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask))
+            {   // 'next' may legally sit at 'gap' (the gap lies between its home slot and j)
+                elements[gap] = next;
+                gap = j;
+            }
+        }
+        elements[gap] = 0;
+        size--;
+        return true;
+    }
+
+    private void resize(int capacity)
+    {
+        elements = new int[capacity];
+        size = 0;
+        containsZero = false;
+    }
+
+    /**
+     * @return power of 2 table size that holds 'count' elements at no more than half full.
+     */
+    private static int tableSizeFor(int count)
+    {
+        return Integer.highestOneBit((count << 2) - 1);
+    }
+
+    private static int hash(int item)
+    {
+        int h = item * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public Iterator<Integer> iterator()
+    {
+        return new Iterator<Integer>()
+        {
+            // Walk a snapshot of the elements.  It is the live array until the first remove(), which (in the hash
+            // tier) may shift elements within the live table.
+            int[] iterElements = elements;
+            final boolean hashed = isHashed();
+            boolean zeroPending = hashed && containsZero;
+            boolean copied = !hashed;    // array tier: remove() replaces the array, the snapshot is never touched
+            int expectedSize = size;
+            int next = hashed ? nextOccupied(0) : 0;
+            int current;
+            boolean canRemove;
+
+            private int nextOccupied(int i)
+            {
+                while (i < iterElements.length && iterElements[i] == 0)
+                {
+                    i++;
+                }
+                return i;
+            }
+
+            public boolean hasNext()
+            {
+                return zeroPending || next < iterElements.length;
+            }
+
+            public Integer next()
+            {
+                if (expectedSize != size)
+                {
+                    throw new ConcurrentModificationException();
+                }
+                canRemove = true;
+                if (zeroPending)
+                {
+                    zeroPending = false;
+                    current = 0;
+                    return current;
+                }
+                if (next >= iterElements.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                current = iterElements[next];
+                next = hashed ? nextOccupied(next + 1) : next + 1;
+                return current;
+            }
+
+            public void remove()
+            {
+                if (!canRemove)
+                {
+                    throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                }
+                if (expectedSize != size)
+                {
+                    throw new ConcurrentModificationException();
+                }
+                if (!copied)
+                {
+                    iterElements = iterElements.clone();
+                    copied = true;
+                }
+                CompactIntSet.this.remove(current);
+                expectedSize--;
+                canRemove = false;
+            }
+        };
+    }
+}
@@ -34,4 +34,5 @@ public class CompactLinkedSet<E> extends CompactSet<E>
      * @return new empty Set instance to use when size() becomes {@literal >} compactSize().
      */
     protected Set<E> getNewSet() { return new LinkedHashSet<>(compactSize() + 1); }
+    protected boolean useCopyIterator() { return false; }
 }
@@ -2,6 +2,11 @@ package com.cedarsoftware.util;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Many developers do not realize than they may have thousands or hundreds of thousands of Maps in memory, often
@@ -30,6 +35,15 @@ import java.util.*;
  *     // When size() {@literal >} than this amount, the Map returned from getNewMap() is used to store elements.
  *     protected int compactSize() { return 80; }
  *
+ *     // Return true to hash-index the 2 to compactSize() entries for O(1) get/put/containsKey/remove.
+ *     protected boolean useHashIndex() { return false; }
+ *
+ *     // Return true to keep the 2 to compactSize() entries sorted by key (binary search, sorted iteration).
+ *     protected boolean useSortedArray() { return false; }
+ *
+ *     // Return true to share one immutable key table among instances built with the same keys (store values only).
+ *     protected boolean useSharedKeys() { return false; }
+ *
  * </pre>
  * **Empty**
  * This class only has one (1) member variable of type `Object`.  If there are no entries in it, then the value of that
@@ -50,6 +64,35 @@ import java.util.*;
  * addition, it is dynamically shrunk until the size becomes 1, and then it switches to a single Map Entry or a single
  * value.<p></p>
  *
+ * If useHashIndex() returns true, the 2 thru compactSize() entries are instead held in a small hash table: keys,
+ * values, and each key's cached hashCode are kept in insertion order in parallel arrays, and an open-addressed int[]
+ * index (no more than half full) maps a key's hash to its position.  Lookups probe the index rather than scanning
+ * every key, which matters when compactSize() is large and keys are expensive to compare.  Iteration order is still
+ * insertion order.<p></p>
+ *
+ * If useSortedArray() returns true, the Object[] is kept ordered by key (String.CASE_INSENSITIVE_ORDER for String
+ * keys when isCaseInsensitive() is true, otherwise the keys' natural ordering), so get() and containsKey() are binary
+ * searches and iteration is in key order.  Keys must then be mutually Comparable, following the same rules as TreeMap.
+ * Pair this with a SortedMap from getNewMap() (see CompactSortedMap) to keep the order after size() exceeds
+ * compactSize().<p></p>
+ *
+ * If useSharedKeys() returns true, instances of the same class that are given the same keys in the same order
+ * (records from one schema, for example) share a single immutable key table - a "shape" - and each instance stores
+ * only a values array.  Adding a key moves the instance to the shape for the extended key sequence, which is created
+ * once and reused by every other instance that follows the same path.  Removing any key other than the most recently
+ * added one moves the instance to a private Object[] of alternating keys and values.<p></p>
+ *
+ * **Frozen**
+ * freeze() makes the map read-only.  Its entries are moved to key and value arrays (in iteration order) indexed by a
+ * minimal perfect hash, so get() and containsKey() are constant time, regardless of size(), and do not allocate.
+ * Any later modification throws UnsupportedOperationException.<p></p>
+ *
+ * **Iteration without allocation**
+ * forEach(BiConsumer) reads the keys and values straight out of whichever storage form is current, creating no
+ * Map.Entry or Iterator objects.  For explicit loops (or when entries need to be removed or updated in place), a
+ * Cursor walks the same storage and can be reset() onto another CompactMap, so a single Cursor can traverse any
+ * number of maps.<p></p>
+ *
  * **size() greater than compactSize()**
  * In this case, the single member variable points to a `Map` instance (supplied by `getNewMap()` API that user supplied.)
  * This allows `CompactMap` to work with nearly all `Map` types.<p></p>
@@ -76,6 +119,7 @@ import java.util.*;
 public class CompactMap<K, V> implements Map<K, V>
 {
     private static final String EMPTY_MAP = "_︿_ψ_☼";
+    private static final String FROZEN_MESSAGE = "This CompactMap is frozen (read-only)";
     private Object val = EMPTY_MAP;
 
     public CompactMap()
@@ -84,6 +128,10 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             throw new IllegalStateException("compactSize() must be >= 2");
         }
+        if ((useHashIndex() ? 1 : 0) + (useSortedArray() ? 1 : 0) + (useSharedKeys() ? 1 : 0) > 1)
+        {
+            throw new IllegalStateException("Only one of useHashIndex(), useSortedArray(), and useSharedKeys() can be true");
+        }
     }
 
     public CompactMap(Map<K, V> other)
@@ -98,6 +146,18 @@ public class CompactMap<K, V> implements Map<K, V>
         {   // 2 to compactSize
             return ((Object[])val).length >> 1;
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            return ((CompactHashTable)val).size;
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            return ((ShapedEntries)val).values.length;
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            return ((FrozenEntries)val).keys.length;
+        }
         else if (val instanceof Map)
         {   // > compactSize
             return ((Map<K, V>)val).size();
@@ -113,7 +173,7 @@ public class CompactMap<K, V> implements Map<K, V>
 
     public boolean isEmpty()
     {
-        return val == EMPTY_MAP;
+        return val == EMPTY_MAP || (val instanceof FrozenEntries && ((FrozenEntries)val).keys.length == 0);
     }
 
     private boolean compareKeys(Object key, Object aKey)
@@ -124,7 +184,7 @@ public class CompactMap<K, V> implements Map<K, V>
             {
                 if (isCaseInsensitive())
                 {
-                    return ((String)aKey).equalsIgnoreCase((String) key);
+                    return StringUtilities.equalsIgnoreCase((String) aKey, (String) key);
                 }
                 else
                 {
@@ -142,6 +202,10 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
+            if (useSortedArray())
+            {
+                return sortedIndexOf(entries, key) >= 0;
+            }
             final int len = entries.length;
             for (int i=0; i < len; i += 2)
             {
@@ -152,6 +216,18 @@ public class CompactMap<K, V> implements Map<K, V>
             }
             return false;
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            return hashIndexOf((CompactHashTable) val, key, computeKeyHashCode(key)) >= 0;
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            return shapeIndexOf(((ShapedEntries) val).shape, key, computeKeyHashCode(key)) >= 0;
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            return frozenIndexOf((FrozenEntries) val, key) >= 0;
+        }
         else if (val instanceof Map)
         {   // > compactSize
             Map<K, V> map = (Map<K, V>) val;
@@ -182,6 +258,40 @@ public class CompactMap<K, V> implements Map<K, V>
             }
             return false;
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            CompactHashTable table = (CompactHashTable) val;
+            for (int i=0; i < table.size; i++)
+            {
+                if (Objects.equals(value, table.values[i]))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            for (Object aValue : ((ShapedEntries) val).values)
+            {
+                if (Objects.equals(value, aValue))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            for (Object aValue : ((FrozenEntries) val).values)
+            {
+                if (Objects.equals(value, aValue))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
         else if (val instanceof Map)
         {   // > compactSize
             Map<K, V> map = (Map<K, V>) val;
@@ -201,6 +311,11 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
+            if (useSortedArray())
+            {
+                int idx = sortedIndexOf(entries, key);
+                return idx < 0 ? null : (V) entries[idx + 1];
+            }
             final int len = entries.length;
             for (int i=0; i < len; i += 2)
             {
@@ -212,6 +327,24 @@ public class CompactMap<K, V> implements Map<K, V>
             }
             return null;
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            CompactHashTable table = (CompactHashTable) val;
+            int pos = hashIndexOf(table, key, computeKeyHashCode(key));
+            return pos < 0 ? null : (V) table.values[pos];
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            ShapedEntries shaped = (ShapedEntries) val;
+            int pos = shapeIndexOf(shaped.shape, key, computeKeyHashCode(key));
+            return pos < 0 ? null : (V) shaped.values[pos];
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            FrozenEntries frozen = (FrozenEntries) val;
+            int pos = frozenIndexOf(frozen, key);
+            return pos < 0 ? null : (V) frozen.values[pos];
+        }
         else if (val instanceof Map)
         {   // > compactSize
             Map<K, V> map = (Map<K, V>) val;
@@ -232,25 +365,41 @@ public class CompactMap<K, V> implements Map<K, V>
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
             final int len = entries.length;
-            for (int i=0; i < len; i += 2)
+            int insertAt = len;
+            if (useSortedArray())
             {
-                Object aKey = entries[i];
-                Object aValue = entries[i + 1];
-                if (compareKeys(key, aKey))
+                int idx = sortedIndexOf(entries, key);
+                if (idx >= 0)
                 {   // Overwrite case
-                    entries[i + 1] = value;
+                    Object aValue = entries[idx + 1];
+                    entries[idx + 1] = value;
                     return (V) aValue;
                 }
+                insertAt = -(idx + 1);
+            }
+            else
+            {
+                for (int i=0; i < len; i += 2)
+                {
+                    Object aKey = entries[i];
+                    Object aValue = entries[i + 1];
+                    if (compareKeys(key, aKey))
+                    {   // Overwrite case
+                        entries[i + 1] = value;
+                        return (V) aValue;
+                    }
+                }
             }
 
             // Not present in Object[]
             if (size() < compactSize())
             {   // Grow array
                 Object[] expand = new Object[len + 2];
-                System.arraycopy(entries, 0, expand, 0, len);
-                // Place new entry at end
-                expand[expand.length - 2] = key;
-                expand[expand.length - 1] = value;
+                System.arraycopy(entries, 0, expand, 0, insertAt);
+                System.arraycopy(entries, insertAt, expand, insertAt + 2, len - insertAt);
+                // Place new entry at end (or at its sorted position)
+                expand[insertAt] = key;
+                expand[insertAt + 1] = value;
                 val = expand;
             }
             else
@@ -270,6 +419,90 @@ public class CompactMap<K, V> implements Map<K, V>
             }
             return null;
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            CompactHashTable table = (CompactHashTable) val;
+            final int hash = computeKeyHashCode(key);
+            int pos = hashIndexOf(table, key, hash);
+            if (pos >= 0)
+            {   // Overwrite case
+                Object aValue = table.values[pos];
+                table.values[pos] = value;
+                return (V) aValue;
+            }
+
+            if (table.size < compactSize())
+            {
+                table.add(key, value, hash, compactSize());
+            }
+            else
+            {   // Switch to Map - copy entries
+                Map<K, V> map = getNewMap(size() + 1);
+                for (int i=0; i < table.size; i++)
+                {
+                    map.put((K) table.keys[i], (V) table.values[i]);
+                }
+                // Place new entry
+                map.put(key, value);
+                val = map;
+            }
+            return null;
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            ShapedEntries shaped = (ShapedEntries) val;
+            final int hash = computeKeyHashCode(key);
+            int pos = shapeIndexOf(shaped.shape, key, hash);
+            if (pos >= 0)
+            {   // Overwrite case
+                Object aValue = shaped.values[pos];
+                shaped.values[pos] = value;
+                return (V) aValue;
+            }
+
+            final Object[] keys = shaped.shape.keys;
+            final Object[] values = shaped.values;
+            final int size = values.length;
+            if (size < compactSize())
+            {
+                KeyShape next = shaped.shape.next(this, key, hash);
+                if (next != null)
+                {   // Move to the (shared) shape that has the new key appended
+                    Object[] expand = Arrays.copyOf(values, size + 1);
+                    expand[size] = value;
+                    shaped.shape = next;
+                    shaped.values = expand;
+                }
+                else
+                {   // No more shapes allowed - switch to private Object[]
+                    Object[] entries = new Object[(size + 1) * 2];
+                    for (int i=0; i < size; i++)
+                    {
+                        entries[i * 2] = keys[i];
+                        entries[i * 2 + 1] = values[i];
+                    }
+                    entries[size * 2] = key;
+                    entries[size * 2 + 1] = value;
+                    val = entries;
+                }
+            }
+            else
+            {   // Switch to Map - copy entries
+                Map<K, V> map = getNewMap(size + 1);
+                for (int i=0; i < size; i++)
+                {
+                    map.put((K) keys[i], (V) values[i]);
+                }
+                // Place new entry
+                map.put(key, value);
+                val = map;
+            }
+            return null;
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
         else if (val instanceof Map)
         {   // > compactSize
             Map<K, V> map = (Map<K, V>) val;
@@ -309,7 +542,7 @@ public class CompactMap<K, V> implements Map<K, V>
             entries[1] = getLogicalSingleValue();
             entries[2] = key;
             entries[3] = value;
-            val = entries;
+            val = newCompactStorage(entries);
             return null;
         }
     }
@@ -319,41 +552,103 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
-            if (size() == 2)
+            final int len = entries.length;
+            int i;
+            if (useSortedArray())
+            {
+                i = sortedIndexOf(entries, key);
+            }
+            else
+            {
+                for (i = 0; i < len && !compareKeys(key, entries[i]); i += 2) { }
+            }
+            if (i < 0 || i >= len)
+            {
+                return null;    // not found
+            }
+
+            Object prior = entries[i + 1];
+            if (len == 4)
             {   // When at 2 entries, we must drop back to CompactMapEntry or val (use clear() and put() to get us there).
-                if (compareKeys(key, entries[0]))
-                {
-                    Object prevValue = entries[1];
-                    clear();
-                    put((K)entries[2], (V)entries[3]);
-                    return (V) prevValue;
-                }
-                else if (compareKeys(key, entries[2]))
-                {
-                    Object prevValue = entries[3];
-                    clear();
-                    put((K)entries[0], (V)entries[1]);
-                    return (V) prevValue;
-                }
+                int other = 2 - i;
+                clear();
+                put((K)entries[other], (V)entries[other + 1]);
             }
             else
+            {   // Found, must shrink
+                Object[] shrink = new Object[len - 2];
+                System.arraycopy(entries, 0, shrink, 0, i);
+                System.arraycopy(entries, i + 2, shrink, i, shrink.length - i);
+                val = shrink;
+            }
+            return (V) prior;
+        }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            CompactHashTable table = (CompactHashTable) val;
+            int pos = hashIndexOf(table, key, computeKeyHashCode(key));
+            if (pos < 0)
             {
-                final int len = entries.length;
-                for (int i = 0; i < len; i += 2)
+                return null;    // not found
+            }
+            Object prior = table.values[pos];
+            if (table.size == 2)
+            {   // When at 2 entries, we must drop back to CompactMapEntry or val (use clear() and put() to get us there).
+                int other = 1 - pos;
+                Object otherKey = table.keys[other];
+                Object otherValue = table.values[other];
+                clear();
+                put((K) otherKey, (V) otherValue);
+            }
+            else
+            {
+                table.removeAt(pos);
+            }
+            return (V) prior;
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            ShapedEntries shaped = (ShapedEntries) val;
+            int pos = shapeIndexOf(shaped.shape, key, computeKeyHashCode(key));
+            if (pos < 0)
+            {
+                return null;    // not found
+            }
+            final Object[] keys = shaped.shape.keys;
+            final Object[] values = shaped.values;
+            final int size = values.length;
+            Object prior = values[pos];
+            if (size == 2)
+            {   // When at 2 entries, we must drop back to CompactMapEntry or val (use clear() and put() to get us there).
+                int other = 1 - pos;
+                clear();
+                put((K) keys[other], (V) values[other]);
+            }
+            else if (pos == size - 1)
+            {   // Most recently added key - step back to the parent shape
+                shaped.shape = shaped.shape.parent;
+                shaped.values = Arrays.copyOf(values, pos);
+            }
+            else
+            {   // Key sequence no longer matches a shape - switch to private Object[]
+                Object[] entries = new Object[(size - 1) * 2];
+                int idx = 0;
+                for (int i=0; i < size; i++)
                 {
-                    Object aKey = entries[i];
-                    if (compareKeys(key, aKey))
-                    {   // Found, must shrink
-                        Object prior = entries[i + 1];
-                        Object[] shrink = new Object[len - 2];
-                        System.arraycopy(entries, 0, shrink, 0, i);
-                        System.arraycopy(entries, i + 2, shrink, i, shrink.length - i);
-                        val = shrink;
-                        return (V) prior;
+                    if (i != pos)
+                    {
+                        entries[idx] = keys[i];
+                        entries[idx + 1] = values[i];
+                        idx += 2;
                     }
                 }
+                val = entries;
             }
-            return null;    // not found
+            return (V) prior;
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
         }
         else if (val instanceof Map)
         {   // > compactSize
@@ -376,7 +671,7 @@ public class CompactMap<K, V> implements Map<K, V>
                     entries[idx + 1] = entry.getValue();
                     idx += 2;
                 }
-                val = entries;
+                val = newCompactStorage(entries);
             }
             return save;
         }
@@ -404,6 +699,10 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             return;
         }
+        if (val instanceof FrozenEntries)
+        {
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
         int mSize = map.size();
         if (val instanceof Map || mSize > compactSize())
         {
@@ -424,6 +723,10 @@ public class CompactMap<K, V> implements Map<K, V>
 
     public void clear()
     {
+        if (val instanceof FrozenEntries)
+        {
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
         val = EMPTY_MAP;
     }
 
@@ -442,6 +745,40 @@ public class CompactMap<K, V> implements Map<K, V>
             }
             return h;
         }
+        else if (val instanceof CompactHashTable)
+        {
+            int h = 0;
+            CompactHashTable table = (CompactHashTable) val;
+            for (int i=0; i < table.size; i++)
+            {
+                h += computeKeyHashCode(table.keys[i]) ^ computeValueHashCode(table.values[i]);
+            }
+            return h;
+        }
+        else if (val instanceof ShapedEntries)
+        {
+            int h = 0;
+            ShapedEntries shaped = (ShapedEntries) val;
+            final int[] hashes = shaped.shape.hashes;
+            final Object[] values = shaped.values;
+            for (int i=0; i < values.length; i++)
+            {
+                h += hashes[i] ^ computeValueHashCode(values[i]);
+            }
+            return h;
+        }
+        else if (val instanceof FrozenEntries)
+        {
+            int h = 0;
+            FrozenEntries frozen = (FrozenEntries) val;
+            final int[] hashes = frozen.hashes;
+            final Object[] values = frozen.values;
+            for (int i=0; i < values.length; i++)
+            {
+                h += hashes[i] ^ computeValueHashCode(values[i]);
+            }
+            return h;
+        }
         else if (val instanceof Map)
         {
             return val.hashCode();
@@ -462,7 +799,7 @@ public class CompactMap<K, V> implements Map<K, V>
         Map<?, ?> other = (Map<?, ?>) obj;
         if (size() != other.size()) return false;
 
-        if (val instanceof Object[])
+        if (val instanceof Object[] || val instanceof CompactHashTable || val instanceof ShapedEntries || val instanceof FrozenEntries)
         {   // 2 to compactSize
             for (Entry<?, ?> entry : other.entrySet())
             {
@@ -534,7 +871,7 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             public Iterator<K> iterator()
             {
-                if (useCopyIterator())
+                if (useCopyIterator() && !isFrozen())
                 {
                     return new CopyKeyIterator();
                 }
@@ -571,6 +908,7 @@ public class CompactMap<K, V> implements Map<K, V>
                 {   // Match outer
                     protected boolean isCaseInsensitive() { return CompactMap.this.isCaseInsensitive(); }
                     protected int compactSize() { return CompactMap.this.compactSize(); }
+                    protected boolean useHashIndex() { return CompactMap.this.useHashIndex(); }
                     protected Map<K, V> getNewMap() { return CompactMap.this.getNewMap(c.size()); }
                 };
                 for (Object o : c)
@@ -592,7 +930,7 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             public Iterator<V> iterator()
             {
-                if (useCopyIterator())
+                if (useCopyIterator() && !isFrozen())
                 {
                     return new CopyValueIterator();
                 }
@@ -613,7 +951,7 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             public Iterator<Entry<K, V>> iterator()
             {
-                if (useCopyIterator())
+                if (useCopyIterator() && !isFrozen())
                 {
                     return new CopyEntryIterator();
                 }
@@ -677,6 +1015,7 @@ public class CompactMap<K, V> implements Map<K, V>
                 {   // Match outer
                     protected boolean isCaseInsensitive() { return CompactMap.this.isCaseInsensitive(); }
                     protected int compactSize() { return CompactMap.this.compactSize(); }
+                    protected boolean useHashIndex() { return CompactMap.this.useHashIndex(); }
                     protected Map<K, V> getNewMap() { return CompactMap.this.getNewMap(c.size()); }
                 };
                 for (Object o : c)
@@ -715,6 +1054,106 @@ public class CompactMap<K, V> implements Map<K, V>
         };
     }
 
+    /**
+     * Performs the given action on each entry, in iteration order, reading the keys and values directly from the
+     * internal storage.  No Map.Entry or Iterator is created unless size() {@literal >} compactSize() (then the Map
+     * from getNewMap() does the work) or useCopyIterator() is true.
+     * @throws ConcurrentModificationException if the action changes the size of this map.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action)
+    {
+        Objects.requireNonNull(action);
+        final Object local = val;
+        if (local instanceof Map)
+        {   // > compactSize
+            ((Map<K, V>) local).forEach(action);
+            return;
+        }
+        final int size = size();
+        if (size > 1 && !(local instanceof FrozenEntries) && !iteratesInStorageOrder())
+        {   // Iteration order comes from the SortedMap returned by getNewMap()
+            getCopy().forEach(action);
+            return;
+        }
+
+        if (local instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) local;
+            for (int i=0; i < entries.length; i += 2)
+            {
+                action.accept((K) entries[i], (V) entries[i + 1]);
+            }
+        }
+        else if (local instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed)
+            CompactHashTable table = (CompactHashTable) local;
+            for (int i=0; i < size; i++)
+            {
+                action.accept((K) table.keys[i], (V) table.values[i]);
+            }
+        }
+        else if (local instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys)
+            ShapedEntries shaped = (ShapedEntries) local;
+            Object[] keys = shaped.shape.keys;
+            for (int i=0; i < size; i++)
+            {
+                action.accept((K) keys[i], (V) shaped.values[i]);
+            }
+        }
+        else if (local instanceof FrozenEntries)
+        {   // frozen
+            FrozenEntries frozen = (FrozenEntries) local;
+            for (int i=0; i < size; i++)
+            {
+                action.accept((K) frozen.keys[i], (V) frozen.values[i]);
+            }
+        }
+        else if (size == 1)
+        {
+            action.accept(getLogicalSingleKey(), getLogicalSingleValue());
+        }
+
+        if (size() != size)
+        {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Performs the given action on each entry, in iteration order.  A single Map.Entry (a Cursor) is passed for every
+     * entry, positioned on each in turn - copy the key and value out of it if they must be kept after the action
+     * returns.  Entry.setValue() writes through to this map.
+     */
+    public void forEachEntry(Consumer<? super Entry<K, V>> action)
+    {
+        Objects.requireNonNull(action);
+        Cursor<K, V> cursor = cursor();
+        while (cursor.next())
+        {
+            action.accept(cursor);
+        }
+    }
+
+    /**
+     * @return a Cursor positioned before the first entry of this map.  See Cursor.reset() to reuse it on other maps.
+     */
+    public Cursor<K, V> cursor()
+    {
+        return new Cursor<K, V>().reset(this);
+    }
+
+    /**
+     * @return true if forEach() and Cursor can visit the entries in the order they are stored, false if they must
+     * visit a copy made in the Map from getNewMap() (useCopyIterator() is true).  The default asks
+     * useCopyIterator(), which builds a Map from getNewMap() on every call, except for CompactMap itself.  Subclasses
+     * that know the answer should override this, so that forEach() and Cursor allocate nothing.
+     */
+    protected boolean iteratesInStorageOrder()
+    {
+        return getClass() == CompactMap.class || !useCopyIterator();
+    }
+
     private Map<K, V> getCopy()
     {
         Map<K, V> copy = getNewMap(size());   // Use their Map (TreeMap, HashMap, LinkedHashMap, etc.)
@@ -727,6 +1166,30 @@ public class CompactMap<K, V> implements Map<K, V>
                 copy.put((K)entries[i], (V)entries[i + 1]);
             }
         }
+        else if (val instanceof CompactHashTable)
+        {   // 2 to compactSize (hash indexed) - copy parallel arrays into Map
+            CompactHashTable table = (CompactHashTable) CompactMap.this.val;
+            for (int i=0; i < table.size; i++)
+            {
+                copy.put((K)table.keys[i], (V)table.values[i]);
+            }
+        }
+        else if (val instanceof ShapedEntries)
+        {   // 2 to compactSize (shared keys) - copy shape keys and values into Map
+            ShapedEntries shaped = (ShapedEntries) CompactMap.this.val;
+            for (int i=0; i < shaped.values.length; i++)
+            {
+                copy.put((K)shaped.shape.keys[i], (V)shaped.values[i]);
+            }
+        }
+        else if (val instanceof FrozenEntries)
+        {   // frozen - copy key and value arrays into Map
+            FrozenEntries frozen = (FrozenEntries) CompactMap.this.val;
+            for (int i=0; i < frozen.keys.length; i++)
+            {
+                copy.put((K)frozen.keys[i], (V)frozen.values[i]);
+            }
+        }
         else if (val instanceof Map)
         {   // > compactSize - putAll to copy
             copy.putAll((Map<K, V>)CompactMap.this.val);
@@ -751,6 +1214,44 @@ public class CompactMap<K, V> implements Map<K, V>
         remove(currentEntry.getKey());
     }
 
+    /**
+     * Make this map read-only.  The entries, in this map's iteration order, are moved into parallel key and value
+     * arrays indexed by a minimal perfect hash over the key hash codes, so get() and containsKey() cost one index
+     * lookup and one key compare, with no allocation, whatever the size.  Iteration order is unchanged.  Afterwards,
+     * put(), remove(), putAll(), clear(), Iterator.remove(), and Map.Entry.setValue() throw
+     * UnsupportedOperationException.
+     * @return this map, now frozen
+     */
+    public CompactMap<K, V> freeze()
+    {
+        if (val instanceof FrozenEntries)
+        {
+            return this;
+        }
+        final int size = size();
+        Object[] keys = new Object[size];
+        Object[] values = new Object[size];
+        int[] hashes = new int[size];
+        int i = 0;
+        for (Entry<K, V> entry : entrySet())
+        {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            hashes[i] = computeKeyHashCode(keys[i]);
+            i++;
+        }
+        val = new FrozenEntries(keys, values, hashes);
+        return this;
+    }
+
+    /**
+     * @return true if freeze() has been called on this map.
+     */
+    public boolean isFrozen()
+    {
+        return val instanceof FrozenEntries;
+    }
+
     public Map<K, V> minus(Object removeMe)
     {
         throw new UnsupportedOperationException("Unsupported operation [minus] or [-] between Maps.  Use removeAll() or retainAll() instead.");
@@ -768,7 +1269,7 @@ public class CompactMap<K, V> implements Map<K, V>
 
     protected LogicalValueType getLogicalValueType()
     {
-        if (val instanceof Object[])
+        if (val instanceof Object[] || val instanceof CompactHashTable || val instanceof ShapedEntries || val instanceof FrozenEntries)
         {   // 2 to compactSize
             return LogicalValueType.ARRAY;
         }
@@ -807,8 +1308,8 @@ public class CompactMap<K, V> implements Map<K, V>
         public V setValue(V value)
         {
             V save = this.getValue();
-            super.setValue(value);
             CompactMap.this.put(getKey(), value);    // "Transmit" (write-thru) to underlying Map.
+            super.setValue(value);
             return save;
         }
 
@@ -827,6 +1328,371 @@ public class CompactMap<K, V> implements Map<K, V>
         }
     }
 
+    /**
+     * Ordering used when useSortedArray() is true: String.CASE_INSENSITIVE_ORDER between Strings when
+     * isCaseInsensitive() is true, otherwise natural ordering (same as a TreeMap with no Comparator).
+     */
+    private int compareSortKeys(Object key, Object aKey)
+    {
+        if (key instanceof String && aKey instanceof String && isCaseInsensitive())
+        {
+            return StringUtilities.compareIgnoreCase((String) key, (String) aKey);
+        }
+        return ((Comparable<Object>) key).compareTo(aKey);
+    }
+
+    /**
+     * Binary search of the sorted Object[] of alternating keys and values.
+     * @return index of the key (even position) if found, otherwise -(insertion index) - 1.
+     */
+    private int sortedIndexOf(Object[] entries, Object key)
+    {
+        int low = 0;
+        int high = (entries.length >> 1) - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compareSortKeys(entries[mid << 1], key);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid << 1;
+            }
+        }
+        return -((low << 1) + 1);
+    }
+
+    /**
+     * Insertion sort of the Object[] of alternating keys and values, by key.  The array is at most compactSize()
+     * entries and is usually already in order (copied from a SortedMap), which insertion sort handles in O(n).
+     */
+    private void sortEntries(Object[] entries)
+    {
+        final int len = entries.length;
+        for (int i=2; i < len; i += 2)
+        {
+            Object key = entries[i];
+            Object value = entries[i + 1];
+            int j = i - 2;
+            while (j >= 0 && compareSortKeys(entries[j], key) > 0)
+            {
+                entries[j + 2] = entries[j];
+                entries[j + 3] = entries[j + 1];
+                j -= 2;
+            }
+            entries[j + 2] = key;
+            entries[j + 3] = value;
+        }
+    }
+
+    /**
+     * Storage for 2 thru compactSize() entries when useHashIndex() returns true.  Keys, values, and cached key
+     * hashes are held densely, in insertion order, in parallel arrays.  The open-addressed (linear probing) index
+     * holds entry position + 1 (0 marks an empty slot) and is sized to a power of 2 at least twice the capacity of
+     * the parallel arrays, so it is never more than half full.
+     */
+    private static final class CompactHashTable
+    {
+        private Object[] keys;
+        private Object[] values;
+        private int[] hashes;
+        private int[] index;
+        private int size;
+
+        private CompactHashTable(int capacity)
+        {
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            hashes = new int[capacity];
+            index = new int[indexSizeFor(capacity)];
+        }
+
+        private static int indexSizeFor(int capacity)
+        {
+            return Integer.highestOneBit((capacity << 1) - 1) << 1;
+        }
+
+        private static int spread(int hash)
+        {
+            return hash ^ (hash >>> 16);
+        }
+
+        private void add(Object key, Object value, int hash, int maxCapacity)
+        {
+            if (size == keys.length)
+            {   // Grow by doubling (never beyond compactSize()), re-indexing from the cached hashes.
+                int capacity = Math.min(size << 1, maxCapacity);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                index = new int[indexSizeFor(capacity)];
+                for (int i=0; i < size; i++)
+                {
+                    indexPosition(i);
+                }
+            }
+            keys[size] = key;
+            values[size] = value;
+            hashes[size] = hash;
+            indexPosition(size++);
+        }
+
+        private void removeAt(int pos)
+        {
+            final int tail = size - pos - 1;
+            System.arraycopy(keys, pos + 1, keys, pos, tail);
+            System.arraycopy(values, pos + 1, values, pos, tail);
+            System.arraycopy(hashes, pos + 1, hashes, pos, tail);
+            size--;
+            keys[size] = null;
+            values[size] = null;
+
+            // Positions after 'pos' shifted down by one - rebuild the (small) index from the cached hashes.
+            Arrays.fill(index, 0);
+            for (int i=0; i < size; i++)
+            {
+                indexPosition(i);
+            }
+        }
+
+        private void indexPosition(int pos)
+        {
+            indexPosition(index, hashes[pos], pos);
+        }
+
+        private static void indexPosition(int[] index, int hash, int pos)
+        {
+            final int mask = index.length - 1;
+            int i = spread(hash) & mask;
+            while (index[i] != 0)
+            {
+                i = (i + 1) & mask;
+            }
+            index[i] = pos + 1;
+        }
+    }
+
+    /**
+     * Build a CompactHashTable from alternating key, value entries ([0] = key, [1] = value, ...).
+     */
+    private CompactHashTable newHashTable(Object[] entries)
+    {
+        final int len = entries.length;
+        CompactHashTable table = new CompactHashTable(Math.max(len >> 1, Math.min(4, compactSize())));
+        for (int i=0; i < len; i += 2)
+        {
+            table.add(entries[i], entries[i + 1], computeKeyHashCode(entries[i]), compactSize());
+        }
+        return table;
+    }
+
+    /**
+     * @return position of the key within the CompactHashTable's parallel arrays, or -1 if not present.
+     */
+    private int hashIndexOf(CompactHashTable table, Object key, int hash)
+    {
+        return probe(table.index, table.keys, table.hashes, key, hash);
+    }
+
+    /**
+     * @return position of the key within the KeyShape's keys, or -1 if not present.
+     */
+    private int shapeIndexOf(KeyShape shape, Object key, int hash)
+    {
+        return probe(shape.index, shape.keys, shape.hashes, key, hash);
+    }
+
+    private int probe(int[] index, Object[] keys, int[] hashes, Object key, int hash)
+    {
+        final int mask = index.length - 1;
+        int i = CompactHashTable.spread(hash) & mask;
+        int slot;
+        while ((slot = index[i]) != 0)
+        {
+            int pos = slot - 1;
+            if (hashes[pos] == hash && compareKeys(key, keys[pos]))
+            {
+                return pos;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Immutable key table shared by all instances of one CompactMap class that were given the same keys in the same
+     * order (useSharedKeys() true).  Shapes form a tree per class: the root has no keys, and appending a key to a
+     * shape leads to the child shape holding that key, created on first use and reused after that.  Each shape owns
+     * an index laid out like CompactHashTable's, built once when the shape is created.  The number of shapes per
+     * class is capped, so maps whose keys are data (ids, for example) cannot grow the tree without bound.
+     */
+    private static final class KeyShape
+    {
+        private static final int MAX_SHAPES = 1024;
+        private static final Object NULL_KEY = new Object();
+        private final KeyShape parent;
+        private final Object[] keys;
+        private final int[] hashes;
+        private final int[] index;
+        private final AtomicInteger shapeCount;    // shared by every shape under the same root
+        private final ConcurrentMap<Object, KeyShape> transitions = new ConcurrentHashMap<>();
+
+        private KeyShape()
+        {
+            parent = null;
+            keys = new Object[0];
+            hashes = new int[0];
+            index = new int[0];
+            shapeCount = new AtomicInteger();
+        }
+
+        private KeyShape(KeyShape parent, Object key, int hash)
+        {
+            this.parent = parent;
+            final int size = parent.keys.length;
+            keys = Arrays.copyOf(parent.keys, size + 1);
+            keys[size] = key;
+            hashes = Arrays.copyOf(parent.hashes, size + 1);
+            hashes[size] = hash;
+            index = new int[CompactHashTable.indexSizeFor(size + 1)];
+            for (int i=0; i <= size; i++)
+            {
+                CompactHashTable.indexPosition(index, hashes[i], i);
+            }
+            shapeCount = parent.shapeCount;
+        }
+
+        /**
+         * @return the shape with 'key' appended to this shape's keys, or null if the shape limit has been reached, or
+         * if the existing shape does not match 'map' (its key comparison or hash for 'key' differs, so 'map' overrides
+         * computeKeyHashCode() or isCaseInsensitive() per instance).  Keys are matched exactly (equals()), so keys
+         * differing only in case get their own shapes and keep their case.
+         */
+        private KeyShape next(CompactMap<?, ?> map, Object key, int hash)
+        {
+            final Object transitionKey = key == null ? NULL_KEY : key;
+            KeyShape child = transitions.get(transitionKey);
+            if (child != null)
+            {
+                final int last = keys.length;
+                return child.hashes[last] == hash && map.compareKeys(key, child.keys[last]) ? child : null;
+            }
+            if (shapeCount.incrementAndGet() > MAX_SHAPES)
+            {
+                shapeCount.decrementAndGet();
+                return null;
+            }
+            child = new KeyShape(this, key, hash);
+            KeyShape existing = transitions.putIfAbsent(transitionKey, child);
+            if (existing != null)
+            {   // Another thread created it first
+                shapeCount.decrementAndGet();
+                return existing;
+            }
+            return child;
+        }
+    }
+
+    /**
+     * Root shapes per class: [0] for case-sensitive instances, [1] for case-insensitive ones, whose key hashes differ.
+     */
+    private static final ClassValue<KeyShape[]> rootShapes = new ClassValue<KeyShape[]>()
+    {
+        protected KeyShape[] computeValue(Class<?> type)
+        {
+            return new KeyShape[] { new KeyShape(), new KeyShape() };
+        }
+    };
+
+    /**
+     * Storage for 2 thru compactSize() entries when useSharedKeys() returns true: the shared KeyShape plus this
+     * instance's values, positionally aligned with the shape's keys.
+     */
+    private static final class ShapedEntries
+    {
+        private KeyShape shape;
+        private Object[] values;
+
+        private ShapedEntries(KeyShape shape, Object[] values)
+        {
+            this.shape = shape;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Storage for a frozen (read-only) map of any size: keys, values, and cached key hashes in parallel arrays, in
+     * the order the map iterated when it was frozen, plus a minimal perfect hash from key hash to position.
+     */
+    private static final class FrozenEntries
+    {
+        private final Object[] keys;
+        private final Object[] values;
+        private final int[] hashes;
+        private final PerfectHashIndex index;
+
+        private FrozenEntries(Object[] keys, Object[] values, int[] hashes)
+        {
+            this.keys = keys;
+            this.values = values;
+            this.hashes = hashes;
+            index = new PerfectHashIndex(hashes);
+        }
+    }
+
+    /**
+     * @return position of the key within the FrozenEntries' parallel arrays, or -1 if not present.
+     */
+    private int frozenIndexOf(FrozenEntries frozen, Object key)
+    {
+        final PerfectHashIndex index = frozen.index;
+        int pos = index.first(computeKeyHashCode(key));
+        while (pos >= 0 && !compareKeys(key, frozen.keys[pos]))
+        {   // Only walks when distinct keys have identical hash codes
+            pos = index.next(pos);
+        }
+        return pos;
+    }
+
+    /**
+     * @return storage for 2 thru compactSize() entries, given as alternating keys and values, in the layout selected
+     * by useSortedArray(), useHashIndex(), or useSharedKeys() (the Object[] itself by default).
+     */
+    private Object newCompactStorage(Object[] entries)
+    {
+        if (useSortedArray())
+        {   // getNewMap() may not be a SortedMap
+            sortEntries(entries);
+        }
+        else if (useHashIndex())
+        {
+            return newHashTable(entries);
+        }
+        else if (useSharedKeys())
+        {
+            final int len = entries.length;
+            KeyShape shape = rootShapes.get(getClass())[isCaseInsensitive() ? 1 : 0];
+            Object[] values = new Object[len >> 1];
+            for (int i=0; i < len && shape != null; i += 2)
+            {
+                shape = shape.next(this, entries[i], computeKeyHashCode(entries[i]));
+                values[i >> 1] = entries[i + 1];
+            }
+            if (shape != null)
+            {
+                return new ShapedEntries(shape, values);
+            }
+        }
+        return entries;
+    }
+
     protected int computeKeyHashCode(Object key)
     {
         if (key instanceof String)
@@ -912,6 +1778,32 @@ public class CompactMap<K, V> implements Map<K, V>
     protected boolean isCaseInsensitive() { return false; }
     protected int compactSize() { return 80; }
 
+    /**
+     * @return true to hash-index the entries held when size() is 2 thru compactSize(), so that get(), put(),
+     * containsKey(), and remove() probe by hash instead of scanning every key.  This costs an int[] index plus a
+     * cached hash per entry.  Default is false (plain Object[] of alternating keys and values).
+     */
+    protected boolean useHashIndex() { return false; }
+
+    /**
+     * @return true to keep the entries held when size() is 2 thru compactSize() ordered by key, so that get() and
+     * containsKey() are binary searches and iteration is in key order.  Keys must be mutually Comparable (String keys
+     * are ordered by String.CASE_INSENSITIVE_ORDER when isCaseInsensitive() is true).  Return a SortedMap from
+     * getNewMap() to keep the order once size() exceeds compactSize().  Default is false (insertion order).
+     */
+    protected boolean useSortedArray() { return false; }
+
+    /**
+     * @return true to have instances of this class that hold the same keys, added in the same order, share one
+     * immutable key table and store only their values when size() is 2 thru compactSize().  This roughly halves the
+     * per-instance footprint of record-like maps that all carry the same fields.  Removing a key (other than the last
+     * one added) gives the instance its own private Object[] again.  Shapes are shared by class and by
+     * isCaseInsensitive(), so computeKeyHashCode() must give the same hash for a key in every instance of the class
+     * with the same isCaseInsensitive().  An instance whose hash does not match a shared shape keeps its own Object[]
+     * instead.  Default is false.
+     */
+    protected boolean useSharedKeys() { return false; }
+
     protected boolean useCopyIterator() {
         Map<K, V> newMap = getNewMap();
         if (newMap instanceof CaseInsensitiveMap) {
@@ -920,6 +1812,248 @@ public class CompactMap<K, V> implements Map<K, V>
         return newMap instanceof SortedMap;
     }
 
+    /**
+     * Allocation-free, reusable cursor over the entries of a CompactMap.  It reads keys and values directly from the
+     * map's internal storage (Object[], hash-indexed arrays, shared-key values, or frozen arrays), so advancing
+     * creates nothing.  One Cursor can be reset() onto any number of maps:<pre>
+     *
+     *     CompactMap.Cursor{@literal <}String, Object{@literal >} cursor = new CompactMap.Cursor{@literal <}{@literal >}();
+     *     for (CompactMap{@literal <}String, Object{@literal >} map : maps)
+     *     {
+     *         cursor.reset(map);
+     *         while (cursor.next())
+     *         {
+     *             process(cursor.getKey(), cursor.getValue());
+     *         }
+     *     }
+     * </pre>
+     * When size() {@literal >} compactSize() the cursor walks the Map from getNewMap() with its Iterator, and when
+     * useCopyIterator() is true it walks a copy (both allocate).  The Cursor is itself the current Map.Entry;
+     * setValue() and remove() write through to the map.  Like the map's iterators, it fails fast with
+     * ConcurrentModificationException if the map's size is changed other than through remove().
+     */
+    public static final class Cursor<K, V> implements Map.Entry<K, V>
+    {
+        private CompactMap<K, V> map;
+        private Object[] keys;
+        private Object[] values;
+        private int step;           // 2 for alternating keys and values, 1 for parallel arrays
+        private Iterator<Entry<K, V>> mapIterator;
+        private Entry<K, V> mapEntry;
+        private boolean copied;     // walking a copy (useCopyIterator())
+        private int index;
+        private int expectedSize;
+        private boolean positioned;
+        private K key;
+        private V value;
+
+        /**
+         * Position this cursor before the first entry of 'map'.
+         * @return this cursor
+         */
+        public Cursor<K, V> reset(CompactMap<K, V> map)
+        {
+            this.map = map;
+            index = -1;
+            positioned = false;
+            key = null;
+            value = null;
+            mapEntry = null;
+            expectedSize = map.size();
+            Object val = map.val;
+            copied = expectedSize > 1 && !(val instanceof Map) && !(val instanceof FrozenEntries) && !map.iteratesInStorageOrder();
+            if (copied)
+            {
+                keys = values = null;
+                mapIterator = map.getCopy().entrySet().iterator();
+            }
+            else
+            {
+                bind();
+            }
+            return this;
+        }
+
+        /**
+         * Point at the map's current storage.  Empty and single entry maps have neither arrays nor an iterator.
+         */
+        private void bind()
+        {
+            final Object val = map.val;
+            keys = values = null;
+            mapIterator = null;
+            step = 1;
+            if (val instanceof Object[])
+            {   // 2 to compactSize
+                keys = values = (Object[]) val;
+                step = 2;
+            }
+            else if (val instanceof CompactHashTable)
+            {   // 2 to compactSize (hash indexed)
+                keys = ((CompactHashTable) val).keys;
+                values = ((CompactHashTable) val).values;
+            }
+            else if (val instanceof ShapedEntries)
+            {   // 2 to compactSize (shared keys)
+                keys = ((ShapedEntries) val).shape.keys;
+                values = ((ShapedEntries) val).values;
+            }
+            else if (val instanceof FrozenEntries)
+            {   // frozen
+                keys = ((FrozenEntries) val).keys;
+                values = ((FrozenEntries) val).values;
+            }
+            else if (val instanceof Map)
+            {   // > compactSize
+                mapIterator = ((Map<K, V>) val).entrySet().iterator();
+            }
+        }
+
+        /**
+         * Advance to the next entry.
+         * @return true if the cursor is now on an entry, false if there are no more entries.
+         */
+        public boolean next()
+        {
+            if (map == null)
+            {
+                throw new IllegalStateException("Cursor has not been reset() onto a CompactMap");
+            }
+            if (map.size() != expectedSize)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (mapIterator != null)
+            {
+                positioned = mapIterator.hasNext();
+                if (positioned)
+                {
+                    mapEntry = mapIterator.next();
+                    key = mapEntry.getKey();
+                    value = mapEntry.getValue();
+                    index++;
+                }
+                return positioned;
+            }
+            if (index + 1 >= expectedSize)
+            {
+                index = expectedSize;
+                positioned = false;
+                return false;
+            }
+            index++;
+            if (keys == null)
+            {   // size == 1
+                key = map.getLogicalSingleKey();
+                value = map.getLogicalSingleValue();
+            }
+            else if (step == 2)
+            {
+                key = (K) keys[index << 1];
+                value = (V) values[(index << 1) + 1];
+            }
+            else
+            {
+                key = (K) keys[index];
+                value = (V) values[index];
+            }
+            positioned = true;
+            return true;
+        }
+
+        public K getKey()
+        {
+            checkPositioned();
+            return key;
+        }
+
+        public V getValue()
+        {
+            checkPositioned();
+            return value;
+        }
+
+        /**
+         * Replace the value of the current entry in the map.
+         * @return the prior value
+         */
+        public V setValue(V value)
+        {
+            checkPositioned();
+            V save = this.value;
+            if (mapIterator != null && !copied)
+            {
+                mapEntry.setValue(value);
+            }
+            else
+            {
+                map.put(key, value);
+                if (!copied)
+                {   // Storage may have been replaced (shared keys, single entry)
+                    bind();
+                }
+            }
+            this.value = value;
+            return save;
+        }
+
+        /**
+         * Remove the current entry from the map.  The cursor stays valid; next() moves to the entry that followed it.
+         */
+        public void remove()
+        {
+            if (!positioned)
+            {
+                throw new IllegalStateException("remove() called on a Cursor before calling next()");
+            }
+            if (map.size() != expectedSize)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (copied)
+            {
+                map.remove(key);
+            }
+            else if (mapIterator != null && expectedSize - 1 > map.compactSize())
+            {
+                mapIterator.remove();
+            }
+            else
+            {   // Storage changes form (or shifts down) - re-read it
+                map.remove(key);
+                bind();
+            }
+            index--;    // step back over the removed slot
+            expectedSize--;
+            positioned = false;
+        }
+
+        private void checkPositioned()
+        {
+            if (!positioned)
+            {
+                throw new IllegalStateException("Cursor is not positioned on an entry - call next()");
+            }
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry)) { return false; }
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode()
+        {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+
     /* ------------------------------------------------------------ */
     // iterators
 
@@ -957,9 +2091,18 @@ public class CompactMap<K, V> implements Map<K, V>
             if (mapIterator!=null) {
                 current = mapIterator.next();
             }
+            else if (val instanceof FrozenEntries) {
+                current = ((FrozenEntries)val).keys[index];
+            }
             else if (expectedSize==1) {
                 current = getLogicalSingleKey();
             }
+            else if (val instanceof CompactHashTable) {
+                current = ((CompactHashTable)val).keys[index];
+            }
+            else if (val instanceof ShapedEntries) {
+                current = ((ShapedEntries)val).shape.keys[index];
+            }
             else {
                 current = ((Object [])val)[index*2];
             }
@@ -1010,8 +2153,14 @@ public class CompactMap<K, V> implements Map<K, V>
             advance();
             if (mapIterator != null) {
                 return ((Map.Entry<K, V>) current).getValue();
+            } else if (val instanceof FrozenEntries) {
+                return (V) ((FrozenEntries) val).values[index];
             } else if (expectedSize == 1) {
                 return getLogicalSingleValue();
+            } else if (val instanceof CompactHashTable) {
+                return (V) ((CompactHashTable) val).values[index];
+            } else if (val instanceof ShapedEntries) {
+                return (V) ((ShapedEntries) val).values[index];
             } else {
                 return (V) ((Object[]) val)[(index*2) + 1];
             }
@@ -1024,6 +2173,9 @@ public class CompactMap<K, V> implements Map<K, V>
             advance();
             if (mapIterator != null) {
                 return (Map.Entry<K, V>) current;
+            } else if (val instanceof FrozenEntries) {
+                FrozenEntries frozen = (FrozenEntries) val;
+                return new CompactMapEntry((K)frozen.keys[index], (V)frozen.values[index]);
             } else if (expectedSize == 1) {
                 if (val instanceof CompactMap.CompactMapEntry) {
                     return (CompactMapEntry) val;
@@ -1031,6 +2183,12 @@ public class CompactMap<K, V> implements Map<K, V>
                 else {
                     return new CompactMapEntry(getLogicalSingleKey(), getLogicalSingleValue());
                 }
+            } else if (val instanceof CompactHashTable) {
+                CompactHashTable table = (CompactHashTable) val;
+                return new CompactMapEntry((K)table.keys[index], (V)table.values[index]);
+            } else if (val instanceof ShapedEntries) {
+                ShapedEntries shaped = (ShapedEntries) val;
+                return new CompactMapEntry((K)shaped.shape.keys[index], (V)shaped.values[index]);
             } else {
                 Object [] objs = (Object []) val;
                 return new CompactMapEntry((K)objs[(index*2)],(V)objs[(index*2) + 1]);
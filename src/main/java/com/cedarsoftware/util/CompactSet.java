@@ -2,6 +2,7 @@ package com.cedarsoftware.util;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Often, memory may be consumed by lots of Maps or Sets (HashSet uses a HashMap to implement it's set).  HashMaps
@@ -26,6 +27,10 @@ import java.util.*;
  *     // When size() {@literal >} than this amount, the Set returned from getNewSet() is used to store elements.
  *     protected int compactSize() { return 80; }
  * </pre>
+ * freeze() makes the Set read-only, with its items indexed by a minimal perfect hash so that contains() is constant
+ * time and allocation free.<p></p>
+ * forEach(Consumer) and Cursor read the items straight out of the Object[] without copying them into a Set first, as
+ * iterator() does.  A Cursor can be reset() onto another CompactSet, so one Cursor can traverse any number of sets.
  * This Set supports holding a null element.
  *
  * @author John DeRegnaucourt (jdereg@gmail.com)
@@ -48,6 +53,7 @@ public class CompactSet<E> extends AbstractSet<E>
 {
     private static final String EMPTY_SET = "_︿_ψ_☼";
     private static final String NO_ENTRY = EMPTY_SET;
+    private static final String FROZEN_MESSAGE = "This CompactSet is frozen (read-only)";
     private Object val = EMPTY_SET;
 
     public CompactSet()
@@ -74,13 +80,17 @@ public class CompactSet<E> extends AbstractSet<E>
         {   // > compactSize
             return ((Set)val).size();
         }
+        else if (val instanceof FrozenItems)
+        {   // frozen
+            return ((FrozenItems)val).items.length;
+        }
         // empty
         return 0;
     }
 
     public boolean isEmpty()
     {
-        return val == EMPTY_SET;
+        return val == EMPTY_SET || (val instanceof FrozenItems && ((FrozenItems)val).items.length == 0);
     }
 
     private boolean compareItems(Object item, Object anItem)
@@ -91,7 +101,7 @@ public class CompactSet<E> extends AbstractSet<E>
             {
                 if (isCaseInsensitive())
                 {
-                    return ((String)anItem).equalsIgnoreCase((String) item);
+                    return StringUtilities.equalsIgnoreCase((String) anItem, (String) item);
                 }
                 else
                 {
@@ -124,6 +134,20 @@ public class CompactSet<E> extends AbstractSet<E>
             Set<E> set = (Set<E>) val;
             return set.contains(item);
         }
+        else if (val instanceof FrozenItems)
+        {   // frozen
+            FrozenItems frozen = (FrozenItems) val;
+            int pos = frozen.index.first(computeItemHashCode(item));
+            while (pos >= 0)
+            {
+                if (compareItems(item, frozen.items[pos]))
+                {
+                    return true;
+                }
+                pos = frozen.index.next(pos);
+            }
+            return false;
+        }
         // empty
         return false;
     }
@@ -131,6 +155,10 @@ public class CompactSet<E> extends AbstractSet<E>
     @SuppressWarnings("unchecked")
     public Iterator<E> iterator()
     {
+        if (val instanceof FrozenItems)
+        {   // Read-only, so iterate the array itself (no copy)
+            return (Iterator<E>) Collections.unmodifiableList(Arrays.asList(((FrozenItems) val).items)).iterator();
+        }
         return new Iterator<E>()
         {
             final Iterator<E> iter = getCopy().iterator();
@@ -156,6 +184,233 @@ public class CompactSet<E> extends AbstractSet<E>
         };
     }
 
+    /**
+     * Performs the given action on each item, reading the items directly from the internal Object[] (no copy, no
+     * Iterator).  When size() {@literal >} compactSize() the Set from getNewSet() does the work, and when
+     * useCopyIterator() is true the items are visited in the order of a copy.
+     * @throws ConcurrentModificationException if the action changes the size of this set.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action)
+    {
+        Objects.requireNonNull(action);
+        final Object local = val;
+        if (local instanceof Set)
+        {   // > compactSize
+            ((Set<E>) local).forEach(action);
+            return;
+        }
+        final Object[] items;
+        if (local instanceof Object[])
+        {   // 1 to compactSize
+            items = (Object[]) local;
+            if (items.length > 1 && !iteratesInStorageOrder())
+            {   // Iteration order comes from the SortedSet returned by getNewSet()
+                getCopy().forEach(action);
+                return;
+            }
+        }
+        else if (local instanceof FrozenItems)
+        {   // frozen
+            items = ((FrozenItems) local).items;
+        }
+        else
+        {   // empty
+            return;
+        }
+
+        final int size = items.length;
+        for (int i=0; i < size; i++)
+        {
+            action.accept((E) items[i]);
+        }
+        if (size() != size)
+        {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * @return a Cursor positioned before the first item of this set.  See Cursor.reset() to reuse it on other sets.
+     */
+    public Cursor<E> cursor()
+    {
+        return new Cursor<E>().reset(this);
+    }
+
+    /**
+     * @return true when iteration must follow the order of a copy made in the Set from getNewSet() (a SortedSet),
+     * rather than the order items are stored in.  Used by forEach() and Cursor.
+     */
+    protected boolean useCopyIterator()
+    {
+        return getNewSet() instanceof SortedSet;
+    }
+
+    /**
+     * @return true if forEach() and Cursor can visit the items in the order they are stored, false if they must
+     * visit a copy made in the Set from getNewSet() (useCopyIterator() is true).  The default asks
+     * useCopyIterator(), which builds a Set from getNewSet() on every call, except for CompactSet itself.  Subclasses
+     * that know the answer should override this, so that forEach() and Cursor allocate nothing.
+     */
+    protected boolean iteratesInStorageOrder()
+    {
+        return getClass() == CompactSet.class || !useCopyIterator();
+    }
+
+    /**
+     * Allocation-free, reusable cursor over the items of a CompactSet.  It reads the items directly from the set's
+     * Object[] (or frozen array), so advancing creates nothing.  One Cursor can be reset() onto any number of sets:<pre>
+     *
+     *     CompactSet.Cursor{@literal <}String{@literal >} cursor = new CompactSet.Cursor{@literal <}{@literal >}();
+     *     for (CompactSet{@literal <}String{@literal >} set : sets)
+     *     {
+     *         cursor.reset(set);
+     *         while (cursor.next())
+     *         {
+     *             process(cursor.get());
+     *         }
+     *     }
+     * </pre>
+     * When size() {@literal >} compactSize() the cursor walks the Set from getNewSet() with its Iterator, and when
+     * useCopyIterator() is true it walks a copy (both allocate).  remove() writes through to the set.  It fails fast
+     * with ConcurrentModificationException if the set's size is changed other than through remove().
+     */
+    public static final class Cursor<E>
+    {
+        private CompactSet<E> set;
+        private Object[] items;
+        private Iterator<E> setIterator;
+        private boolean copied;     // walking a copy (useCopyIterator())
+        private int index;
+        private int expectedSize;
+        private boolean positioned;
+        private E item;
+
+        /**
+         * Position this cursor before the first item of 'set'.
+         * @return this cursor
+         */
+        public Cursor<E> reset(CompactSet<E> set)
+        {
+            this.set = set;
+            index = -1;
+            positioned = false;
+            item = null;
+            expectedSize = set.size();
+            copied = set.val instanceof Object[] && expectedSize > 1 && !set.iteratesInStorageOrder();
+            if (copied)
+            {
+                items = null;
+                setIterator = set.getCopy().iterator();
+            }
+            else
+            {
+                bind();
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void bind()
+        {
+            final Object val = set.val;
+            items = null;
+            setIterator = null;
+            if (val instanceof Object[])
+            {   // 1 to compactSize
+                items = (Object[]) val;
+            }
+            else if (val instanceof FrozenItems)
+            {   // frozen
+                items = ((FrozenItems) val).items;
+            }
+            else if (val instanceof Set)
+            {   // > compactSize
+                setIterator = ((Set<E>) val).iterator();
+            }
+        }
+
+        /**
+         * Advance to the next item.
+         * @return true if the cursor is now on an item, false if there are no more items.
+         */
+        @SuppressWarnings("unchecked")
+        public boolean next()
+        {
+            if (set == null)
+            {
+                throw new IllegalStateException("Cursor has not been reset() onto a CompactSet");
+            }
+            if (set.size() != expectedSize)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (setIterator != null)
+            {
+                positioned = setIterator.hasNext();
+                if (positioned)
+                {
+                    item = setIterator.next();
+                    index++;
+                }
+                return positioned;
+            }
+            if (index + 1 >= expectedSize)
+            {
+                index = expectedSize;
+                positioned = false;
+                return false;
+            }
+            item = (E) items[++index];
+            positioned = true;
+            return true;
+        }
+
+        /**
+         * @return the item the cursor is on.
+         */
+        public E get()
+        {
+            if (!positioned)
+            {
+                throw new IllegalStateException("Cursor is not positioned on an item - call next()");
+            }
+            return item;
+        }
+
+        /**
+         * Remove the current item from the set.  The cursor stays valid; next() moves to the item that followed it.
+         */
+        public void remove()
+        {
+            if (!positioned)
+            {
+                throw new IllegalStateException("remove() called on a Cursor before calling next()");
+            }
+            if (set.size() != expectedSize)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (copied)
+            {
+                set.remove(item);
+            }
+            else if (setIterator != null && expectedSize - 1 > set.compactSize())
+            {
+                setIterator.remove();
+            }
+            else
+            {   // Storage changes form (or shifts down) - re-read it
+                set.remove(item);
+                bind();
+            }
+            index--;    // step back over the removed slot
+            expectedSize--;
+            positioned = false;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private Set<E> getCopy()
     {
@@ -216,6 +471,10 @@ public class CompactSet<E> extends AbstractSet<E>
             Set<E> set = (Set<E>) val;
             return set.add(item);
         }
+        else if (val instanceof FrozenItems)
+        {   // frozen
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
         // empty
         val = new Object[] { item };
         return true;
@@ -271,16 +530,80 @@ public class CompactSet<E> extends AbstractSet<E>
             }
             return removed;
         }
-        
+        else if (val instanceof FrozenItems)
+        {   // frozen
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
+
         // empty
         return false;
     }
 
     public void clear()
     {
+        if (val instanceof FrozenItems)
+        {
+            throw new UnsupportedOperationException(FROZEN_MESSAGE);
+        }
         val = EMPTY_SET;
     }
 
+    /**
+     * Make this Set read-only.  The items, in this Set's iteration order, are moved into an array indexed by a
+     * minimal perfect hash over their hash codes, so contains() costs one index lookup and one compare, with no
+     * allocation, whatever the size.  Afterwards, add(), remove(), clear(), and Iterator.remove() throw
+     * UnsupportedOperationException.
+     * @return this Set, now frozen
+     */
+    public CompactSet<E> freeze()
+    {
+        if (val instanceof FrozenItems)
+        {
+            return this;
+        }
+        Object[] items = toArray();
+        int[] hashes = new int[items.length];
+        for (int i=0; i < items.length; i++)
+        {
+            hashes[i] = computeItemHashCode(items[i]);
+        }
+        val = new FrozenItems(items, hashes);
+        return this;
+    }
+
+    /**
+     * @return true if freeze() has been called on this Set.
+     */
+    public boolean isFrozen()
+    {
+        return val instanceof FrozenItems;
+    }
+
+    private int computeItemHashCode(Object item)
+    {
+        if (item instanceof String && isCaseInsensitive())
+        {
+            return StringUtilities.hashCodeIgnoreCase((String) item);
+        }
+        return item == null ? 0 : item.hashCode();
+    }
+
+    /**
+     * Storage for a frozen (read-only) Set: the items in iteration order, plus a minimal perfect hash from item
+     * hash code to position.
+     */
+    private static final class FrozenItems
+    {
+        private final Object[] items;
+        private final PerfectHashIndex index;
+
+        private FrozenItems(Object[] items, int[] hashes)
+        {
+            this.items = items;
+            index = new PerfectHashIndex(hashes);
+        }
+    }
+
     /**
      * @return new empty Set instance to use when size() becomes {@literal >} compactSize().
      */
@@ -0,0 +1,35 @@
+package com.cedarsoftware.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CompactMap whose entries are always kept in key order.  When size() is 2 thru compactSize(), the keys are held
+ * sorted in the single Object[], so get() and containsKey() are binary searches and iteration walks the array
+ * directly (no copy).  When the Map has more than 'compactSize()' elements in it, the 'delegate' Map is a TreeMap.
+ * Keys must be mutually Comparable and non-null, the same as TreeMap.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactSortedMap<K, V> extends CompactMap<K, V>
+{
+    public CompactSortedMap() { }
+    public CompactSortedMap(Map<K ,V> other) { super(other); }
+    protected Map<K, V> getNewMap() { return new TreeMap<>(); }
+    protected boolean useSortedArray() { return true; }
+    protected boolean useCopyIterator() { return false; }
+}
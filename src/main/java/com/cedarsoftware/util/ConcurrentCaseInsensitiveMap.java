@@ -0,0 +1,340 @@
+package com.cedarsoftware.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.cedarsoftware.util.CaseInsensitiveMap.CaseInsensitiveString;
+import com.cedarsoftware.util.CaseInsensitiveMap.LookupKey;
+
+/**
+ * Thread-safe Map whose String keys are matched case-insensitively.  Unlike a CaseInsensitiveMap wrapped around a
+ * ConcurrentHashMap, every ConcurrentMap operation here is atomic with case-insensitive key semantics, so callers do
+ * not need an external lock:<p></p>
+ *
+ * String keys are stored as CaseInsensitiveStrings in a ConcurrentHashMap, so reads are lock-free and writes lock
+ * only the bin of the key being written.  putIfAbsent(), remove(key, value), replace(), compute(),
+ * computeIfAbsent(), computeIfPresent() and merge() are each a single ConcurrentHashMap operation on the wrapped key.
+ * "Key" and "KEY" therefore contend for (and are serialized on) the same entry.  get() and containsKey() with a
+ * String key probe with a reusable per-thread lookup key and allocate nothing.<p></p>
+ *
+ * Keys retain the case they were first put with.  keySet(), entrySet() and values() are live views whose iterators
+ * are weakly consistent, as with ConcurrentHashMap: they never throw ConcurrentModificationException and reflect the
+ * map as of their creation, or later.  putAll() is atomic per entry, not as a whole.  Non-String keys use their own
+ * equals() and hashCode().  Null keys and null values are not permitted.  The functions passed to compute*() and
+ * merge() must not modify this map.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentCaseInsensitiveMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
+{
+    private final ConcurrentHashMap<Object, V> map;
+
+    public ConcurrentCaseInsensitiveMap()
+    {
+        map = new ConcurrentHashMap<>();
+    }
+
+    public ConcurrentCaseInsensitiveMap(int initialCapacity)
+    {
+        map = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    public ConcurrentCaseInsensitiveMap(Map<? extends K, ? extends V> other)
+    {
+        this(Math.max(16, other.size() * 2));
+        putAll(other);
+    }
+
+    /**
+     * @return the key as stored: a String is wrapped in a CaseInsensitiveString.
+     */
+    private static Object wrap(Object key)
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("ConcurrentCaseInsensitiveMap does not permit null keys");
+        }
+        return key instanceof String ? CaseInsensitiveString.of((String) key) : key;
+    }
+
+    /**
+     * @return the key as handed out: a stored CaseInsensitiveString becomes its original String.
+     */
+    private static <K> K unwrap(Object key)
+    {
+        return (K) (key instanceof CaseInsensitiveString ? key.toString() : key);
+    }
+
+    public int size()
+    {
+        return map.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return map.isEmpty();
+    }
+
+    public V get(Object key)
+    {
+        if (key instanceof String)
+        {
+            LookupKey lookup = LookupKey.forString((String) key);
+            try
+            {
+                return map.get(lookup);
+            }
+            finally
+            {
+                lookup.release();
+            }
+        }
+        return key == null ? null : map.get(key);
+    }
+
+    public boolean containsKey(Object key)
+    {
+        if (key instanceof String)
+        {
+            LookupKey lookup = LookupKey.forString((String) key);
+            try
+            {
+                return map.containsKey(lookup);
+            }
+            finally
+            {
+                lookup.release();
+            }
+        }
+        return key != null && map.containsKey(key);
+    }
+
+    public boolean containsValue(Object value)
+    {
+        return value != null && map.containsValue(value);
+    }
+
+    public V put(K key, V value)
+    {
+        return map.put(wrap(key), value);
+    }
+
+    public V putIfAbsent(K key, V value)
+    {
+        return map.putIfAbsent(wrap(key), value);
+    }
+
+    /**
+     * Each entry is put atomically; other threads may observe some of the entries before the rest.
+     */
+    public void putAll(Map<? extends K, ? extends V> m)
+    {
+        for (Entry<? extends K, ? extends V> entry : m.entrySet())
+        {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public V remove(Object key)
+    {
+        return key == null ? null : map.remove(wrap(key));
+    }
+
+    public boolean remove(Object key, Object value)
+    {
+        return key != null && value != null && map.remove(wrap(key), value);
+    }
+
+    public boolean replace(K key, V oldValue, V newValue)
+    {
+        return map.replace(wrap(key), oldValue, newValue);
+    }
+
+    public V replace(K key, V value)
+    {
+        return map.replace(wrap(key), value);
+    }
+
+    /**
+     * The function is called with the key passed in here (not the case of the stored key).
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction)
+    {
+        return map.computeIfAbsent(wrap(key), k -> mappingFunction.apply(key));
+    }
+
+    /**
+     * The function is called with the key passed in here (not the case of the stored key).
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+    {
+        return map.computeIfPresent(wrap(key), (k, v) -> remappingFunction.apply(key, v));
+    }
+
+    /**
+     * The function is called with the key passed in here (not the case of the stored key).
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+    {
+        return map.compute(wrap(key), (k, v) -> remappingFunction.apply(key, v));
+    }
+
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+    {
+        return map.merge(wrap(key), value, remappingFunction);
+    }
+
+    public V getOrDefault(Object key, V defaultValue)
+    {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action)
+    {
+        map.forEach((k, v) -> action.accept(unwrap(k), v));
+    }
+
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function)
+    {
+        map.replaceAll((k, v) -> function.apply(unwrap(k), v));
+    }
+
+    public void clear()
+    {
+        map.clear();
+    }
+
+    /**
+     * Hash code matching CaseInsensitiveMap: String keys contribute their case-insensitive hash.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (Entry<Object, V> entry : map.entrySet())
+        {
+            h += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+        }
+        return h;
+    }
+
+    public Collection<V> values()
+    {
+        return map.values();
+    }
+
+    public Set<K> keySet()
+    {
+        return new AbstractSet<K>()
+        {
+            public Iterator<K> iterator()
+            {
+                final Iterator<Object> iter = map.keySet().iterator();
+                return new Iterator<K>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public K next() { return unwrap(iter.next()); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return map.size(); }
+            public boolean isEmpty() { return map.isEmpty(); }
+            public void clear() { map.clear(); }
+            public boolean contains(Object o) { return containsKey(o); }
+
+            public boolean remove(Object o)
+            {
+                return o != null && map.remove(wrap(o)) != null;
+            }
+        };
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator()
+            {
+                final Iterator<Entry<Object, V>> iter = map.entrySet().iterator();
+                return new Iterator<Entry<K, V>>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+
+                    public Entry<K, V> next()
+                    {
+                        Entry<Object, V> entry = iter.next();
+                        return new WriteThroughEntry(unwrap(entry.getKey()), entry.getValue());
+                    }
+
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return map.size(); }
+            public boolean isEmpty() { return map.isEmpty(); }
+            public void clear() { map.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                return ConcurrentCaseInsensitiveMap.this.remove(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    private final class WriteThroughEntry extends SimpleEntry<K, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(K key, V value)
+        {
+            super(key, value);
+        }
+
+        public V setValue(V value)
+        {
+            ConcurrentCaseInsensitiveMap.this.put(getKey(), value);    // "Transmit" (write-thru) to underlying Map.
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.cedarsoftware.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe CompactMap for small maps that are shared across threads and read far more often than written.
+ * Like CompactMap, it holds a single member variable that changes form as the Map grows, but here that member is
+ * volatile and every form is safe to read without locking:<p></p>
+ *
+ * **0 thru compactSize() entries**
+ * An Object[] of alternating keys and values ([0] = key, [1] = value, ...) that is never modified once published.
+ * Every write builds a new array (copy-on-write) and publishes it with a single volatile store, so readers scan
+ * whichever complete array they observed.  get() and containsKey() take no lock and allocate nothing.<p></p>
+ *
+ * **size() greater than compactSize()**
+ * The ConcurrentMap returned by getNewMap() (ConcurrentHashMap by default), whose own reads are lock-free.<p></p>
+ *
+ * Writes (put, remove, the ConcurrentMap atomic operations, and the switches between the array and the Map) are
+ * serialized on this instance's monitor.  Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException and reflect the map as of their creation, or later.  As with ConcurrentHashMap,
+ * null keys and null values are not permitted.<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // ConcurrentMap you would like it to use when size() {@literal >} compactSize().  ConcurrentHashMap is default
+ *     protected ConcurrentMap{@literal <}K, V{@literal >} getNewMap();
+ *
+ *     // If you want case insensitivity, return true (and a case-insensitive ConcurrentMap from getNewMap())
+ *     protected boolean isCaseInsensitive() { return false; }
+ *
+ *     // When size() {@literal >} than this amount, the Map returned from getNewMap() is used to store entries.
+ *     protected int compactSize() { return 80; }
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentCompactMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
+{
+    private static final Object[] EMPTY_ENTRIES = new Object[0];
+    private volatile Object val = EMPTY_ENTRIES;
+
+    public ConcurrentCompactMap()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public ConcurrentCompactMap(Map<? extends K, ? extends V> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    /**
+     * @return new empty ConcurrentMap instance to use when size() becomes {@literal >} compactSize().
+     */
+    protected ConcurrentMap<K, V> getNewMap() { return new ConcurrentHashMap<>(compactSize() + 1); }
+    protected boolean isCaseInsensitive() { return false; }
+    protected int compactSize() { return 80; }
+
+    public int size()
+    {
+        Object local = val;
+        if (local instanceof Object[])
+        {
+            return ((Object[]) local).length >> 1;
+        }
+        return ((Map<K, V>) local).size();
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    private boolean compareKeys(Object key, Object aKey)
+    {
+        if (key instanceof String)
+        {
+            if (aKey instanceof String)
+            {
+                if (isCaseInsensitive())
+                {
+                    return StringUtilities.equalsIgnoreCase((String) aKey, (String) key);
+                }
+                else
+                {
+                    return aKey.equals(key);
+                }
+            }
+            return false;
+        }
+
+        return Objects.equals(key, aKey);
+    }
+
+    /**
+     * @return index of the key within the alternating key/value array, or -1 if not present.
+     */
+    private int indexOf(Object[] entries, Object key)
+    {
+        final int len = entries.length;
+        for (int i=0; i < len; i += 2)
+        {
+            if (compareKeys(key, entries[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        Object local = val;
+        if (local instanceof Object[])
+        {
+            return indexOf((Object[]) local, key) >= 0;
+        }
+        return key != null && ((Map<K, V>) local).containsKey(key);
+    }
+
+    public boolean containsValue(Object value)
+    {
+        Object local = val;
+        if (local instanceof Object[])
+        {
+            Object[] entries = (Object[]) local;
+            for (int i=1; i < entries.length; i += 2)
+            {
+                if (Objects.equals(value, entries[i]))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return value != null && ((Map<K, V>) local).containsValue(value);
+    }
+
+    public V get(Object key)
+    {
+        Object local = val;
+        if (local instanceof Object[])
+        {
+            Object[] entries = (Object[]) local;
+            int i = indexOf(entries, key);
+            return i < 0 ? null : (V) entries[i + 1];
+        }
+        return key == null ? null : ((Map<K, V>) local).get(key);
+    }
+
+    public V put(K key, V value)
+    {
+        checkNotNull(key, value);
+        synchronized (this)
+        {
+            return putLocked(key, value, false);
+        }
+    }
+
+    public V putIfAbsent(K key, V value)
+    {
+        checkNotNull(key, value);
+        synchronized (this)
+        {
+            return putLocked(key, value, true);
+        }
+    }
+
+    public void putAll(Map<? extends K, ? extends V> map)
+    {
+        synchronized (this)
+        {
+            for (Entry<? extends K, ? extends V> entry : map.entrySet())
+            {
+                checkNotNull(entry.getKey(), entry.getValue());
+                putLocked(entry.getKey(), entry.getValue(), false);
+            }
+        }
+    }
+
+    public V remove(Object key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        synchronized (this)
+        {
+            return removeLocked(key, null);
+        }
+    }
+
+    public boolean remove(Object key, Object value)
+    {
+        if (key == null || value == null)
+        {
+            return false;
+        }
+        synchronized (this)
+        {
+            return removeLocked(key, value) != null;
+        }
+    }
+
+    public boolean replace(K key, V oldValue, V newValue)
+    {
+        checkNotNull(key, newValue);
+        if (oldValue == null)
+        {
+            throw new NullPointerException();
+        }
+        synchronized (this)
+        {
+            V current = get(key);
+            if (current == null || !current.equals(oldValue))
+            {
+                return false;
+            }
+            putLocked(key, newValue, false);
+            return true;
+        }
+    }
+
+    public V replace(K key, V value)
+    {
+        checkNotNull(key, value);
+        synchronized (this)
+        {
+            return containsKey(key) ? putLocked(key, value, false) : null;
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (this)
+        {
+            val = EMPTY_ENTRIES;
+        }
+    }
+
+    private static void checkNotNull(Object key, Object value)
+    {
+        if (key == null || value == null)
+        {
+            throw new NullPointerException("ConcurrentCompactMap does not permit null keys or values");
+        }
+    }
+
+    /**
+     * Caller holds the monitor.
+     */
+    private V putLocked(K key, V value, boolean onlyIfAbsent)
+    {
+        Object local = val;
+        if (local instanceof Map)
+        {   // > compactSize
+            Map<K, V> map = (Map<K, V>) local;
+            return onlyIfAbsent ? map.putIfAbsent(key, value) : map.put(key, value);
+        }
+
+        Object[] entries = (Object[]) local;
+        final int len = entries.length;
+        int i = indexOf(entries, key);
+        if (i >= 0)
+        {   // Overwrite case - publish a copy, never modify the array readers may be scanning
+            V prior = (V) entries[i + 1];
+            if (!onlyIfAbsent)
+            {
+                Object[] copy = entries.clone();
+                copy[i + 1] = value;
+                val = copy;
+            }
+            return prior;
+        }
+
+        if ((len >> 1) < compactSize())
+        {   // Grow array, new entry at end
+            Object[] expand = Arrays.copyOf(entries, len + 2);
+            expand[len] = key;
+            expand[len + 1] = value;
+            val = expand;
+        }
+        else
+        {   // Switch to Map - fill it completely before publishing it
+            ConcurrentMap<K, V> map = getNewMap();
+            for (int j=0; j < len; j += 2)
+            {
+                map.put((K) entries[j], (V) entries[j + 1]);
+            }
+            map.put(key, value);
+            val = map;
+        }
+        return null;
+    }
+
+    /**
+     * Caller holds the monitor.
+     * @param expected value the key must map to (equals()) for the removal to happen, or null for any value.
+     */
+    private V removeLocked(Object key, Object expected)
+    {
+        Object local = val;
+        if (local instanceof Map)
+        {   // > compactSize
+            Map<K, V> map = (Map<K, V>) local;
+            V prior;
+            if (expected == null)
+            {
+                prior = map.remove(key);
+            }
+            else
+            {
+                prior = map.remove(key, expected) ? (V) expected : null;
+            }
+
+            if (prior != null && map.size() <= compactSize())
+            {   // Down to compactSize, switch back to an array (the Map is no longer written once replaced)
+                Object[] entries = new Object[map.size() * 2];
+                int idx = 0;
+                for (Entry<K, V> entry : map.entrySet())
+                {
+                    if (idx == entries.length)
+                    {
+                        break;
+                    }
+                    entries[idx] = entry.getKey();
+                    entries[idx + 1] = entry.getValue();
+                    idx += 2;
+                }
+                val = entries;
+            }
+            return prior;
+        }
+
+        Object[] entries = (Object[]) local;
+        int i = indexOf(entries, key);
+        if (i < 0)
+        {
+            return null;
+        }
+        V prior = (V) entries[i + 1];
+        if (expected != null && !expected.equals(prior))
+        {
+            return null;
+        }
+        Object[] shrink = new Object[entries.length - 2];
+        System.arraycopy(entries, 0, shrink, 0, i);
+        System.arraycopy(entries, i + 2, shrink, i, shrink.length - i);
+        val = shrink;
+        return prior;
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator()
+            {
+                Object local = val;
+                if (local instanceof Map)
+                {
+                    final Iterator<Entry<K, V>> iter = ((Map<K, V>) local).entrySet().iterator();
+                    return new Iterator<Entry<K, V>>()
+                    {
+                        Entry<K, V> current;
+
+                        public boolean hasNext() { return iter.hasNext(); }
+
+                        public Entry<K, V> next()
+                        {
+                            current = iter.next();
+                            return new WriteThroughEntry(current.getKey(), current.getValue());
+                        }
+
+                        public void remove()
+                        {
+                            if (current == null)
+                            {
+                                throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                            }
+                            ConcurrentCompactMap.this.remove(current.getKey(), current.getValue());
+                            current = null;
+                        }
+                    };
+                }
+
+                final Object[] entries = (Object[]) local;    // snapshot - never modified
+                return new Iterator<Entry<K, V>>()
+                {
+                    int index = -2;
+                    boolean canRemove;
+
+                    public boolean hasNext() { return index + 2 < entries.length; }
+
+                    public Entry<K, V> next()
+                    {
+                        if (index + 2 >= entries.length)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        index += 2;
+                        canRemove = true;
+                        return new WriteThroughEntry((K) entries[index], (V) entries[index + 1]);
+                    }
+
+                    public void remove()
+                    {
+                        if (!canRemove)
+                        {
+                            throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                        }
+                        ConcurrentCompactMap.this.remove(entries[index], entries[index + 1]);
+                        canRemove = false;
+                    }
+                };
+            }
+
+            public int size() { return ConcurrentCompactMap.this.size(); }
+
+            public void clear() { ConcurrentCompactMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                return ConcurrentCompactMap.this.remove(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    private final class WriteThroughEntry extends SimpleEntry<K, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(K key, V value)
+        {
+            super(key, value);
+        }
+
+        public V setValue(V value)
+        {
+            ConcurrentCompactMap.this.put(getKey(), value);    // "Transmit" (write-thru) to underlying Map.
+            return super.setValue(value);
+        }
+    }
+}
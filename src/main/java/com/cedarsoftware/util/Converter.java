@@ -1,14 +1,36 @@
 package com.cedarsoftware.util;
 
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -26,6 +48,11 @@ import java.util.concurrent.atomic.AtomicLong;
  * `Converter.convert()` converts using `convertTo*()` methods for primitive wrappers, and
  *      `convert2*()` methods for primitives.
  * <p>
+ * `Converter.convert()` first looks for a conversion registered for the (source class, target class) pair - built-in
+ *      pairs go straight to the code for that pair - and otherwise falls back to the target type's `convertTo*()`
+ *      method.  The choice is cached per pair, so repeat conversions cost two map lookups plus the call.
+ *      `Converter.addConversion()` plugs in conversions for your own types (as source, target, or both).
+ * <p>
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
  *         Copyright (c) Cedar Software LLC
@@ -60,127 +87,1078 @@ public final class Converter
     public static final BigInteger BIG_INTEGER_ZERO = BigInteger.ZERO;
     private static final Map<Class<?>, Work<?>> conversion = new HashMap<>();
     private static final Map<Class<?>, Work<?>> conversionToString = new HashMap<>();
+    private static final Map<Class<?>, Map<Class<?>, Work<?>>> pairs = new ConcurrentHashMap<>();     // source -> target -> Work
+    private static final Map<Class<?>, Map<Class<?>, Work<?>>> resolved = new ConcurrentHashMap<>();  // cache of findWork()
+    private static final Map<Class<?>, Class<?>> primitiveToWrapper = new HashMap<>();
+    private static final Work<?> UNSUPPORTED = fromInstance -> null;
+    // Built-in conversions the bulk (column) methods recognize and perform without boxing
+    private static final Work<?> IDENTITY = fromInstance -> fromInstance;
+    private static final Work<?> NUMBER_TO_INT = fromInstance -> ((Number) fromInstance).intValue();
+    private static final Work<?> NUMBER_TO_LONG = fromInstance -> ((Number) fromInstance).longValue();
+    private static final Work<?> NUMBER_TO_DOUBLE = fromInstance -> ((Number) fromInstance).doubleValue();
+    private static final int PARALLEL_CHUNK = 8192;   // bulk conversions split no finer than this
+    private static final long NOT_PLAIN = Long.MIN_VALUE;     // parsePlainLong(): not a plain decimal
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Conversion of a (non-null, unless registered by target type only) source instance to a target type.
+     */
+    public interface Work<T>
+    {
+        Object convert(T fromInstance);
+    }
     
-    protected interface Work<T>
+    static
+    {
+        conversion.put(String.class, Converter::convertToString);
+        conversion.put(long.class, Converter::convert2long);
+        conversion.put(Long.class, Converter::convertToLong);
+        conversion.put(int.class, Converter::convert2int);
+        conversion.put(Integer.class, Converter::convertToInteger);
+        conversion.put(short.class, Converter::convert2short);
+        conversion.put(Short.class, Converter::convertToShort);
+        conversion.put(byte.class, Converter::convert2byte);
+        conversion.put(Byte.class, Converter::convertToByte);
+        conversion.put(char.class, Converter::convert2char);
+        conversion.put(boolean.class, Converter::convert2boolean);
+        conversion.put(Boolean.class, Converter::convertToBoolean);
+        conversion.put(double.class, Converter::convert2double);
+        conversion.put(Double.class, Converter::convertToDouble);
+        conversion.put(float.class, Converter::convert2float);
+        conversion.put(Float.class, Converter::convertToFloat);
+        conversion.put(Character.class, Converter::convertToCharacter);
+        conversion.put(Calendar.class, Converter::convertToCalendar);
+        conversion.put(Date.class, Converter::convertToDate);
+        conversion.put(LocalDate.class, Converter::convertToLocalDate);
+        conversion.put(LocalDateTime.class, Converter::convertToLocalDateTime);
+        conversion.put(ZonedDateTime.class, Converter::convertToZonedDateTime);
+        conversion.put(BigDecimal.class, Converter::convertToBigDecimal);
+        conversion.put(BigInteger.class, Converter::convertToBigInteger);
+        conversion.put(java.sql.Date.class, Converter::convertToSqlDate);
+        conversion.put(Timestamp.class, Converter::convertToTimestamp);
+        conversion.put(AtomicInteger.class, Converter::convertToAtomicInteger);
+        conversion.put(AtomicLong.class, Converter::convertToAtomicLong);
+        conversion.put(AtomicBoolean.class, Converter::convertToAtomicBoolean);
+
+        conversionToString.put(String.class, fromInstance -> fromInstance);
+        conversionToString.put(BigDecimal.class, fromInstance -> {
+            BigDecimal bd = convertToBigDecimal(fromInstance);
+            return bd.stripTrailingZeros().toPlainString();
+        });
+        conversionToString.put(BigInteger.class, fromInstance -> {
+            BigInteger bi = convertToBigInteger(fromInstance);
+            return bi.toString();
+        });
+        Work<?> toString = Object::toString;
+        conversionToString.put(Boolean.class, toString);
+        conversionToString.put(AtomicBoolean.class, toString);
+        conversionToString.put(Byte.class, toString);
+        conversionToString.put(Short.class, toString);
+        conversionToString.put(Integer.class, toString);
+        conversionToString.put(AtomicInteger.class, toString);
+        conversionToString.put(Long.class, toString);
+        conversionToString.put(AtomicLong.class, toString);
+
+        // Should eliminate possibility of 'e' (exponential) notation
+        Work<?> toNoExpString = Object::toString;
+        conversionToString.put(Double.class, toNoExpString);
+        conversionToString.put(Float.class, toNoExpString);
+
+        conversionToString.put(Date.class, fromInstance -> IsoDateTime.format((Date) fromInstance));
+        conversionToString.put(Character.class, fromInstance -> "" + fromInstance);
+        conversionToString.put(LocalDate.class, fromInstance -> IsoDateTime.format((LocalDate) fromInstance));
+        conversionToString.put(LocalDateTime.class, fromInstance -> IsoDateTime.format((LocalDateTime) fromInstance));
+        conversionToString.put(ZonedDateTime.class, fromInstance -> IsoDateTime.format((ZonedDateTime) fromInstance));
+
+        primitiveToWrapper.put(byte.class, Byte.class);
+        primitiveToWrapper.put(short.class, Short.class);
+        primitiveToWrapper.put(int.class, Integer.class);
+        primitiveToWrapper.put(long.class, Long.class);
+        primitiveToWrapper.put(float.class, Float.class);
+        primitiveToWrapper.put(double.class, Double.class);
+        primitiveToWrapper.put(boolean.class, Boolean.class);
+        primitiveToWrapper.put(char.class, Character.class);
+
+        addBuiltInPairs();
+    }
+
+    /**
+     * Direct (source, target) conversions for the common primitive / wrapper pairs.  Each does exactly what the
+     * matching branch of the target's convertTo*() method does, without walking its instanceof chain.  Pairs not
+     * listed here (String sources, dates, ...) are handled by the convertTo*() method.
+     */
+    private static void addBuiltInPairs()
+    {
+        Class<?>[] numbers = {Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+                BigInteger.class, BigDecimal.class, AtomicInteger.class, AtomicLong.class};
+        for (Class<?> number : numbers)
+        {
+            addBuiltIn(number, Byte.class, byte.class, fromInstance -> ((Number) fromInstance).byteValue());
+            addBuiltIn(number, Short.class, short.class, fromInstance -> ((Number) fromInstance).shortValue());
+            addBuiltIn(number, Integer.class, int.class, NUMBER_TO_INT);
+            addBuiltIn(number, Long.class, long.class, NUMBER_TO_LONG);
+            addBuiltIn(number, Float.class, float.class, fromInstance -> ((Number) fromInstance).floatValue());
+            addBuiltIn(number, Double.class, double.class, NUMBER_TO_DOUBLE);
+            addBuiltIn(number, Boolean.class, boolean.class, fromInstance -> ((Number) fromInstance).longValue() != 0);
+            addBuiltIn(number, Character.class, char.class, fromInstance -> (char) ((Number) fromInstance).shortValue());
+        }
+
+        // Immutable instances convert to their own type by returning themselves
+        Class<?>[] immutables = {Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+                Boolean.class, Character.class};
+        Class<?>[] primitives = {byte.class, short.class, int.class, long.class, float.class, double.class,
+                boolean.class, char.class};
+        for (int i=0; i < immutables.length; i++)
+        {
+            addBuiltIn(immutables[i], immutables[i], primitives[i], IDENTITY);
+        }
+
+        addBuiltIn(Boolean.class, Byte.class, byte.class, fromInstance -> (Boolean) fromInstance ? BYTE_ONE : BYTE_ZERO);
+        addBuiltIn(Boolean.class, Short.class, short.class, fromInstance -> (Boolean) fromInstance ? SHORT_ONE : SHORT_ZERO);
+        addBuiltIn(Boolean.class, Integer.class, int.class, fromInstance -> (Boolean) fromInstance ? INTEGER_ONE : INTEGER_ZERO);
+        addBuiltIn(Boolean.class, Long.class, long.class, fromInstance -> (Boolean) fromInstance ? LONG_ONE : LONG_ZERO);
+        addBuiltIn(Boolean.class, Float.class, float.class, fromInstance -> (Boolean) fromInstance ? FLOAT_ONE : FLOAT_ZERO);
+        addBuiltIn(Boolean.class, Double.class, double.class, fromInstance -> (Boolean) fromInstance ? DOUBLE_ONE : DOUBLE_ZERO);
+        addBuiltIn(Boolean.class, Character.class, char.class, fromInstance -> (Boolean) fromInstance ? '1' : '0');
+
+        addBuiltIn(Character.class, Short.class, short.class, fromInstance -> (short) (char) (Character) fromInstance);
+        addBuiltIn(Character.class, Integer.class, int.class, fromInstance -> (int) (char) (Character) fromInstance);
+        addBuiltIn(Character.class, Long.class, long.class, fromInstance -> (long) (char) (Character) fromInstance);
+
+        for (Map.Entry<Class<?>, Work<?>> entry : conversionToString.entrySet())
+        {
+            pairs.computeIfAbsent(entry.getKey(), k -> new ConcurrentHashMap<>()).put(String.class, entry.getValue());
+        }
+    }
+
+    private static void addBuiltIn(Class<?> source, Class<?> wrapper, Class<?> primitive, Work<?> work)
+    {
+        Map<Class<?>, Work<?>> targets = pairs.computeIfAbsent(source, k -> new ConcurrentHashMap<>());
+        targets.put(wrapper, work);
+        targets.put(primitive, work);   // non-null source, so primitive and wrapper results are the same
+    }
+
+    /**
+     * Register a conversion for a (source, target) pair.  It is used by convert() for instances of 'source', and for
+     * instances of its subclasses and implementors that do not have a closer registration of their own.  It takes
+     * precedence over the built-in conversion for the pair, if there is one.  Registering for a wrapper target
+     * (Long.class) also covers the primitive target (long.class) unless that is registered separately.
+     * @param source class of the instances to be converted.
+     * @param target class that convert() is asked for.
+     * @param conversion called with non-null instances of 'source' only.  It must return an instance of 'target'
+     * (non-null for a primitive target).
+     * @return the conversion previously registered for exactly this pair, or null if there was none.
+     */
+    public static Work<?> addConversion(Class<?> source, Class<?> target, Work<?> conversion)
+    {
+        if (source == null || target == null || conversion == null)
+        {
+            throw new IllegalArgumentException("source, target, and conversion cannot be null in Converter.addConversion()");
+        }
+        Work<?> prior = pairs.computeIfAbsent(source, k -> new ConcurrentHashMap<>()).put(target, conversion);
+        resolved.clear();
+        return prior;
+    }
+
+    /**
+     * @return the conversion that convert() calls for instances of exactly 'source' to 'target' (which may be the
+     * target type's convertTo*() method, rejecting the instance at runtime), or null if neither the pair nor the
+     * target type is known.
+     */
+    public static Work<?> getConversion(Class<?> source, Class<?> target)
+    {
+        Work<?> work = findWork(source, target);
+        return work == UNSUPPORTED ? null : work;
+    }
+
+    /**
+     * @return true if convert() can convert instances of 'source' to 'target': there is a pair for 'source' (or a
+     * supertype), or 'source' is one of the value types that the target type's convertTo*() method takes.
+     * getConversion() alone cannot tell, because it returns that method for any source.
+     */
+    static boolean isConvertible(Class<?> source, Class<?> target)
+    {
+        Work<?> work = findWork(source, target);
+        if (work == UNSUPPORTED)
+        {
+            return false;
+        }
+        if (work != conversion.get(target))
+        {   // A registered pair
+            return true;
+        }
+        return source == String.class || source == Boolean.class || source == Character.class || source == AtomicBoolean.class ||
+                Number.class.isAssignableFrom(source) || Date.class.isAssignableFrom(source) ||
+                Calendar.class.isAssignableFrom(source) || (source.isEnum() && target == String.class);
+    }
+
+    /**
+     * Resolve (and cache) the conversion for a pair: the pair itself, then the pair for the nearest superclass or
+     * interface of 'source', then (for a primitive target) the same search for its wrapper, then the target type's
+     * convertTo*() method.
+     */
+    private static Work<?> findWork(Class<?> source, Class<?> target)
+    {
+        Map<Class<?>, Work<?>> bySource = resolved.get(source);
+        if (bySource == null)
+        {
+            bySource = resolved.computeIfAbsent(source, k -> new ConcurrentHashMap<>());
+        }
+        Work<?> work = bySource.get(target);
+        if (work != null)
+        {
+            return work;
+        }
+
+        work = findPair(source, target);
+        if (work == null && primitiveToWrapper.containsKey(target))
+        {
+            work = findPair(source, primitiveToWrapper.get(target));
+        }
+        if (work == null)
+        {
+            work = conversion.get(target);
+        }
+        if (work == null)
+        {
+            work = UNSUPPORTED;
+        }
+        bySource.put(target, work);
+        return work;
+    }
+
+    /**
+     * @return the registered conversion for 'source' or its nearest supertype (superclasses first, then interfaces,
+     * breadth first) to exactly 'target', or null.
+     */
+    private static Work<?> findPair(Class<?> source, Class<?> target)
+    {
+        Set<Class<?>> level = new LinkedHashSet<>();
+        level.add(source);
+        while (!level.isEmpty())
+        {
+            for (Class<?> clazz : level)
+            {
+                Map<Class<?>, Work<?>> targets = pairs.get(clazz);
+                Work<?> work = targets == null ? null : targets.get(target);
+                if (work != null)
+                {
+                    return work;
+                }
+            }
+            Set<Class<?>> next = new LinkedHashSet<>();
+            for (Class<?> clazz : level)
+            {
+                if (clazz.getSuperclass() != null)
+                {
+                    next.add(clazz.getSuperclass());
+                }
+            }
+            for (Class<?> clazz : level)
+            {
+                for (Class<?> iface : clazz.getInterfaces())
+                {
+                    next.add(iface);
+                }
+            }
+            level = next;
+        }
+        return null;
+    }
+
+    /**
+     * Static utility class.
+     */
+    private Converter() { }
+
+    /**
+     * Turn the passed in value to the class indicated.  This will allow, for
+     * example, a String value to be passed in and have it coerced to a Long.
+     * <pre>
+     *     Examples:
+     *     Long x = convert("35", Long.class);
+     *     Date d = convert("2015/01/01", Date.class)
+     *     int y = convert(45.0, int.class)
+     *     String date = convert(date, String.class)
+     *     String date = convert(calendar, String.class)
+     *     Short t = convert(true, short.class);     // returns (short) 1 or  (short) 0
+     *     Long date = convert(calendar, long.class); // get calendar's time into long
+     * </pre>
+     * @param fromInstance A value used to create the targetType, even though it may
+     * not (most likely will not) be the same data type as the targetType
+     * @param toType Class which indicates the targeted (final) data type.
+     * Please note that in addition to the 8 Java primitives, the targeted class
+     * can also be Date.class, String.class, BigInteger.class, BigDecimal.class, and
+     * the Atomic classes.  The primitive class can be either primitive class or primitive
+     * wrapper class, however, the returned value will always [obviously] be a primitive
+     * wrapper.
+     * @return An instanceof targetType class, based upon the value passed in.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T convert(Object fromInstance, Class<T> toType)
+    {
+        if (toType == null)
+        {
+            throw new IllegalArgumentException("Type cannot be null in Converter.convert(value, type)");
+        }
+
+        if (fromInstance == null)
+        {   // Only the target type's method knows its null result (null, or a primitive's zero)
+            Work work = conversion.get(toType);
+            if (work != null)
+            {
+                return (T) work.convert(null);
+            }
+            if (isRegisteredTarget(toType))
+            {
+                return null;
+            }
+            throw new IllegalArgumentException("Unsupported type '" + toType.getName() + "' for conversion");
+        }
+
+        Work<Object> work = (Work<Object>) supportedWork(fromInstance.getClass(), toType);
+        return (T) work.convert(fromInstance);
+    }
+
+    /**
+     * @return findWork(source, target), which must not be UNSUPPORTED.
+     */
+    private static Work<?> supportedWork(Class<?> source, Class<?> target)
+    {
+        Work<?> work = findWork(source, target);
+        if (work == UNSUPPORTED)
+        {
+            throw new IllegalArgumentException("Unsupported type '" + target.getName() + "' for conversion from '" + source.getName() + "'");
+        }
+        return work;
+    }
+
+    /**
+     * Convert every element of 'source' as convert(element, toType) would, resolving the conversion once per run of
+     * elements of the same class instead of once per element.
+     * @param source values to convert (a column).  If null, null is returned.
+     * @param toType target type.  For a primitive type, the result is an array of its wrapper, with null elements
+     * converted to the primitive's zero.
+     * @return new array of the converted values, element for element.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T[] convertAll(Object[] source, Class<T> toType)
+    {
+        return convertAll(source, toType, false);
+    }
+
+    /**
+     * Same as convertAll(source, toType), and when 'parallel' is true, large arrays are split into ranges converted on
+     * the common ForkJoinPool.  Conversions registered with addConversion() must then be thread-safe.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T[] convertAll(Object[] source, Class<T> toType, boolean parallel)
+    {
+        if (toType == null)
+        {
+            throw new IllegalArgumentException("Type cannot be null in Converter.convertAll(values, type)");
+        }
+        if (source == null)
+        {
+            return null;
+        }
+        Class<?> componentType = toType.isPrimitive() ? primitiveToWrapper.get(toType) : toType;
+        T[] result = (T[]) Array.newInstance(componentType, source.length);
+        run(new ObjectColumn(source, 0, source.length, parallel, toType, result));
+        return result;
+    }
+
+    /**
+     * Convert every element of 'source' as convert2long(element) would, into a long[].  Elements that are Numbers
+     * or Strings (with the built-in conversion) are converted without boxing.
+     * @param source values to convert (a column), for example a String[] or Long[].  If null, null is returned.
+     * @return new long[] of the converted values, element for element (null elements become 0).
+     */
+    public static long[] convertToLongArray(Object[] source)
+    {
+        return convertToLongArray(source, false);
+    }
+
+    /**
+     * Same as convertToLongArray(source), and when 'parallel' is true, large arrays are split into ranges converted
+     * on the common ForkJoinPool.
+     */
+    public static long[] convertToLongArray(Object[] source, boolean parallel)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        long[] result = new long[source.length];
+        run(new LongColumn(source, 0, source.length, parallel, result));
+        return result;
+    }
+
+    /**
+     * Convert every element of 'source' as convert2int(element) would, into an int[].  Elements that are Numbers
+     * or Strings (with the built-in conversion) are converted without boxing.
+     * @param source values to convert (a column).  If null, null is returned.
+     * @return new int[] of the converted values, element for element (null elements become 0).
+     */
+    public static int[] convertToIntArray(Object[] source)
+    {
+        return convertToIntArray(source, false);
+    }
+
+    /**
+     * Same as convertToIntArray(source), and when 'parallel' is true, large arrays are split into ranges converted
+     * on the common ForkJoinPool.
+     */
+    public static int[] convertToIntArray(Object[] source, boolean parallel)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        int[] result = new int[source.length];
+        run(new IntColumn(source, 0, source.length, parallel, result));
+        return result;
+    }
+
+    /**
+     * Convert every element of 'source' as convert2double(element) would, into a double[].  Elements that are
+     * Numbers or Strings (with the built-in conversion) are converted without boxing.
+     * @param source values to convert (a column).  If null, null is returned.
+     * @return new double[] of the converted values, element for element (null elements become 0.0).
+     */
+    public static double[] convertToDoubleArray(Object[] source)
+    {
+        return convertToDoubleArray(source, false);
+    }
+
+    /**
+     * Same as convertToDoubleArray(source), and when 'parallel' is true, large arrays are split into ranges
+     * converted on the common ForkJoinPool.
+     */
+    public static double[] convertToDoubleArray(Object[] source, boolean parallel)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        double[] result = new double[source.length];
+        run(new DoubleColumn(source, 0, source.length, parallel, result));
+        return result;
+    }
+
+    private static void run(Column column)
+    {
+        if (column.parallel && column.to - column.from > PARALLEL_CHUNK)
+        {
+            ForkJoinPool.commonPool().invoke(column);
+        }
+        else
+        {
+            column.convertRange();
+        }
+    }
+
+    /**
+     * Converts source[from, to) into a result array.  The conversion is looked up when the element class changes,
+     * so a homogeneous column resolves it once per range.  In parallel mode, ranges larger than PARALLEL_CHUNK are
+     * split in half (fork/join) and each half keeps its own lookup state.
+     */
+    private abstract static class Column extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        final Object[] source;
+        final int from;
+        final int to;
+        final boolean parallel;
+        private Class<?> lastClass;
+        private Work<?> lastWork;
+
+        Column(Object[] source, int from, int to, boolean parallel)
+        {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        protected void compute()
+        {
+            if (to - from > PARALLEL_CHUNK)
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(split(from, mid), split(mid, to));
+            }
+            else
+            {
+                convertRange();
+            }
+        }
+
+        abstract Column split(int from, int to);
+
+        abstract void convertRange();
+
+        /**
+         * @return the conversion convert() would use for the (non-null) value.
+         */
+        @SuppressWarnings("unchecked")
+        Work<Object> workFor(Object value, Class<?> toType)
+        {
+            Class<?> clazz = value.getClass();
+            if (clazz != lastClass)
+            {
+                lastWork = supportedWork(clazz, toType);
+                lastClass = clazz;
+            }
+            return (Work<Object>) lastWork;
+        }
+    }
+
+    private static final class ObjectColumn extends Column
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> toType;
+        private final Object[] result;
+
+        ObjectColumn(Object[] source, int from, int to, boolean parallel, Class<?> toType, Object[] result)
+        {
+            super(source, from, to, parallel);
+            this.toType = toType;
+            this.result = result;
+        }
+
+        Column split(int from, int to)
+        {
+            return new ObjectColumn(source, from, to, parallel, toType, result);
+        }
+
+        void convertRange()
+        {
+            for (int i = from; i < to; i++)
+            {
+                Object value = source[i];
+                result[i] = value == null ? convert(null, toType) : workFor(value, toType).convert(value);
+            }
+        }
+    }
+
+    private static final class LongColumn extends Column
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] result;
+        private final Work<?> builtIn = conversion.get(long.class);     // convert2long() - Strings without boxing
+
+        LongColumn(Object[] source, int from, int to, boolean parallel, long[] result)
+        {
+            super(source, from, to, parallel);
+            this.result = result;
+        }
+
+        Column split(int from, int to)
+        {
+            return new LongColumn(source, from, to, parallel, result);
+        }
+
+        void convertRange()
+        {
+            for (int i = from; i < to; i++)
+            {
+                Object value = source[i];
+                if (value != null)
+                {
+                    Work<Object> work = workFor(value, long.class);
+                    if (work == NUMBER_TO_LONG || work == IDENTITY)
+                    {
+                        result[i] = ((Number) value).longValue();
+                    }
+                    else if (work == builtIn)
+                    {
+                        result[i] = convert2long(value);
+                    }
+                    else
+                    {
+                        result[i] = (Long) work.convert(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class IntColumn extends Column
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] result;
+        private final Work<?> builtIn = conversion.get(int.class);     // convert2int() - Strings without boxing
+
+        IntColumn(Object[] source, int from, int to, boolean parallel, int[] result)
+        {
+            super(source, from, to, parallel);
+            this.result = result;
+        }
+
+        Column split(int from, int to)
+        {
+            return new IntColumn(source, from, to, parallel, result);
+        }
+
+        void convertRange()
+        {
+            for (int i = from; i < to; i++)
+            {
+                Object value = source[i];
+                if (value != null)
+                {
+                    Work<Object> work = workFor(value, int.class);
+                    if (work == NUMBER_TO_INT || work == IDENTITY)
+                    {
+                        result[i] = ((Number) value).intValue();
+                    }
+                    else if (work == builtIn)
+                    {
+                        result[i] = convert2int(value);
+                    }
+                    else
+                    {
+                        result[i] = (Integer) work.convert(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class DoubleColumn extends Column
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] result;
+        private final Work<?> builtIn = conversion.get(double.class);     // convert2double() - Strings without boxing
+
+        DoubleColumn(Object[] source, int from, int to, boolean parallel, double[] result)
+        {
+            super(source, from, to, parallel);
+            this.result = result;
+        }
+
+        Column split(int from, int to)
+        {
+            return new DoubleColumn(source, from, to, parallel, result);
+        }
+
+        void convertRange()
+        {
+            for (int i = from; i < to; i++)
+            {
+                Object value = source[i];
+                if (value != null)
+                {
+                    Work<Object> work = workFor(value, double.class);
+                    if (work == NUMBER_TO_DOUBLE || work == IDENTITY)
+                    {
+                        result[i] = ((Number) value).doubleValue();
+                    }
+                    else if (work == builtIn)
+                    {
+                        result[i] = convert2double(value);
+                    }
+                    else
+                    {
+                        result[i] = (Double) work.convert(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert every element of 'source' as convert(element, componentType) would, into a new array.
+     * <pre>
+     *     long[] ids = convertToArray(idStrings, long[].class);       // List{@literal <}String{@literal >} to long[]
+     *     String[] names = convertToArray(new int[] {1, 2}, String[].class);
+     * </pre>
+     * @param source array (Object or primitive), Collection, Iterable, or Iterator.  If null, null is returned.
+     * @param arrayType type of the array to create, for example long[].class or Date[].class.
+     * @return new array of the converted elements, in iteration order.  Null elements become null, or the primitive's
+     * zero for a primitive array.
+     */
+    @SuppressWarnings("unchecked")
+    public static <A> A convertToArray(Object source, Class<A> arrayType)
+    {
+        if (arrayType == null || !arrayType.isArray())
+        {
+            throw new IllegalArgumentException("Array type required in Converter.convertToArray(), type: " + (arrayType == null ? null : arrayType.getName()));
+        }
+        if (source == null)
+        {
+            return null;
+        }
+        Class<?> componentType = arrayType.getComponentType();
+        Object[] elements = source instanceof Object[] ? (Object[]) source
+                : source instanceof Collection ? ((Collection<?>) source).toArray() : null;
+        if (elements != null)
+        {   // Column conversions (primitive targets without boxing)
+            if (componentType == long.class)
+            {
+                return (A) convertToLongArray(elements);
+            }
+            if (componentType == int.class)
+            {
+                return (A) convertToIntArray(elements);
+            }
+            if (componentType == double.class)
+            {
+                return (A) convertToDoubleArray(elements);
+            }
+            if (!componentType.isPrimitive())
+            {
+                Object[] result = (Object[]) Array.newInstance(componentType, elements.length);
+                run(new ObjectColumn(elements, 0, elements.length, false, componentType, result));
+                return (A) result;
+            }
+        }
+
+        return (A) convertElementsToArray(source, componentType, new ElementConverter(componentType));
+    }
+
+    /**
+     * convertToArray() with each element converted by 'elements' instead of by Converter (BeanMapper maps nested
+     * objects this way).
+     */
+    static Object convertElementsToArray(Object source, Class<?> componentType, Work<Object> elements)
+    {
+        int size = sizeOf(source);
+        List<Object> buffer = size < 0 ? new ArrayList<>() : null;
+        Object result = size < 0 ? null : Array.newInstance(componentType, size);
+        Iterator<?> i = elementsOf(source);
+        for (int pos = 0; i.hasNext(); pos++)
+        {
+            Object value = elements.convert(i.next());
+            if (buffer != null)
+            {
+                buffer.add(value);
+            }
+            else
+            {
+                Array.set(result, pos, value);
+            }
+        }
+        if (buffer != null)
+        {   // Iterable or Iterator of unknown size
+            result = Array.newInstance(componentType, buffer.size());
+            for (int pos = 0; pos < buffer.size(); pos++)
+            {
+                Array.set(result, pos, buffer.get(pos));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert every element of 'source' as convert(element, elementType) would, into a new Collection.
+     * <pre>
+     *     List{@literal <}?{@literal >} ids = convertToCollection(new String[] {"1", "2"}, List.class, Long.class);
+     *     TreeSet{@literal <}?{@literal >} keys = convertToCollection(longs, TreeSet.class, String.class);
+     * </pre>
+     * The result has the (raw) type of 'collectionType', so assigning it to a wildcard type compiles without
+     * unchecked warnings.
+     * @param source array (Object or primitive), Collection, Iterable, or Iterator.  If null, null is returned.
+     * @param collectionType Collection class to create.  A concrete class needs a public no-arg constructor; for an
+     * interface, Collection and List create an ArrayList, Set a LinkedHashSet, SortedSet and NavigableSet a TreeSet,
+     * and Queue and Deque an ArrayDeque.  ArrayList, HashSet, LinkedHashSet and ArrayDeque are created presized.
+     * @param elementType type of the converted elements.
+     * @return new Collection of the converted elements, added in iteration order.  Null elements are added as null
+     * (the primitive's zero for a primitive elementType).
+     * @throws IllegalArgumentException if an element converts to null and the Collection does not accept null
+     * (SortedSet, NavigableSet, Queue and Deque, whose TreeSet and ArrayDeque do not).
+     */
+    @SuppressWarnings("unchecked")
+    public static <C extends Collection<?>> C convertToCollection(Object source, Class<C> collectionType, Class<?> elementType)
+    {
+        if (collectionType == null || elementType == null)
+        {
+            throw new IllegalArgumentException("Collection type and element type cannot be null in Converter.convertToCollection()");
+        }
+        if (source == null)
+        {
+            return null;
+        }
+        return (C) convertElementsToCollection(source, collectionType, new ElementConverter(elementType));
+    }
+
+    /**
+     * convertToCollection() with each element converted by 'elements' instead of by Converter.
+     */
+    @SuppressWarnings("unchecked")
+    static Collection<Object> convertElementsToCollection(Object source, Class<?> collectionType, Work<Object> elements)
+    {
+        Collection<Object> result = (Collection<Object>) newCollection(collectionType, Math.max(sizeOf(source), 0));
+        Iterator<?> i = elementsOf(source);
+        while (i.hasNext())
+        {
+            Object value = elements.convert(i.next());
+            try
+            {
+                result.add(value);
+            }
+            catch (NullPointerException e)
+            {
+                if (value != null)
+                {
+                    throw e;
+                }
+                throw new IllegalArgumentException("Collection type " + collectionType.getName() + " (" + result.getClass().getName() + ") does not accept null elements, in Converter.convertToCollection()", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert every key and value of 'source' as convert(key, keyType) and convert(value, valueType) would, into a
+     * new Map.  Keys that become equal after conversion collapse into one entry (the last one wins).
+     * <pre>
+     *     Map{@literal <}?, ?{@literal >} counts = convertToMap(stringCounts, Map.class, String.class, Integer.class);
+     * </pre>
+     * The result has the (raw) type of 'mapType', so assigning it to a wildcard type compiles without unchecked
+     * warnings.
+     * @param source Map to convert.  If null, null is returned.
+     * @param mapType Map class to create.  A concrete class needs a public no-arg constructor; for an interface, Map
+     * creates a LinkedHashMap, SortedMap and NavigableMap a TreeMap, and ConcurrentMap a ConcurrentHashMap.  HashMap,
+     * LinkedHashMap and ConcurrentHashMap are created presized.
+     * @return new Map of the converted entries, added in the source Map's iteration order.  Null keys and values are
+     * put as null.
+     * @throws IllegalArgumentException if a key or value converts to null and the Map does not accept it (SortedMap,
+     * NavigableMap and ConcurrentMap, whose TreeMap and ConcurrentHashMap do not).
+     */
+    @SuppressWarnings("unchecked")
+    public static <M extends Map<?, ?>> M convertToMap(Map<?, ?> source, Class<M> mapType, Class<?> keyType, Class<?> valueType)
+    {
+        if (mapType == null || keyType == null || valueType == null)
+        {
+            throw new IllegalArgumentException("Map type, key type, and value type cannot be null in Converter.convertToMap()");
+        }
+        if (source == null)
+        {
+            return null;
+        }
+        return (M) convertEntriesToMap(source, mapType, new ElementConverter(keyType), new ElementConverter(valueType));
+    }
+
+    /**
+     * convertToMap() with the keys and values converted by 'keys' and 'values' instead of by Converter.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Object, Object> convertEntriesToMap(Map<?, ?> source, Class<?> mapType, Work<Object> keys, Work<Object> values)
+    {
+        Map<Object, Object> result = (Map<Object, Object>) newMap(mapType, source.size());
+        for (Map.Entry<?, ?> entry : source.entrySet())
+        {
+            Object key = keys.convert(entry.getKey());
+            Object value = values.convert(entry.getValue());
+            try
+            {
+                result.put(key, value);
+            }
+            catch (NullPointerException e)
+            {
+                if (key != null && value != null)
+                {
+                    throw e;
+                }
+                throw new IllegalArgumentException("Map type " + mapType.getName() + " (" + result.getClass().getName() + ") does not accept null keys or values, in Converter.convertToMap()", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Iterator over 'source' that converts each element as convert(element, elementType) would, when it is
+     * returned by next().  Nothing is read ahead or buffered, so 'source' may be unbounded (a cursor, a stream's
+     * iterator).  remove() removes the last element from 'source', if it supports that.
+     */
+    public static <E> Iterator<E> convertIterator(final Iterator<?> source, Class<E> elementType)
     {
-        Object convert(T fromInstance);
+        if (source == null || elementType == null)
+        {
+            throw new IllegalArgumentException("Source and element type cannot be null in Converter.convertIterator()");
+        }
+        final ElementConverter converter = new ElementConverter(elementType);
+        return new Iterator<E>()
+        {
+            public boolean hasNext() { return source.hasNext(); }
+            @SuppressWarnings("unchecked")
+            public E next() { return (E) converter.convert(source.next()); }
+            public void remove() { source.remove(); }
+        };
     }
-    
-    static
+
+    /**
+     * @return number of elements in 'source', or -1 if it is only known by iterating.
+     */
+    private static int sizeOf(Object source)
     {
-        conversion.put(String.class, Converter::convertToString);
-        conversion.put(long.class, Converter::convert2long);
-        conversion.put(Long.class, Converter::convertToLong);
-        conversion.put(int.class, Converter::convert2int);
-        conversion.put(Integer.class, Converter::convertToInteger);
-        conversion.put(short.class, Converter::convert2short);
-        conversion.put(Short.class, Converter::convertToShort);
-        conversion.put(byte.class, Converter::convert2byte);
-        conversion.put(Byte.class, Converter::convertToByte);
-        conversion.put(char.class, Converter::convert2char);
-        conversion.put(boolean.class, Converter::convert2boolean);
-        conversion.put(Boolean.class, Converter::convertToBoolean);
-        conversion.put(double.class, Converter::convert2double);
-        conversion.put(Double.class, Converter::convertToDouble);
-        conversion.put(float.class, Converter::convert2float);
-        conversion.put(Float.class, Converter::convertToFloat);
-        conversion.put(Character.class, Converter::convertToCharacter);
-        conversion.put(Calendar.class, Converter::convertToCalendar);
-        conversion.put(Date.class, Converter::convertToDate);
-        conversion.put(LocalDate.class, Converter::convertToLocalDate);
-        conversion.put(LocalDateTime.class, Converter::convertToLocalDateTime);
-        conversion.put(ZonedDateTime.class, Converter::convertToZonedDateTime);
-        conversion.put(BigDecimal.class, Converter::convertToBigDecimal);
-        conversion.put(BigInteger.class, Converter::convertToBigInteger);
-        conversion.put(java.sql.Date.class, Converter::convertToSqlDate);
-        conversion.put(Timestamp.class, Converter::convertToTimestamp);
-        conversion.put(AtomicInteger.class, Converter::convertToAtomicInteger);
-        conversion.put(AtomicLong.class, Converter::convertToAtomicLong);
-        conversion.put(AtomicBoolean.class, Converter::convertToAtomicBoolean);
+        if (source.getClass().isArray())
+        {
+            return Array.getLength(source);
+        }
+        if (source instanceof Collection)
+        {
+            return ((Collection<?>) source).size();
+        }
+        return -1;
+    }
 
-        conversionToString.put(String.class, fromInstance -> fromInstance);
-        conversionToString.put(BigDecimal.class, fromInstance -> {
-            BigDecimal bd = convertToBigDecimal(fromInstance);
-            return bd.stripTrailingZeros().toPlainString();
-        });
-        conversionToString.put(BigInteger.class, fromInstance -> {
-            BigInteger bi = convertToBigInteger(fromInstance);
-            return bi.toString();
-        });
-        Work<?> toString = Object::toString;
-        conversionToString.put(Boolean.class, toString);
-        conversionToString.put(AtomicBoolean.class, toString);
-        conversionToString.put(Byte.class, toString);
-        conversionToString.put(Short.class, toString);
-        conversionToString.put(Integer.class, toString);
-        conversionToString.put(AtomicInteger.class, toString);
-        conversionToString.put(Long.class, toString);
-        conversionToString.put(AtomicLong.class, toString);
+    private static Iterator<?> elementsOf(final Object source)
+    {
+        if (source instanceof Iterable)
+        {
+            return ((Iterable<?>) source).iterator();
+        }
+        if (source instanceof Iterator)
+        {
+            return (Iterator<?>) source;
+        }
+        if (source.getClass().isArray())
+        {
+            final int length = Array.getLength(source);
+            return new Iterator<Object>()
+            {
+                int pos = 0;
+                public boolean hasNext() { return pos < length; }
 
-        // Should eliminate possibility of 'e' (exponential) notation
-        Work<?> toNoExpString = Object::toString;
-        conversionToString.put(Double.class, toNoExpString);
-        conversionToString.put(Float.class, toNoExpString);
+                public Object next()
+                {
+                    if (pos >= length)
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return Array.get(source, pos++);
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unsupported source '" + source.getClass().getName() + "' for conversion of elements, must be an array, Iterable, or Iterator");
+    }
 
-        conversionToString.put(Date.class, fromInstance -> SafeSimpleDateFormat.getDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(fromInstance));
-        conversionToString.put(Character.class, fromInstance -> "" + fromInstance);
-        conversionToString.put(LocalDate.class, fromInstance -> {
-            LocalDate localDate = (LocalDate) fromInstance;
-            return String.format("%04d-%02d-%02d", localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
-        });
-        conversionToString.put(LocalDateTime.class, fromInstance -> {
-            LocalDateTime localDateTime = (LocalDateTime) fromInstance;
-            return String.format("%04d-%02d-%02dT%02d:%02d:%02d", localDateTime.getYear(), localDateTime.getMonthValue(), localDateTime.getDayOfMonth(), localDateTime.getHour(), localDateTime.getMinute(), localDateTime.getSecond());
-        });
-        conversionToString.put(ZonedDateTime.class, fromInstance -> {
-            ZonedDateTime zonedDateTime = (ZonedDateTime) fromInstance;
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
-            return zonedDateTime.format(formatter);
-        });
+    private static Collection<?> newCollection(Class<?> type, int size)
+    {
+        if (type == ArrayList.class || type == List.class || type == Collection.class)
+        {
+            return new ArrayList<>(size);
+        }
+        if (type == LinkedHashSet.class || type == Set.class)
+        {
+            return new LinkedHashSet<>(hashCapacity(size));
+        }
+        if (type == HashSet.class)
+        {
+            return new HashSet<>(hashCapacity(size));
+        }
+        if (type == TreeSet.class || type == SortedSet.class || type == NavigableSet.class)
+        {
+            return new TreeSet<>();
+        }
+        if (type == ArrayDeque.class || type == Queue.class || type == Deque.class)
+        {
+            return new ArrayDeque<>(size);
+        }
+        if (!Collection.class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Collection type required in Converter.convertToCollection(), type: " + type.getName());
+        }
+        return (Collection<?>) newInstance(type);
+    }
+
+    private static Map<?, ?> newMap(Class<?> type, int size)
+    {
+        if (type == LinkedHashMap.class || type == Map.class)
+        {
+            return new LinkedHashMap<>(hashCapacity(size));
+        }
+        if (type == HashMap.class)
+        {
+            return new HashMap<>(hashCapacity(size));
+        }
+        if (type == TreeMap.class || type == SortedMap.class || type == NavigableMap.class)
+        {
+            return new TreeMap<>();
+        }
+        if (type == ConcurrentHashMap.class || type == ConcurrentMap.class)
+        {
+            return new ConcurrentHashMap<>(size);
+        }
+        if (!Map.class.isAssignableFrom(type))
+        {
+            throw new IllegalArgumentException("Map type required in Converter.convertToMap(), type: " + type.getName());
+        }
+        return (Map<?, ?>) newInstance(type);
     }
 
     /**
-     * Static utility class.
+     * @return HashMap capacity that holds 'size' entries without resizing (at the default 0.75 load factor).
      */
-    private Converter() { }
+    private static int hashCapacity(int size)
+    {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
+
+    private static Object newInstance(Class<?> type)
+    {
+        try
+        {
+            return type.getConstructor().newInstance();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("Unable to create an instance of '" + type.getName() + "', it needs a public no-arg constructor", e);
+        }
+    }
 
     /**
-     * Turn the passed in value to the class indicated.  This will allow, for
-     * example, a String value to be passed in and have it coerced to a Long.
-     * <pre>
-     *     Examples:
-     *     Long x = convert("35", Long.class);
-     *     Date d = convert("2015/01/01", Date.class)
-     *     int y = convert(45.0, int.class)
-     *     String date = convert(date, String.class)
-     *     String date = convert(calendar, String.class)
-     *     Short t = convert(true, short.class);     // returns (short) 1 or  (short) 0
-     *     Long date = convert(calendar, long.class); // get calendar's time into long
-     * </pre>
-     * @param fromInstance A value used to create the targetType, even though it may
-     * not (most likely will not) be the same data type as the targetType
-     * @param toType Class which indicates the targeted (final) data type.
-     * Please note that in addition to the 8 Java primitives, the targeted class
-     * can also be Date.class, String.class, BigInteger.class, BigDecimal.class, and
-     * the Atomic classes.  The primitive class can be either primitive class or primitive
-     * wrapper class, however, the returned value will always [obviously] be a primitive
-     * wrapper.
-     * @return An instanceof targetType class, based upon the value passed in.
+     * Converts elements one at a time as convert(element, toType) would, looking the conversion up only when the
+     * element class changes.
      */
-    @SuppressWarnings("unchecked")
-    public static <T> T convert(Object fromInstance, Class<T> toType)
+    private static final class ElementConverter implements Work<Object>
     {
-        if (toType == null)
+        private final Class<?> toType;
+        private Class<?> lastClass;
+        private Work<?> lastWork;
+
+        ElementConverter(Class<?> toType)
         {
-            throw new IllegalArgumentException("Type cannot be null in Converter.convert(value, type)");
+            this.toType = toType;
         }
 
-        Work work = conversion.get(toType);
-        if (work != null)
+        @SuppressWarnings("unchecked")
+        public Object convert(Object value)
+        {
+            if (value == null)
+            {
+                return Converter.convert(null, toType);
+            }
+            Class<?> clazz = value.getClass();
+            if (clazz != lastClass)
+            {
+                lastWork = supportedWork(clazz, toType);
+                lastClass = clazz;
+            }
+            return ((Work) lastWork).convert(value);
+        }
+    }
+
+    private static boolean isRegisteredTarget(Class<?> toType)
+    {
+        for (Map<Class<?>, Work<?>> targets : pairs.values())
         {
-            return (T) work.convert(fromInstance);
+            if (targets.containsKey(toType))
+            {
+                return true;
+            }
         }
-        throw new IllegalArgumentException("Unsupported type '" + toType.getName() + "' for conversion");
+        return false;
     }
 
     /**
@@ -202,7 +1180,8 @@ public final class Converter
      * Convert from the passed in instance to a String.  If null is passed in, this method will return null.
      * Possible inputs are any primitive/primitive wrapper, Date (returns ISO-DATE format: 2020-04-10T12:15:47),
      * Calendar (returns ISO-DATE format: 2020-04-10T12:15:47), any Enum (returns Enum's name()), BigDecimal,
-     * BigInteger, AtomicBoolean, AtomicInteger, AtomicLong, and Character.
+     * BigInteger, AtomicBoolean, AtomicInteger, AtomicLong, and Character.  Subclasses of these (e.g. java.sql.Date
+     * and Timestamp), and classes given a String conversion with addConversion(), are converted as convert() would.
      */
     @SuppressWarnings("unchecked")
     public static String convertToString(Object fromInstance)
@@ -211,15 +1190,16 @@ public final class Converter
         {
             return null;
         }
-        Class<?> clazz = fromInstance.getClass();
-        Work work = conversionToString.get(clazz);
-        if (work != null)
+        // Same lookup as convert(x, String.class) - exact class, then nearest registered supertype (e.g. java.sql.Date
+        // and Timestamp use java.util.Date's), then added conversions - unless that lands back on this method.
+        Work<Object> work = (Work<Object>) findWork(fromInstance.getClass(), String.class);
+        if (work != conversion.get(String.class) && work != UNSUPPORTED)
         {
             return (String) work.convert(fromInstance);
         }
         else if (fromInstance instanceof Calendar)
         {   // Done this way (as opposed to putting a closure in conversionToString) because Calendar.class is not == to GregorianCalendar.class
-            return SafeSimpleDateFormat.getDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(((Calendar)fromInstance).getTime());
+            return IsoDateTime.format(((Calendar)fromInstance).getTime());
         }
         else if (fromInstance instanceof Enum)
         {
@@ -1042,6 +2022,10 @@ public final class Converter
         {
             return 0;
         }
+        if (fromInstance instanceof String)
+        {
+            return parseInt((String) fromInstance);
+        }
         return convertToInteger(fromInstance);
     }
 
@@ -1114,6 +2098,10 @@ public final class Converter
         {
             return LONG_ZERO;
         }
+        if (fromInstance instanceof String)
+        {
+            return parseLong((String) fromInstance);
+        }
         return convertToLong(fromInstance);
     }
 
@@ -1255,6 +2243,10 @@ public final class Converter
         {
             return DOUBLE_ZERO;
         }
+        if (fromInstance instanceof String)
+        {
+            return parseDouble((String) fromInstance);
+        }
         return convertToDouble(fromInstance);
     }
 
@@ -1526,6 +2518,187 @@ public final class Converter
         return null;
     }
 
+    /**
+     * Parse a long from text without creating any objects - no trim(), no substring, no boxing.  The result is the
+     * same as convert2long() of the equivalent String: surrounding whitespace is ignored, blank text is 0, and a
+     * decimal fraction is truncated toward zero.  Plain decimal text ([sign] digits [. digits], up to 18 integer
+     * digits) is parsed directly; anything else (an exponent, more digits, non-ASCII digits) is handed to the String
+     * conversion, which allocates.
+     * @throws IllegalArgumentException if the text is not a number.
+     */
+    public static long parseLong(CharSequence chars)
+    {
+        return parseLong(chars, 0, chars.length());
+    }
+
+    /**
+     * Same as parseLong(chars), for the characters from 'start' (inclusive) to 'end' (exclusive), for example one
+     * field of a line buffer.
+     */
+    public static long parseLong(CharSequence chars, int start, int end)
+    {
+        long value = parsePlainLong(chars, start, end);
+        if (value != NOT_PLAIN)
+        {
+            return value;
+        }
+        return convertToLong(chars.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parse an int from text without creating any objects.  The result is the same as convert2int() of the
+     * equivalent String (see parseLong(CharSequence)).
+     * @throws IllegalArgumentException if the text is not a number, or is outside the range of an int.
+     */
+    public static int parseInt(CharSequence chars)
+    {
+        return parseInt(chars, 0, chars.length());
+    }
+
+    /**
+     * Same as parseInt(chars), for the characters from 'start' (inclusive) to 'end' (exclusive).
+     */
+    public static int parseInt(CharSequence chars, int start, int end)
+    {
+        long value = parsePlainLong(chars, start, end);
+        if (value != NOT_PLAIN && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+        {
+            return (int) value;
+        }
+        return convertToInteger(chars.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parse a double from text without creating any objects.  The result is the same as convert2double() of the
+     * equivalent String, that is Double.parseDouble() (correctly rounded).  Plain decimal text whose digits form a
+     * mantissa up to 2^53 with at most 22 fraction digits is computed exactly as mantissa / 10^fractionDigits (one
+     * correctly rounded division of exact values); anything else is handed to Double.parseDouble().
+     * @throws IllegalArgumentException if the text is not a number.
+     */
+    public static double parseDouble(CharSequence chars)
+    {
+        return parseDouble(chars, 0, chars.length());
+    }
+
+    /**
+     * Same as parseDouble(chars), for the characters from 'start' (inclusive) to 'end' (exclusive).
+     */
+    public static double parseDouble(CharSequence chars, int start, int end)
+    {
+        int from = start;
+        int to = end;
+        while (from < to && chars.charAt(from) <= ' ')
+        {
+            from++;
+        }
+        while (to > from && chars.charAt(to - 1) <= ' ')
+        {
+            to--;
+        }
+        if (from == to)
+        {
+            return DOUBLE_ZERO;
+        }
+
+        int i = from;
+        char c = chars.charAt(i);
+        boolean negative = c == '-';
+        if (negative || c == '+')
+        {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;    // -1 until the decimal point
+        for (; i < to; i++)
+        {
+            c = chars.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0)
+                {
+                    fractionDigits++;
+                }
+                if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length)
+                {
+                    break;
+                }
+            }
+            else if (c == '.' && fractionDigits < 0)
+            {
+                fractionDigits = 0;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if (i == to && digits > 0)
+        {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+        // Untrimmed, so an error names the text exactly as the String conversion would
+        return convertToDouble(chars.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parse [whitespace] [sign] digits [. digits] [whitespace], with at most 18 integer digits (so the value cannot
+     * overflow) and the fraction truncated toward zero.
+     * @return the value, 0 for blank text, or NOT_PLAIN (which no such text can produce) for anything else.
+     */
+    private static long parsePlainLong(CharSequence chars, int start, int end)
+    {
+        while (start < end && chars.charAt(start) <= ' ')
+        {
+            start++;
+        }
+        while (end > start && chars.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        if (start == end)
+        {
+            return 0;
+        }
+
+        int i = start;
+        char c = chars.charAt(i);
+        boolean negative = c == '-';
+        if (negative || c == '+')
+        {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < end && (c = chars.charAt(i)) >= '0' && c <= '9')
+        {
+            if (digits == 18)
+            {
+                return NOT_PLAIN;
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            i++;
+        }
+        if (i < end && chars.charAt(i) == '.')
+        {
+            i++;
+            while (i < end && (c = chars.charAt(i)) >= '0' && c <= '9')
+            {
+                digits++;
+                i++;
+            }
+        }
+        if (i != end || digits == 0)
+        {
+            return NOT_PLAIN;
+        }
+        return negative ? -value : value;
+    }
+
     private static String nope(Object fromInstance, String targetType)
     {
         if (fromInstance == null)
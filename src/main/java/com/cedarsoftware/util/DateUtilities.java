@@ -87,6 +87,11 @@ public final class DateUtilities
         {
             return null;
         }
+        Date date = IsoDateTime.parse(dateStr);
+        if (date != null)
+        {   // Strict ISO-8601 (the form Converter writes) - no regex work needed
+            return date;
+        }
 
         // Determine which date pattern (Matcher) to use
         Matcher matcher = datePattern1.matcher(dateStr);
@@ -5,6 +5,8 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.cedarsoftware.util.Converter.convert2BigDecimal;
@@ -33,7 +35,11 @@ import static com.cedarsoftware.util.Converter.convert2boolean;
  * will match.  If the flag "ALLOW_STRING_TO_MATCH_NUMBERS" is passed in the options
  * are set to true, then Strings will be converted to BigDecimal and compared to
  * the corresponding non-String Number.  Two Strings will not be compared as numbers,
- * however.
+ * however.<br><br>
+ *
+ * Very large graphs can be compared on several threads by passing the PARALLEL option,
+ * set to true (common ForkJoinPool) or to the ForkJoinPool to use.  To find out why two
+ * graphs are not equal, use deepDiff(), which reports the path to each difference.
  *
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
@@ -58,6 +64,7 @@ public class DeepEquals
 
     public static final String IGNORE_CUSTOM_EQUALS = "ignoreCustomEquals";
     public static final String ALLOW_STRINGS_TO_MATCH_NUMBERS = "stringsCanMatchNumbers";
+    public static final String PARALLEL = "parallel";
     private static final Map<String, Boolean> _customEquals = new ConcurrentHashMap<>();
     private static final Map<String, Boolean> _customHash = new ConcurrentHashMap<>();
     private static final double doubleEplison = 1e-15;
@@ -76,42 +83,441 @@ public class DeepEquals
         prims.add(Short.class);
     }
 
-    private final static class ItemsToCompare
+    /**
+     * LIFO stack of (key1, key2) pairs still to be compared, held side by side in one array - pushing a pair
+     * allocates nothing (beyond an occasional doubling of the array).
+     */
+    private static final class WorkStack
+    {
+        private Object[] items = new Object[64];
+        private int size;
+
+        void push(Object key1, Object key2)
+        {
+            if (size + 2 > items.length)
+            {
+                items = Arrays.copyOf(items, items.length << 1);
+            }
+            items[size++] = key1;
+            items[size++] = key2;
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        /**
+         * Move the bottom (oldest) half of the pairs to a new stack - these are the pairs nearest the roots of the
+         * graph, so they usually carry the most work with them.
+         */
+        WorkStack split()
+        {
+            final int half = (size >> 2) << 1;
+            WorkStack other = new WorkStack();
+            other.items = Arrays.copyOf(items, Math.max(half << 1, 64));
+            Arrays.fill(other.items, half, other.items.length, null);
+            other.size = half;
+            System.arraycopy(items, half, items, 0, size - half);
+            Arrays.fill(items, size - half, size, null);
+            size -= half;
+            return other;
+        }
+
+        /**
+         * Remove the top item - pop() twice for a pair, key2 first.
+         */
+        Object pop()
+        {
+            Object item = items[--size];
+            items[size] = null;
+            return item;
+        }
+    }
+
+    /**
+     * Set of (key1, key2) pairs already compared, matched by identity.  Pairs are hashed by their
+     * System.identityHashCode()s - never by the objects' own hashCode(), which for a Collection or Map would walk
+     * its contents - and stored in open-addressed parallel arrays, so adding a pair allocates nothing.
+     */
+    private static class VisitedPairs
+    {
+        private Object[] keys1;
+        private Object[] keys2;
+        private int size;
+
+        VisitedPairs()
+        {
+            keys1 = new Object[64];
+            keys2 = new Object[64];
+        }
+
+        private VisitedPairs(VisitedPairs other)
+        {
+            keys1 = other.keys1.clone();
+            keys2 = other.keys2.clone();
+            size = other.size;
+        }
+
+        VisitedPairs copy()
+        {
+            return new VisitedPairs(this);
+        }
+
+        void addAll(VisitedPairs other)
+        {
+            for (int j = 0; j < other.keys1.length; j++)
+            {
+                if (other.keys1[j] != null)
+                {
+                    add(other.keys1[j], other.keys2[j]);
+                }
+            }
+        }
+
+        private static int slot(Object key1, Object key2, int mask)
+        {
+            int h = (System.identityHashCode(key1) * 31 + System.identityHashCode(key2)) * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        boolean contains(Object key1, Object key2)
+        {
+            final int mask = keys1.length - 1;
+            int i = slot(key1, key2, mask);
+            Object k;
+            while ((k = keys1[i]) != null)
+            {
+                if (k == key1 && keys2[i] == key2)
+                {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * @param key1 non-null
+         */
+        void add(Object key1, Object key2)
+        {
+            final int mask = keys1.length - 1;
+            int i = slot(key1, key2, mask);
+            Object k;
+            while ((k = keys1[i]) != null)
+            {
+                if (k == key1 && keys2[i] == key2)
+                {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys1[i] = key1;
+            keys2[i] = key2;
+            if (++size > keys1.length >> 1)
+            {
+                grow();
+            }
+        }
+
+        private void grow()
+        {
+            Object[] old1 = keys1;
+            Object[] old2 = keys2;
+            keys1 = new Object[old1.length << 1];
+            keys2 = new Object[old1.length << 1];
+            final int mask = keys1.length - 1;
+            for (int j = 0; j < old1.length; j++)
+            {
+                if (old1[j] != null)
+                {
+                    int i = slot(old1[j], old2[j], mask);
+                    while (keys1[i] != null)
+                    {
+                        i = (i + 1) & mask;
+                    }
+                    keys1[i] = old1[j];
+                    keys2[i] = old2[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * VisitedPairs shared by the tasks of a parallel comparison.  The pairs are spread over lock-striped tables by
+     * the identity of key1, so threads rarely wait on each other.  Two tasks may both miss a pair and compare it
+     * twice - that costs time, never correctness.
+     */
+    private static final class ConcurrentVisitedPairs extends VisitedPairs
     {
-        private final Object _key1;
-        private final Object _key2;
+        private final VisitedPairs[] stripes = new VisitedPairs[64];
+
+        ConcurrentVisitedPairs()
+        {
+            for (int i = 0; i < stripes.length; i++)
+            {
+                stripes[i] = new VisitedPairs();
+            }
+        }
 
-        private ItemsToCompare(Object k1, Object k2)
+        private VisitedPairs stripe(Object key1)
         {
-            _key1 = k1;
-            _key2 = k2;
+            return stripes[System.identityHashCode(key1) * 0x9E3779B9 >>> 26];
         }
 
-        public boolean equals(Object other)
+        boolean contains(Object key1, Object key2)
         {
-            if (!(other instanceof ItemsToCompare))
+            VisitedPairs stripe = stripe(key1);
+            synchronized (stripe)
+            {
+                return stripe.contains(key1, key2);
+            }
+        }
+
+        void add(Object key1, Object key2)
+        {
+            VisitedPairs stripe = stripe(key1);
+            synchronized (stripe)
+            {
+                stripe.add(key1, key2);
+            }
+        }
+
+        /**
+         * @return a single-threaded snapshot (used for the sequential compare of hash-collided items).
+         */
+        VisitedPairs copy()
+        {
+            VisitedPairs copy = new VisitedPairs();
+            for (VisitedPairs stripe : stripes)
+            {
+                synchronized (stripe)
+                {
+                    copy.addAll(stripe);
+                }
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * One worker of a parallel comparison.  It runs the same loop as the sequential compare over its own stack, and
+     * whenever the pool is running short of queued work it forks the bottom half of that stack off as a new task.
+     * The first task to find a difference raises the shared flag, and all the others stop at their next pop.
+     */
+    private static final class CompareTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int SPLIT_SIZE = 16;   // stack items (8 pairs) needed before half are handed off
+
+        private final WorkStack stack;
+        private final VisitedPairs visited;
+        private final Map<String, ?> options;
+        private final AtomicBoolean different;
+        private List<CompareTask> forked;
+
+        CompareTask(WorkStack stack, VisitedPairs visited, Map<String, ?> options, AtomicBoolean different)
+        {
+            this.stack = stack;
+            this.visited = visited;
+            this.options = options;
+            this.different = different;
+        }
+
+        protected void compute()
+        {
+            if (!compare(stack, visited, options, this))
+            {
+                different.set(true);
+            }
+            if (forked != null)
+            {
+                for (CompareTask task : forked)
+                {
+                    task.join();
+                }
+            }
+        }
+
+        /**
+         * Called before each pop.
+         * @return false if another task has already found a difference.
+         */
+        boolean share()
+        {
+            if (different.get())
             {
                 return false;
             }
+            if (stack.size() >= SPLIT_SIZE && getSurplusQueuedTaskCount() < 2)
+            {
+                CompareTask task = new CompareTask(stack.split(), visited, options, different);
+                task.fork();
+                if (forked == null)
+                {
+                    forked = new ArrayList<>();
+                }
+                forked.add(task);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One difference found by deepDiff(): where it is, the two values found there, and why they differ.
+     */
+    public static final class Difference
+    {
+        public enum Reason
+        {
+            /** The values are of different classes, or kinds (e.g. a Set and a List, or a Number and a String). */
+            TYPE_MISMATCH,
+            /** Arrays, Collections or Maps of different sizes. */
+            SIZE_MISMATCH,
+            /** Unequal values, or an element or key of the first graph with no match in the second. */
+            VALUE_MISMATCH,
+            /** Floating point numbers further apart than the tolerance deepEquals() allows. */
+            NUMERIC_EPSILON
+        }
+
+        private final String path;
+        private final Object value1;
+        private final Object value2;
+        private final Reason reason;
 
-            ItemsToCompare that = (ItemsToCompare) other;
-            return _key1 == that._key1 && _key2 == that._key2;
+        Difference(String path, Object value1, Object value2, Reason reason)
+        {
+            this.path = path;
+            this.value1 = value1;
+            this.value2 = value2;
+            this.reason = reason;
         }
 
-        public int hashCode()
+        /**
+         * @return String path from the roots to the values, e.g. <code>.children[2].attributes["weight"]</code>.
+         * Fields are written <code>.name</code>, array and List positions <code>[index]</code>, Map values
+         * <code>[key]</code> (<code>[#n]</code> for the n-th entry when the key is not a simple value), and Set
+         * elements <code>{n}</code>, n being the position in the first Set.  The roots themselves are "".  A Set element
+         * (other than a simple value) with no equal element in the second Set is compared with a leftover element of
+         * the same class, so the path continues inside it.  Which one is a guess (the first leftover in iteration
+         * order), not the closest match.  With no such element, the element is reported with a null value2.
+         */
+        public String getPath()
         {
-            int h1 = _key1 != null ? _key1.hashCode() : 0;
-            int h2 = _key2 != null ? _key2.hashCode() : 0;
-            return h1 + h2;
+            return path;
+        }
+
+        /**
+         * @return the value in the first graph (null if there is none, e.g. a missing element).
+         */
+        public Object getValue1()
+        {
+            return value1;
+        }
+
+        /**
+         * @return the value in the second graph (null if there is none, e.g. a missing element).
+         */
+        public Object getValue2()
+        {
+            return value2;
+        }
+
+        public Reason getReason()
+        {
+            return reason;
         }
 
         public String toString()
         {
-            if (_key1.getClass().isPrimitive() && _key2.getClass().isPrimitive())
+            return (path.isEmpty() ? "<root>" : path) + ": " + reason + " (" + describe(value1) + " vs " + describe(value2) + ')';
+        }
+
+        private static String describe(Object value)
+        {
+            if (value == null || value instanceof CharSequence || value instanceof Number || value instanceof Character ||
+                    value instanceof Boolean || value instanceof Enum || value instanceof Date || value instanceof Class)
+            {
+                return String.valueOf(value);
+            }
+            return value.getClass().getName();
+        }
+    }
+
+    /**
+     * A pair waiting to be diffed, with the step that led to it from its parent pair.  The path String is only built
+     * for pairs that turn out to differ.
+     */
+    private static final class DiffItem
+    {
+        private final Object key1;
+        private final Object key2;
+        private final DiffItem parent;
+        private final char kind;        // '.' field, '[' index, 'k' Map key, '{' Set element, 0 root
+        private final Object name;      // field name or Map key
+        private final int index;
+
+        DiffItem(Object key1, Object key2, DiffItem parent, char kind, Object name, int index)
+        {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.parent = parent;
+            this.kind = kind;
+            this.name = name;
+            this.index = index;
+        }
+
+        String path()
+        {   // Walk up to the root without recursion (graphs can be deeper than the call stack), then append downwards
+            List<DiffItem> steps = new ArrayList<>();
+            for (DiffItem step = this; step != null; step = step.parent)
             {
-                return _key1 + " | " + _key2;
+                steps.add(step);
+            }
+            StringBuilder path = new StringBuilder();
+            for (int i = steps.size() - 1; i >= 0; i--)
+            {
+                steps.get(i).appendStep(path);
+            }
+            return path.toString();
+        }
+
+        private void appendStep(StringBuilder path)
+        {
+            switch (kind)
+            {
+                case '.':
+                    path.append('.').append(name);
+                    break;
+                case '[':
+                    path.append('[').append(index).append(']');
+                    break;
+                case '{':
+                    path.append('{').append(index).append('}');
+                    break;
+                case 'k':
+                    if (name instanceof CharSequence || name instanceof Character)
+                    {
+                        path.append("[\"").append(name).append("\"]");
+                    }
+                    else if (name instanceof Number || name instanceof Boolean || name instanceof Enum)
+                    {
+                        path.append('[').append(name).append(']');
+                    }
+                    else
+                    {
+                        path.append("[#").append(index).append(']');
+                    }
+                    break;
+                default:
+                    break;
             }
-            return _key1.getClass().getName() + " | " + _key2.getClass().getName();
         }
     }
 
@@ -160,7 +566,9 @@ public class DeepEquals
      * This method will handle cycles correctly, for example A-&gt;B-&gt;C-&gt;A.  Suppose a and
      * a' are two separate instances of the A with the same values for all fields on
      * A, B, and C.  Then a.deepEquals(a') will return true.  It uses cycle detection
-     * storing visited objects in a Set to prevent endless loops.
+     * storing visited objects in a Set to prevent endless loops.  The traversal is iterative: pairs still to compare
+     * are kept on an array-backed stack, and the visited pairs in a table keyed by identity, so neither the depth of
+     * the graph nor the hashCode() methods of the objects in it affect the comparison.
      * @param a Object one to compare
      * @param b Object two to compare
      * @param options Map options for compare. With no option, if a custom equals()
@@ -169,7 +577,11 @@ public class DeepEquals
      *                It is a black-list of classes that will not be compared
      *                using .equals() even if the classes have a custom .equals() method
      *                present.  If it is and empty set, then no custom .equals() methods
-     *                will be called.
+     *                will be called.  If PARALLEL is true (or a ForkJoinPool), the
+     *                graphs are compared by ForkJoin tasks that steal pending pairs
+     *                from each other, on the common pool (or the given pool); the
+     *                first difference found stops all of them.  Worth it only for
+     *                graphs with many thousands of objects.
      *
      * @return true if a is equivalent to b, false otherwise.  Equivalent means that
      * all field values of both subgraphs are the same, either at the field level
@@ -178,134 +590,405 @@ public class DeepEquals
      */
     public static boolean deepEquals(Object a, Object b, Map<String, ?> options)
     {
-        Set<ItemsToCompare> visited = new HashSet<>();
-        return deepEquals(a, b, options, visited);
+        Object parallel = options.get(PARALLEL);
+        if (parallel instanceof ForkJoinPool || convert2boolean(parallel))
+        {
+            ForkJoinPool pool = parallel instanceof ForkJoinPool ? (ForkJoinPool) parallel : ForkJoinPool.commonPool();
+            WorkStack stack = new WorkStack();
+            stack.push(a, b);
+            AtomicBoolean different = new AtomicBoolean();
+            pool.invoke(new CompareTask(stack, new ConcurrentVisitedPairs(), options, different));
+            return !different.get();
+        }
+        return deepEquals(a, b, options, new VisitedPairs());
     }
 
-    private static boolean deepEquals(Object a, Object b, Map<String, ?> options, Set<ItemsToCompare> visited)
+    /**
+     * Explain why two objects are not deepEquals().  The graphs are first compared with
+     * deepEquals(a, b, options), so equal graphs cost no more than that call.  Only when they
+     * differ are they walked again, breadth first and keeping track of the path to each pair,
+     * so differences nearest the roots are reported first.  Containers that differ in type or
+     * size are reported without looking inside them.
+     * @param a Object one to compare
+     * @param b Object two to compare
+     * @param options Map options for compare, as for deepEquals(a, b, options)
+     * @param maxDifferences int the most differences to report (1 for just the first)
+     * @return List of the differences found - empty if and only if deepEquals(a, b, options) is true.
+     */
+    public static List<Difference> deepDiff(Object a, Object b, Map<String, ?> options, int maxDifferences)
     {
-        Deque<ItemsToCompare> stack = new LinkedList<>();
+        if (maxDifferences < 1)
+        {
+            throw new IllegalArgumentException("maxDifferences must be at least 1, value: " + maxDifferences);
+        }
+        if (deepEquals(a, b, options))
+        {
+            return Collections.emptyList();
+        }
+        List<Difference> differences = diff(a, b, options, maxDifferences);
+        if (differences.isEmpty())
+        {   // The walk matches Set elements and Map keys more leniently than deepEquals() - never report 'equal'
+            differences.add(new Difference("", a, b, Difference.Reason.VALUE_MISMATCH));
+        }
+        return differences;
+    }
+
+    /**
+     * @return the first difference (nearest the roots) between a and b, or null if they are deepEquals().
+     */
+    public static Difference deepDiff(Object a, Object b)
+    {
+        List<Difference> differences = deepDiff(a, b, new HashMap<>(), 1);
+        return differences.isEmpty() ? null : differences.get(0);
+    }
+
+    private static List<Difference> diff(Object a, Object b, Map<String, ?> options, int maxDifferences)
+    {
+        List<Difference> differences = new ArrayList<>();
         Set<Class<?>> ignoreCustomEquals = (Set<Class<?>>) options.get(IGNORE_CUSTOM_EQUALS);
         final boolean allowStringsToMatchNumbers = convert2boolean(options.get(ALLOW_STRINGS_TO_MATCH_NUMBERS));
+        Map<String, Object> sequential = new HashMap<>(options);
+        sequential.remove(PARALLEL);
+        VisitedPairs visited = new VisitedPairs();
+        Deque<DiffItem> queue = new ArrayDeque<>();
+        queue.add(new DiffItem(a, b, null, (char) 0, null, 0));
 
-        stack.addFirst(new ItemsToCompare(a, b));
-
-        while (!stack.isEmpty())
+        while (!queue.isEmpty() && differences.size() < maxDifferences)
         {
-            ItemsToCompare itemsToCompare = stack.removeFirst();
-            visited.add(itemsToCompare);
-
-            final Object key1 = itemsToCompare._key1;
-            final Object key2 = itemsToCompare._key2;
-            if (key1 == key2)
-            {   // Same instance is always equal to itself.
+            final DiffItem item = queue.remove();
+            final Object key1 = item.key1;
+            final Object key2 = item.key2;
+            if (key1 == key2 || (key1 != null && visited.contains(key1, key2)))
+            {
                 continue;
             }
 
-            if (key1 == null || key2 == null)
-            {   // If either one is null, they are not equal (both can't be null, due to above comparison).
-                return false;
+            Difference.Reason reason = mismatch(key1, key2, allowStringsToMatchNumbers);
+            if (reason != null)
+            {
+                differences.add(new Difference(item.path(), key1, key2, reason));
+                continue;
             }
 
-            if (key1 instanceof Number && key2 instanceof Number && compareNumbers((Number)key1, (Number)key2))
-            {
+            if (isLeaf(key1))
+            {   // Equal leaf (an unequal one has a reason above)
                 continue;
             }
+            Class<?> key1Class = key1.getClass();
+
+            visited.add(key1, key2);
 
-            if (key1 instanceof AtomicBoolean && key2 instanceof AtomicBoolean)
+            if (key1 instanceof Set<?>)
             {
-                if (!compareAtomicBoolean((AtomicBoolean)key1, (AtomicBoolean)key2)) {
-                    return false;
-                } else {
-                    continue;
+                diffUnorderedCollection(item, (Collection<?>) key1, (Collection<?>) key2, queue, differences, sequential);
+            }
+            else if (key1 instanceof Collection<?>)
+            {
+                Iterator<?> i1 = ((Collection<?>) key1).iterator();
+                Iterator<?> i2 = ((Collection<?>) key2).iterator();
+                for (int i = 0; i1.hasNext(); i++)
+                {
+                    queue.add(new DiffItem(i1.next(), i2.next(), item, '[', null, i));
                 }
             }
-
-            if (key1 instanceof Number || key2 instanceof Number)
-            {   // If one is a Number and the other one is not, then optionally compare them as strings, otherwise return false
-                if (allowStringsToMatchNumbers)
+            else if (key1 instanceof Map)
+            {
+                diffMap(item, (Map<?, ?>) key1, (Map<?, ?>) key2, queue, differences, sequential);
+            }
+            else if (key1Class.isArray())
+            {
+                final int len = Array.getLength(key1);
+                for (int i = 0; i < len; i++)
+                {
+                    queue.add(new DiffItem(Array.get(key1, i), Array.get(key2, i), item, '[', null, i));
+                }
+            }
+            else if (hasCustomEquals(key1Class) &&
+                    (ignoreCustomEquals == null || (ignoreCustomEquals.size() > 0 && !ignoreCustomEquals.contains(key1Class))))
+            {
+                if (!key1.equals(key2))
+                {
+                    differences.add(new Difference(item.path(), key1, key2, Difference.Reason.VALUE_MISMATCH));
+                }
+            }
+            else
+            {
+                for (Field field : ReflectionUtils.getDeepDeclaredFields(key1Class))
                 {
                     try
                     {
-                        if (key1 instanceof String && compareNumbers(convert2BigDecimal(key1), (Number)key2))
-                        {
-                            continue;
-                        }
-                        else if (key2 instanceof String && compareNumbers((Number)key1, convert2BigDecimal(key2)))
-                        {
-                            continue;
-                        }
+                        queue.add(new DiffItem(field.get(key1), field.get(key2), item, '.', field.getName(), 0));
                     }
-                    catch (Exception ignore) { }
+                    catch (Exception ignored)
+                    { }
                 }
-                return false;
             }
+        }
+        return differences.size() > maxDifferences ? differences.subList(0, maxDifferences) : differences;
+    }
 
-            Class<?> key1Class = key1.getClass();
+    /**
+     * The checks that need nothing but the two values (key1 != key2): nulls, numbers, leaf values, and the kind, class
+     * and size of containers.  Used by both compare() and diff().
+     * @return why key1 and key2 differ, or null if they are equal leaves (see isLeaf()), or containers / objects of
+     * the same kind and size, which must be looked into.
+     */
+    private static Difference.Reason mismatch(Object key1, Object key2, boolean allowStringsToMatchNumbers)
+    {
+        if (key1 == null || key2 == null)
+        {
+            return Difference.Reason.VALUE_MISMATCH;
+        }
 
-            if (key1Class.isPrimitive() || prims.contains(key1Class) || key1 instanceof String || key1 instanceof Date || key1 instanceof Class)
+        if (key1 instanceof Number && key2 instanceof Number)
+        {
+            if (compareNumbers((Number) key1, (Number) key2))
             {
-                if (!key1.equals(key2))
-                {
-                    return false;
-                }
-                continue;   // Nothing further to push on the stack
+                return null;
             }
+            boolean floating1 = key1 instanceof Float || key1 instanceof Double;
+            boolean floating2 = key2 instanceof Float || key2 instanceof Double;
+            return floating1 && floating2 ? Difference.Reason.NUMERIC_EPSILON : Difference.Reason.VALUE_MISMATCH;
+        }
 
-            if (key1 instanceof Set)
+        if (key1 instanceof AtomicBoolean && key2 instanceof AtomicBoolean)
+        {
+            return compareAtomicBoolean((AtomicBoolean) key1, (AtomicBoolean) key2) ? null : Difference.Reason.VALUE_MISMATCH;
+        }
+
+        if (key1 instanceof Number || key2 instanceof Number)
+        {
+            if (allowStringsToMatchNumbers)
             {
-                if (!(key2 instanceof Set))
+                try
                 {
-                    return false;
+                    if (key1 instanceof String && compareNumbers(convert2BigDecimal(key1), (Number) key2))
+                    {
+                        return null;
+                    }
+                    else if (key2 instanceof String && compareNumbers((Number) key1, convert2BigDecimal(key2)))
+                    {
+                        return null;
+                    }
+                }
+                catch (Exception ignore) { }
+                if (key1 instanceof String || key2 instanceof String)
+                {
+                    return Difference.Reason.VALUE_MISMATCH;
                 }
             }
-            else if (key2 instanceof Set)
+            return Difference.Reason.TYPE_MISMATCH;
+        }
+
+        Class<?> key1Class = key1.getClass();
+        if (key1Class.isPrimitive() || prims.contains(key1Class) || key1 instanceof String || key1 instanceof Date || key1 instanceof Class)
+        {
+            if (key1.equals(key2))
             {
-                return false;
+                return null;
             }
+            return key1Class == key2.getClass() ? Difference.Reason.VALUE_MISMATCH : Difference.Reason.TYPE_MISMATCH;
+        }
+
+        Class<?> key2Class = key2.getClass();
+        if ((key1 instanceof Set) != (key2 instanceof Set) || (key1 instanceof Collection) != (key2 instanceof Collection) ||
+                (key1 instanceof Map) != (key2 instanceof Map) || key1Class.isArray() != key2Class.isArray())
+        {
+            return Difference.Reason.TYPE_MISMATCH;
+        }
+
+        if (!isContainerType(key1) && !key1Class.equals(key2Class))
+        {
+            return Difference.Reason.TYPE_MISMATCH;
+        }
 
-            if (key1 instanceof Collection)
-            {   // If Collections, they both must be Collection
-                if (!(key2 instanceof Collection))
+        if (key1 instanceof Collection)
+        {
+            return ((Collection<?>) key1).size() == ((Collection<?>) key2).size() ? null : Difference.Reason.SIZE_MISMATCH;
+        }
+        if (key1 instanceof Map)
+        {
+            return ((Map<?, ?>) key1).size() == ((Map<?, ?>) key2).size() ? null : Difference.Reason.SIZE_MISMATCH;
+        }
+        if (key1Class.isArray())
+        {
+            return Array.getLength(key1) == Array.getLength(key2) ? null : Difference.Reason.SIZE_MISMATCH;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if 'key' is a value compared as a whole by mismatch(), with nothing inside it to traverse.
+     */
+    private static boolean isLeaf(Object key)
+    {
+        Class<?> keyClass = key.getClass();
+        return keyClass.isPrimitive() || prims.contains(keyClass) || key instanceof Number || key instanceof AtomicBoolean ||
+                key instanceof String || key instanceof Date || key instanceof Class;
+    }
+
+    /**
+     * Queue each element of the first Set against its match (by deepHashCode()) in the second.  An object or
+     * container with no match is paired with a leftover element of the same class in the second Set (the first one,
+     * in iteration order), so that the difference inside it is found.  Other elements are reported as missing.
+     */
+    private static void diffUnorderedCollection(DiffItem item, Collection<?> col1, Collection<?> col2, Deque<DiffItem> queue, List<Difference> differences, Map<String, ?> options)
+    {
+        Map<Integer, Collection<Object>> fastLookup = new HashMap<>();
+        for (Object o : col2)
+        {
+            fastLookup.computeIfAbsent(deepHashCode(o), k -> new ArrayList<>()).add(o);
+        }
+
+        Map<Integer, Object> unmatched = new LinkedHashMap<>();     // position in col1 -> element
+        int i = 0;
+        for (Object o : col1)
+        {
+            Collection<Object> other = fastLookup.get(deepHashCode(o));
+            final int index = i++;
+            if (other != null && other.size() == 1)
+            {   // Same deepHashCode() - queue the pair to find out where they differ, if they do
+                queue.add(new DiffItem(o, other.iterator().next(), item, '{', null, index));
+                other.clear();
+                continue;
+            }
+            boolean found = false;
+            if (other != null)
+            {
+                Iterator<Object> candidates = other.iterator();
+                while (!found && candidates.hasNext())
                 {
-                    return false;
+                    if (deepEquals(o, candidates.next(), options))
+                    {
+                        candidates.remove();
+                        found = true;
+                    }
                 }
             }
-            else if (key2 instanceof Collection)
+            if (!found)
             {
-                return false;
+                unmatched.put(index, o);
             }
+        }
 
-            if (key1 instanceof Map)
+        List<Object> leftovers = new ArrayList<>();
+        for (Collection<Object> other : fastLookup.values())
+        {
+            leftovers.addAll(other);
+        }
+        for (Map.Entry<Integer, Object> entry : unmatched.entrySet())
+        {
+            Object o = entry.getValue();
+            Object match = null;
+            for (Iterator<Object> candidates = leftovers.iterator(); match == null && candidates.hasNext(); )
             {
-                if (!(key2 instanceof Map))
+                Object candidate = candidates.next();
+                if (o != null && candidate != null && o.getClass() == candidate.getClass() && !isLeaf(o))
                 {
-                    return false;
+                    candidates.remove();
+                    match = candidate;
                 }
             }
-            else if (key2 instanceof Map)
+            DiffItem element = new DiffItem(o, match, item, '{', null, entry.getKey());
+            if (match == null)
+            {   // Element missing from the second Set
+                differences.add(new Difference(element.path(), o, null, Difference.Reason.VALUE_MISMATCH));
+            }
+            else
             {
-                return false;
+                queue.add(element);
             }
+        }
+    }
 
-            Class<?> key2Class = key2.getClass();
-            if (key1Class.isArray())
+    /**
+     * Queue each value of the first Map against the value of the equal key in the second.  Keys with no equal key in
+     * the second Map are reported straight away.
+     */
+    private static void diffMap(DiffItem item, Map<?, ?> map1, Map<?, ?> map2, Deque<DiffItem> queue, List<Difference> differences, Map<String, ?> options)
+    {
+        Map<Integer, Collection<Map.Entry<?, ?>>> fastLookup = new HashMap<>();
+        for (Map.Entry<?, ?> entry : map2.entrySet())
+        {
+            fastLookup.computeIfAbsent(deepHashCode(entry.getKey()), k -> new ArrayList<>()).add(entry);
+        }
+
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map1.entrySet())
+        {
+            Collection<Map.Entry<?, ?>> other = fastLookup.get(deepHashCode(entry.getKey()));
+            Map.Entry<?, ?> match = null;
+            if (other != null)
             {
-                if (!key2Class.isArray())
+                Iterator<Map.Entry<?, ?>> candidates = other.iterator();
+                while (candidates.hasNext())
                 {
-                    return false;
+                    Map.Entry<?, ?> candidate = candidates.next();
+                    if (deepEquals(entry.getKey(), candidate.getKey(), options))
+                    {
+                        candidates.remove();
+                        match = candidate;
+                        break;
+                    }
                 }
             }
-            else if (key2Class.isArray())
+            DiffItem value = new DiffItem(entry.getValue(), match == null ? null : match.getValue(), item, 'k', entry.getKey(), i++);
+            if (match == null)
+            {   // Key missing from the second Map
+                differences.add(new Difference(value.path(), entry.getValue(), null, Difference.Reason.VALUE_MISMATCH));
+            }
+            else
+            {
+                queue.add(value);
+            }
+        }
+    }
+
+    private static boolean deepEquals(Object a, Object b, Map<String, ?> options, VisitedPairs visited)
+    {
+        WorkStack stack = new WorkStack();
+        stack.push(a, b);
+        return compare(stack, visited, options, null);
+    }
+
+    /**
+     * Compare the pairs on the stack, and all the pairs they lead to.
+     * @param task the parallel task running this compare, or null when single-threaded
+     * @return false as soon as a difference is found (or, when parallel, another task has found one).
+     */
+    private static boolean compare(WorkStack stack, VisitedPairs visited, Map<String, ?> options, CompareTask task)
+    {
+        Set<Class<?>> ignoreCustomEquals = (Set<Class<?>>) options.get(IGNORE_CUSTOM_EQUALS);
+        final boolean allowStringsToMatchNumbers = convert2boolean(options.get(ALLOW_STRINGS_TO_MATCH_NUMBERS));
+
+        while (!stack.isEmpty())
+        {
+            if (task != null && !task.share())
             {
                 return false;
             }
+            final Object key2 = stack.pop();
+            final Object key1 = stack.pop();
+            if (key1 == key2)
+            {   // Same instance is always equal to itself.
+                continue;
+            }
 
-            if (!isContainerType(key1) && !isContainerType(key2) && !key1Class.equals(key2.getClass()))
-            {   // Must be same class
+            if (mismatch(key1, key2, allowStringsToMatchNumbers) != null)
+            {
                 return false;
             }
 
+            if (isLeaf(key1))
+            {   // Equal leaf, nothing further to push on the stack
+                continue;
+            }
+
+            Class<?> key1Class = key1.getClass();
+
+            // Only pairs whose contents are traversed are recorded - leaf values cannot lead back into the graph.
+            visited.add(key1, key2);
+
             // Special handle Sets - items matter but order does not for equality.
             if (key1 instanceof Set<?>)
             {
@@ -372,11 +1055,7 @@ public class DeepEquals
             {
                 try
                 {
-                    ItemsToCompare dk = new ItemsToCompare(field.get(key1), field.get(key2));
-                    if (!visited.contains(dk))
-                    {
-                        stack.addFirst(dk);
-                    }
+                    push(field.get(key1), field.get(key2), stack, visited);
                 }
                 catch (Exception ignored)
                 { }
@@ -386,6 +1065,17 @@ public class DeepEquals
         return true;
     }
 
+    /**
+     * Push the pair for comparison, unless it has already been compared.
+     */
+    private static void push(Object key1, Object key2, WorkStack stack, VisitedPairs visited)
+    {
+        if (key1 == null || !visited.contains(key1, key2))
+        {
+            stack.push(key1, key2);
+        }
+    }
+
     public static boolean isContainerType(Object o)
     {
         return o instanceof Collection || o instanceof Map;
@@ -400,23 +1090,15 @@ public class DeepEquals
      * @param visited Set of objects already compared (prevents cycles)
      * @return true if the two arrays are the same length and contain deeply equivalent items.
      */
-    private static boolean compareArrays(Object array1, Object array2, Deque<ItemsToCompare> stack, Set<?> visited)
+    private static boolean compareArrays(Object array1, Object array2, WorkStack stack, VisitedPairs visited)
     {
-        // Same instance check already performed...
+        // Same instance and size checks already performed (mismatch())...
 
         final int len = Array.getLength(array1);
-        if (len != Array.getLength(array2))
-        {
-            return false;
-        }
 
         for (int i = 0; i < len; i++)
-        {
-            ItemsToCompare dk = new ItemsToCompare(Array.get(array1, i), Array.get(array2, i));
-            if (!visited.contains(dk))
-            {   // push contents for further comparison
-                stack.addFirst(dk);
-            }
+        {   // push contents for further comparison
+            push(Array.get(array1, i), Array.get(array2, i), stack, visited);
         }
         return true;
     }
@@ -430,32 +1112,22 @@ public class DeepEquals
      * value of 'true' indicates that the Collections may be equal, and the sets
      * items will be added to the Stack for further comparison.
      */
-    private static boolean compareOrderedCollection(Collection<?> col1, Collection<?> col2, Deque<ItemsToCompare> stack, Set<?> visited)
+    private static boolean compareOrderedCollection(Collection<?> col1, Collection<?> col2, WorkStack stack, VisitedPairs visited)
     {
-        // Same instance check already performed...
-
-        if (col1.size() != col2.size())
-        {
-            return false;
-        }
+        // Same instance and size checks already performed (mismatch())...
 
         Iterator<?> i1 = col1.iterator();
         Iterator<?> i2 = col2.iterator();
 
         while (i1.hasNext())
-        {
-            ItemsToCompare dk = new ItemsToCompare(i1.next(), i2.next());
-            if (!visited.contains(dk))
-            {   // push contents for further comparison
-                stack.addFirst(dk);
-            }
+        {   // push contents for further comparison
+            push(i1.next(), i2.next(), stack, visited);
         }
         return true;
     }
 
     /**
-     * Deeply compare the two sets referenced by ItemsToCompare.  This method attempts
-     * to quickly determine inequality by length, then if lengths match, it
+     * Deeply compare two sets of the same size.  This method
      * places one collection into a temporary Map by deepHashCode(), so that it
      * can walk the other collection and look for each item in the map, which
      * runs in O(N) time, rather than an O(N^2) lookup that would occur if each
@@ -470,14 +1142,9 @@ public class DeepEquals
      * value of 'true' indicates that the Collections may be equal, and the sets
      * items will be added to the Stack for further comparison.
      */
-    private static boolean compareUnorderedCollection(Collection<?> col1, Collection<?> col2, Deque<ItemsToCompare> stack, Set<ItemsToCompare> visited, Map<String, ?> options)
+    private static boolean compareUnorderedCollection(Collection<?> col1, Collection<?> col2, WorkStack stack, VisitedPairs visited, Map<String, ?> options)
     {
-        // Same instance check already performed...
-
-        if (col1.size() != col2.size())
-        {
-            return false;
-        }
+        // Same instance and size checks already performed (mismatch())...
 
         Map<Integer, Collection<Object>> fastLookup = new HashMap<>();
         for (Object o : col2)
@@ -497,11 +1164,7 @@ public class DeepEquals
 
             if (other.size() == 1)
             {   // no hash collision, items must be equivalent or deepEquals is false
-                ItemsToCompare dk = new ItemsToCompare(o, other.iterator().next());
-                if (!visited.contains(dk))
-                {   // Place items on 'stack' for future equality comparison.
-                    stack.addFirst(dk);
-                }
+                push(o, other.iterator().next(), stack, visited);
             }
             else
             {   // hash collision: try all collided items against the current item (if 1 equals, we are good - remove it
@@ -526,14 +1189,9 @@ public class DeepEquals
      * @return false if the Maps are for certain not equals.  'true' indicates that 'on the surface' the maps
      * are equal, however, it will place the contents of the Maps on the stack for further comparisons.
      */
-    private static boolean compareMap(Map<?, ?> map1, Map<?, ?> map2, Deque<ItemsToCompare> stack, Set<ItemsToCompare> visited, Map<String, ?> options)
+    private static boolean compareMap(Map<?, ?> map1, Map<?, ?> map2, WorkStack stack, VisitedPairs visited, Map<String, ?> options)
     {
-        // Same instance check already performed...
-
-        if (map1.size() != map2.size())
-        {
-            return false;
-        }
+        // Same instance and size checks already performed (mismatch())...
 
         Map<Integer, Collection<Object>> fastLookup = new HashMap<>();
 
@@ -558,17 +1216,8 @@ public class DeepEquals
             if (other.size() == 1)
             {
                 Map.Entry<?, ?> entry2 = (Map.Entry<?, ?>)other.iterator().next();
-                ItemsToCompare dk = new ItemsToCompare(entry.getKey(), entry2.getKey());
-                if (!visited.contains(dk))
-                {   // Push keys for further comparison
-                    stack.addFirst(dk);
-                }
-
-                dk = new ItemsToCompare(entry.getValue(), entry2.getValue());
-                if (!visited.contains(dk))
-                {   // Push values for further comparison
-                    stack.addFirst(dk);
-                }
+                push(entry.getKey(), entry2.getKey(), stack, visited);          // Push keys for further comparison
+                push(entry.getValue(), entry2.getValue(), stack, visited);      // Push values for further comparison
             }
             else
             {   // hash collision: try all collided items against the current item (if 1 equals, we are good - remove it
@@ -587,14 +1236,17 @@ public class DeepEquals
      * @return true if the passed in o is within the passed in Collection, using a deepEquals comparison
      * element by element.  Used only for hash collisions.
      */
-    private static boolean isContained(Object o, Collection<?> other, Set<ItemsToCompare> visited, Map<String, ?> options)
+    private static boolean isContained(Object o, Collection<?> other, VisitedPairs visited, Map<String, ?> options)
     {
         Iterator<?> i = other.iterator();
         while (i.hasNext())
         {
             Object x = i.next();
-            Set<ItemsToCompare> visitedForSubelements = new HashSet<>(visited);
-            visitedForSubelements.add(new ItemsToCompare(o, x));
+            VisitedPairs visitedForSubelements = visited.copy();
+            if (o != null)
+            {
+                visitedForSubelements.add(o, x);
+            }
             if (DeepEquals.deepEquals(o, x, options, visitedForSubelements))
             {
                 i.remove(); // can only be used successfully once - remove from list
@@ -0,0 +1,330 @@
+package com.cedarsoftware.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Hand-rolled ISO-8601 formatting and parsing for Converter and DateUtilities.  Formatting computes the calendar
+ * fields arithmetically and writes them into a char[], rather than going through String.format(), a
+ * DateTimeFormatter or a SimpleDateFormat.  Parsing reads the fixed-position fields of strict ISO text directly,
+ * without the regular expressions and substrings of DateUtilities.parseDate().<p></p>
+ *
+ * Each method produces exactly what the general-purpose path produces.  Where the arithmetic could differ from it
+ * (years outside 1583..9999, where java.util calendars switch to the Julian calendar or formats change width, and
+ * offsets with seconds), formatting returns the general-purpose result and parsing returns null so the caller falls
+ * back.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+final class IsoDateTime
+{
+    static final String DATE_TIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final DateTimeFormatter ZONED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    private static final int MIN_YEAR = 1583;   // first full year of the Gregorian calendar
+    private static final int MAX_YEAR = 9999;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private IsoDateTime() { }
+
+    /**
+     * @return "yyyy-MM-ddTHH:mm:ss" for the Date in the default time zone, as SimpleDateFormat(DATE_TIME_PATTERN).
+     */
+    static String format(Date date)
+    {
+        long millis = date.getTime();
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        long epochDay = Math.floorDiv(local, MILLIS_PER_DAY);
+        int year = yearOfEpochDay(epochDay);
+        if (year < MIN_YEAR || year > MAX_YEAR)
+        {
+            return SafeSimpleDateFormat.getDateFormat(DATE_TIME_PATTERN).format(date);
+        }
+        char[] buf = new char[19];
+        writeDate(buf, epochDay);
+        writeTime(buf, (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000));
+        return new String(buf);
+    }
+
+    /**
+     * @return "yyyy-MM-dd", as String.format("%04d-%02d-%02d").
+     */
+    static String format(LocalDate date)
+    {
+        int year = date.getYear();
+        if (year < 0 || year > MAX_YEAR)
+        {
+            return String.format("%04d-%02d-%02d", year, date.getMonthValue(), date.getDayOfMonth());
+        }
+        char[] buf = new char[10];
+        writeDate(buf, year, date.getMonthValue(), date.getDayOfMonth());
+        return new String(buf);
+    }
+
+    /**
+     * @return "yyyy-MM-ddTHH:mm:ss" (fraction of a second dropped), as String.format("%04d-%02d-%02dT%02d:%02d:%02d").
+     */
+    static String format(LocalDateTime dateTime)
+    {
+        int year = dateTime.getYear();
+        if (year < 0 || year > MAX_YEAR)
+        {
+            return String.format("%04d-%02d-%02dT%02d:%02d:%02d", year, dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+                    dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+        }
+        char[] buf = new char[19];
+        writeDate(buf, year, dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        writeTime(buf, dateTime.toLocalTime().toSecondOfDay());
+        return new String(buf);
+    }
+
+    /**
+     * @return "yyyy-MM-ddTHH:mm:ss+HHMM", as DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").
+     */
+    static String format(ZonedDateTime dateTime)
+    {
+        int year = dateTime.getYear();
+        int offset = dateTime.getOffset().getTotalSeconds();
+        if (year < 1 || year > MAX_YEAR || offset % 60 != 0)
+        {   // 'yyyy' is year-of-era, and 'Z' drops offset seconds
+            return dateTime.format(ZONED_FORMAT);
+        }
+        char[] buf = new char[24];
+        writeDate(buf, year, dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        writeTime(buf, dateTime.toLocalTime().toSecondOfDay());
+        buf[19] = offset < 0 ? '-' : '+';
+        int minutes = Math.abs(offset) / 60;
+        write2(buf, 20, minutes / 60);
+        write2(buf, 22, minutes % 60);
+        return new String(buf);
+    }
+
+    /**
+     * Parse strict ISO-8601 text - "yyyy-MM-dd", or "yyyy-MM-dd" then 'T' (or a space) then "HH:mm:ss", an optional
+     * fraction of a second, and an optional "Z", "+HH:mm" or "+HHmm" - to the same Date DateUtilities.parseDate()
+     * returns for it.
+     * @param text trimmed, non-empty date String.
+     * @return the Date, or null if the text has any other form or a field out of range (so that the caller's
+     * general-purpose parse handles it, or reports the error).
+     */
+    static Date parse(String text)
+    {
+        int len = text.length();
+        if (len < 10 || text.charAt(4) != '-' || text.charAt(7) != '-')
+        {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31)
+        {
+            return null;
+        }
+        if (len == 10)
+        {
+            Calendar c = Calendar.getInstance();
+            c.clear();
+            c.set(year, month - 1, day);
+            return c.getTime();
+        }
+
+        char sep = text.charAt(10);
+        if (len < 19 || (sep != 'T' && sep != ' ') || text.charAt(13) != ':' || text.charAt(16) != ':')
+        {
+            return null;
+        }
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59)
+        {
+            return null;
+        }
+
+        int pos = 19;
+        int millis = 0;
+        if (pos < len && text.charAt(pos) == '.')
+        {   // First three digits are the milliseconds (as DateUtilities.prepareMillis())
+            int start = ++pos;
+            while (pos < len && isDigit(text.charAt(pos)))
+            {
+                if (pos - start < 3)
+                {
+                    millis = millis * 10 + text.charAt(pos) - '0';
+                }
+                pos++;
+            }
+            int count = pos - start;
+            if (count == 0 || count > 10)
+            {
+                return null;
+            }
+            for (int i = count; i < 3; i++)
+            {
+                millis *= 10;
+            }
+        }
+
+        if (pos == len)
+        {   // No zone - local time in the default time zone, computed as DateUtilities does
+            Calendar c = Calendar.getInstance();
+            c.clear();
+            c.set(year, month - 1, day, hour, minute, second);
+            c.set(Calendar.MILLISECOND, millis);
+            return c.getTime();
+        }
+
+        int offsetMinutes;
+        char c = text.charAt(pos);
+        if (c == 'Z')
+        {
+            if (pos + 1 != len)
+            {
+                return null;
+            }
+            offsetMinutes = 0;
+        }
+        else if (c == '+' || c == '-')
+        {
+            int colon = len - pos == 6 && text.charAt(pos + 3) == ':' ? 1 : 0;
+            if (len - pos != 5 + colon)
+            {
+                return null;
+            }
+            int offsetHours = digits(text, pos + 1, 2);
+            int offsetMins = digits(text, pos + 3 + colon, 2);
+            if (offsetHours < 0 || offsetHours > 23 || offsetMins < 0 || offsetMins > 59)
+            {
+                return null;
+            }
+            offsetMinutes = (offsetHours * 60 + offsetMins) * (c == '-' ? -1 : 1);
+        }
+        else
+        {
+            return null;
+        }
+        if (year < MIN_YEAR)
+        {
+            return null;
+        }
+
+        // Days past the end of the month roll over, as the lenient Calendar does
+        long epochDay = epochDayOf(year, month, 1) + day - 1;
+        long local = epochDay * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+        return new Date(local - offsetMinutes * 60000L);
+    }
+
+    /**
+     * @return value of 'count' ASCII digits starting at 'start', or -1 if any of them is not a digit.
+     */
+    private static int digits(String text, int start, int count)
+    {
+        int value = 0;
+        for (int i = start; i < start + count; i++)
+        {
+            char c = text.charAt(i);
+            if (!isDigit(c))
+            {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return days from 1970-01-01 to the given proleptic Gregorian date (month 1-12).
+     */
+    static long epochDayOf(int year, int month, int day)
+    {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;   // from March 1st
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int yearOfEpochDay(long epochDay)
+    {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long marchMonth = (5 * dayOfYear + 2) / 153;
+        return (int) (yearOfEra + era * 400 + (marchMonth >= 10 ? 1 : 0));
+    }
+
+    /**
+     * Write "yyyy-MM-dd" for the epoch day into buf[0..9].
+     */
+    private static void writeDate(char[] buf, long epochDay)
+    {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int marchMonth = (int) ((5 * dayOfYear + 2) / 153);
+        int day = (int) (dayOfYear - (153 * marchMonth + 2) / 5 + 1);
+        int month = marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+        writeDate(buf, (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0)), month, day);
+    }
+
+    /**
+     * Write "yyyy-MM-dd" into buf[0..9]; year must be 0..9999.
+     */
+    private static void writeDate(char[] buf, int year, int month, int day)
+    {
+        write2(buf, 0, year / 100);
+        write2(buf, 2, year % 100);
+        buf[4] = '-';
+        write2(buf, 5, month);
+        buf[7] = '-';
+        write2(buf, 8, day);
+    }
+
+    /**
+     * Write "THH:mm:ss" into buf[10..18].
+     */
+    private static void writeTime(char[] buf, int secondOfDay)
+    {
+        buf[10] = 'T';
+        write2(buf, 11, secondOfDay / 3600);
+        buf[13] = ':';
+        write2(buf, 14, secondOfDay / 60 % 60);
+        buf[16] = ':';
+        write2(buf, 17, secondOfDay % 60);
+    }
+
+    private static void write2(char[] buf, int pos, int value)
+    {
+        buf[pos] = (char) ('0' + value / 10);
+        buf[pos + 1] = (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,559 @@
+package com.cedarsoftware.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only Map of String keys (matched case-insensitively) to String values, held entirely outside the Java heap,
+ * for dictionaries of tens of millions of entries where an on-heap CaseInsensitiveMap would mean gigabytes of small
+ * objects for the garbage collector to trace.  The heap holds only this object and a handful of ByteBuffers.<p></p>
+ *
+ * Each entry is one record in a data area: key length, value length, the key's case-insensitive hash (as
+ * StringUtilities.hashCodeIgnoreCase()), then the key and value in UTF-8.  The data area is split into chunks of up
+ * to 1GB (a ByteBuffer is int-indexed), and a record never straddles two chunks.  An open-addressed (linear
+ * probing, at most 3/4 full) index of long offsets into the data area maps a hash to its record.  get() computes the
+ * hash, probes the index, and compares the key against the record's UTF-8 bytes directly, folding ASCII case inline;
+ * only keys with non-ASCII characters are decoded to compare them.  get() allocates nothing but the value String it
+ * returns.<p></p>
+ *
+ * build() streams entries into direct ByteBuffers (if a key appears more than once, ignoring case, the last entry
+ * wins - its value and its key's case).  save() writes the header, index, and data area to a file, and load() maps
+ * that file read-only (mmap), so a saved dictionary is available immediately, paged in by the operating system as it
+ * is used, and shared between processes that load the same file.<pre>
+ *
+ *     OffHeapCaseInsensitiveMap aliases = OffHeapCaseInsensitiveMap.build(source.entrySet());
+ *     aliases.save(new File("aliases.cimap"));
+ *     ...
+ *     OffHeapCaseInsensitiveMap aliases = OffHeapCaseInsensitiveMap.load(new File("aliases.cimap"));
+ * </pre>
+ * The map is immutable, and safe for any number of threads to read.  Null keys and values are not permitted.  The
+ * index must fit in one ByteBuffer, which limits a map to about 200 million entries.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public final class OffHeapCaseInsensitiveMap extends AbstractMap<String, String>
+{
+    private static final int MAGIC = 0x4349484D;     // "CIHM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;      // magic, version, size, slotCount, chunkShift, unused, dataLength
+    private static final int RECORD_HEADER = 12;    // key length, value length, hash
+    static final int DEFAULT_CHUNK_SHIFT = 30;      // 1GB chunks
+    private final ByteBuffer index;     // slotCount longs: record offset + 1, or 0 for an empty slot
+    private final ByteBuffer[] chunks;
+    private final int slotCount;
+    private final int chunkShift;
+    private final long dataLength;
+    private int size;                   // set once, by build() or load()
+
+    private OffHeapCaseInsensitiveMap(ByteBuffer index, ByteBuffer[] chunks, int slotCount, int chunkShift, long dataLength)
+    {
+        this.index = index;
+        this.chunks = chunks;
+        this.slotCount = slotCount;
+        this.chunkShift = chunkShift;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Build a map in direct (off-heap) memory.  The entries are read once, in order, so they can be streamed from a
+     * source that is never held on the heap as a whole.
+     * @param entries source entries, for example someMap.entrySet().  When a key appears more than once (ignoring
+     * case), the last entry wins.
+     * @return read-only map holding the entries.
+     */
+    public static OffHeapCaseInsensitiveMap build(Iterable<? extends Entry<String, String>> entries)
+    {
+        return build(entries, DEFAULT_CHUNK_SHIFT);
+    }
+
+    static OffHeapCaseInsensitiveMap build(Iterable<? extends Entry<String, String>> entries, int chunkShift)
+    {
+        if (chunkShift < 5 || chunkShift > DEFAULT_CHUNK_SHIFT)
+        {
+            throw new IllegalArgumentException("chunkShift must be between 5 and " + DEFAULT_CHUNK_SHIFT + ", value: " + chunkShift);
+        }
+        DataWriter writer = new DataWriter(chunkShift);
+        for (Entry<String, String> entry : entries)
+        {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (key == null || value == null)
+            {
+                throw new NullPointerException("OffHeapCaseInsensitiveMap does not permit null keys or values");
+            }
+            writer.append(key, value);
+        }
+
+        long slots = writer.count + writer.count / 3 + 1;
+        if (slots > Integer.MAX_VALUE >> 3)
+        {
+            throw new IllegalArgumentException("Too many entries for OffHeapCaseInsensitiveMap: " + writer.count);
+        }
+        int slotCount = (int) slots;
+        OffHeapCaseInsensitiveMap map = new OffHeapCaseInsensitiveMap(ByteBuffer.allocateDirect(slotCount << 3),
+                writer.chunks.toArray(new ByteBuffer[0]), slotCount, chunkShift, writer.length);
+        map.size = map.indexRecords();
+        return map;
+    }
+
+    /**
+     * Add every record in the data area to the (empty) index.  A record whose key is already indexed replaces it
+     * (the earlier record is left unreferenced in the data area).
+     * @return number of distinct keys.
+     */
+    private int indexRecords()
+    {
+        final int chunkSize = 1 << chunkShift;
+        int count = 0;
+        long offset = 0;
+        while (offset < dataLength)
+        {
+            ByteBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+            int pos = (int) (offset & (chunkSize - 1));
+            if (chunkSize - pos < RECORD_HEADER || chunk.getInt(pos) < 0)
+            {   // Padding at the end of a chunk - the next record starts the next chunk
+                offset = (offset | (chunkSize - 1)) + 1;
+                continue;
+            }
+
+            int hash = chunk.getInt(pos + 8);
+            int slot = slot(hash);
+            long stored;
+            while ((stored = index.getLong(slot << 3)) != 0)
+            {
+                long prior = stored - 1;
+                ByteBuffer priorChunk = chunk(prior);
+                int priorPos = position(prior);
+                if (priorChunk.getInt(priorPos + 8) == hash &&
+                        StringUtilities.equalsIgnoreCase(readKey(priorChunk, priorPos), readKey(chunk, pos)))
+                {   // Same key - this later record replaces it
+                    break;
+                }
+                slot = nextSlot(slot);
+            }
+            if (stored == 0)
+            {
+                count++;
+            }
+            index.putLong(slot << 3, offset + 1);
+            offset += RECORD_HEADER + chunk.getInt(pos) + chunk.getInt(pos + 4);
+        }
+        return count;
+    }
+
+    /**
+     * Map a saved file (see save()) into memory, read-only.  Nothing is read up front beyond the header; the
+     * operating system pages in the index and records as lookups touch them.
+     * @param file file written by save().
+     * @return read-only map backed by the file.
+     * @throws IOException if the file cannot be read or was not written by save().
+     */
+    public static OffHeapCaseInsensitiveMap load(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_SIZE)
+            {
+                throw new IOException("Not an OffHeapCaseInsensitiveMap file (too short): " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, file);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            {
+                throw new IOException("Not an OffHeapCaseInsensitiveMap file (or unsupported version): " + file);
+            }
+            int size = header.getInt(8);
+            int slotCount = header.getInt(12);
+            int chunkShift = header.getInt(16);
+            long dataLength = header.getLong(24);
+            if (chunkShift < 5 || chunkShift > DEFAULT_CHUNK_SHIFT || slotCount <= 0 || slotCount > Integer.MAX_VALUE >> 3 ||
+                    size < 0 || size >= slotCount || dataLength < 0)
+            {   // Ranges save() can produce: build()'s chunkShift bounds, and an index with at least one empty slot
+                throw new IOException("OffHeapCaseInsensitiveMap file has a corrupt header: " + file);
+            }
+            long dataStart = HEADER_SIZE + ((long) slotCount << 3);
+            if (channel.size() != dataStart + dataLength)
+            {
+                throw new IOException("OffHeapCaseInsensitiveMap file is truncated or corrupt: " + file);
+            }
+
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) slotCount << 3);
+            final long chunkSize = 1L << chunkShift;
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((dataLength + chunkSize - 1) >>> chunkShift)];
+            for (int i = 0; i < chunks.length; i++)
+            {
+                long start = (long) i << chunkShift;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + start, Math.min(chunkSize, dataLength - start));
+            }
+            OffHeapCaseInsensitiveMap map = new OffHeapCaseInsensitiveMap(index, chunks, slotCount, chunkShift, dataLength);
+            map.size = size;
+            return map;
+        }
+    }
+
+    /**
+     * Write this map to a file that load() can map back in.  The file holds a 32 byte header, the index, then the
+     * data area, all big-endian.
+     * @param file destination, created or overwritten.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(slotCount).putInt(chunkShift).putInt(0).putLong(dataLength);
+            header.flip();
+            writeFully(channel, header);
+            writeFully(channel, region(index, slotCount << 3));
+            for (int i = 0; i < chunks.length; i++)
+            {
+                long start = (long) i << chunkShift;
+                writeFully(channel, region(chunks[i], (int) Math.min(1L << chunkShift, dataLength - start)));
+            }
+        }
+    }
+
+    private static ByteBuffer region(ByteBuffer buffer, int length)
+    {
+        ByteBuffer region = buffer.duplicate();
+        region.clear();
+        region.limit(length);
+        return region;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, File file) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, buffer.position()) < 0)
+            {
+                throw new IOException("OffHeapCaseInsensitiveMap file is truncated or corrupt: " + file);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return key instanceof String && find((String) key) >= 0;
+    }
+
+    public String get(Object key)
+    {
+        if (!(key instanceof String))
+        {
+            return null;
+        }
+        long offset = find((String) key);
+        return offset < 0 ? null : readValue(chunk(offset), position(offset));
+    }
+
+    /**
+     * @return offset of the record whose key equals 'key' ignoring case, or -1 if there is none.
+     */
+    private long find(String key)
+    {
+        final int hash = StringUtilities.hashCodeIgnoreCase(key);
+        int slot = slot(hash);
+        long stored;
+        while ((stored = index.getLong(slot << 3)) != 0)
+        {
+            long offset = stored - 1;
+            ByteBuffer chunk = chunk(offset);
+            int pos = position(offset);
+            if (chunk.getInt(pos + 8) == hash && keyMatches(chunk, pos, key))
+            {
+                return offset;
+            }
+            slot = nextSlot(slot);
+        }
+        return -1;
+    }
+
+    /**
+     * Compare the record's UTF-8 key to 'key' ignoring case, without decoding it while both are ASCII.
+     */
+    private static boolean keyMatches(ByteBuffer chunk, int pos, String key)
+    {
+        final int byteLength = chunk.getInt(pos);
+        final int len = key.length();
+        if (byteLength < len)
+        {   // UTF-8 takes at least one byte per char
+            return false;
+        }
+        final int start = pos + RECORD_HEADER;
+        for (int i = 0; i < byteLength; i++)
+        {
+            final int b = chunk.get(start + i);
+            if (b < 0)
+            {   // Non-ASCII - compare by the JDK's rules
+                return StringUtilities.equalsIgnoreCase(key, readKey(chunk, pos));
+            }
+            if (i >= len)
+            {
+                return false;
+            }
+            final char c = key.charAt(i);
+            if (c == b)
+            {
+                continue;
+            }
+            if (c >= 0x80)
+            {
+                return StringUtilities.equalsIgnoreCase(key, readKey(chunk, pos));
+            }
+            final int lower = c | 0x20;
+            if ((c ^ b) != 0x20 || lower < 'a' || lower > 'z')
+            {
+                return false;
+            }
+        }
+        return byteLength == len;
+    }
+
+    private int slot(int hash)
+    {
+        return (int) (((PerfectHashIndex.mix(hash) & 0xffffffffL) * slotCount) >>> 32);
+    }
+
+    private int nextSlot(int slot)
+    {
+        return ++slot == slotCount ? 0 : slot;
+    }
+
+    private ByteBuffer chunk(long offset)
+    {
+        return chunks[(int) (offset >>> chunkShift)];
+    }
+
+    private int position(long offset)
+    {
+        return (int) (offset & ((1 << chunkShift) - 1));
+    }
+
+    private static String readKey(ByteBuffer chunk, int pos)
+    {
+        return decode(chunk, pos + RECORD_HEADER, chunk.getInt(pos));
+    }
+
+    private static String readValue(ByteBuffer chunk, int pos)
+    {
+        return decode(chunk, pos + RECORD_HEADER + chunk.getInt(pos), chunk.getInt(pos + 4));
+    }
+
+    private static String decode(ByteBuffer chunk, int start, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+        {   // absolute gets - a shared buffer's position is never touched, so concurrent readers are safe
+            bytes[i] = chunk.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash code matching CaseInsensitiveMap: keys contribute their case-insensitive hash.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (int slot = 0; slot < slotCount; slot++)
+        {
+            long stored = index.getLong(slot << 3);
+            if (stored != 0)
+            {
+                ByteBuffer chunk = chunk(stored - 1);
+                int pos = position(stored - 1);
+                h += chunk.getInt(pos + 8) ^ readValue(chunk, pos).hashCode();
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Entries are decoded on demand, in index order.  The set (like the map) is read-only.
+     */
+    public Set<Entry<String, String>> entrySet()
+    {
+        return new AbstractSet<Entry<String, String>>()
+        {
+            public int size() { return size; }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                String value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            public Iterator<Entry<String, String>> iterator()
+            {
+                return new Iterator<Entry<String, String>>()
+                {
+                    int slot = advance(0);
+
+                    private int advance(int from)
+                    {
+                        while (from < slotCount && index.getLong(from << 3) == 0)
+                        {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    public boolean hasNext()
+                    {
+                        return slot < slotCount;
+                    }
+
+                    public Entry<String, String> next()
+                    {
+                        if (slot >= slotCount)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        long offset = index.getLong(slot << 3) - 1;
+                        slot = advance(slot + 1);
+                        ByteBuffer chunk = chunk(offset);
+                        int pos = position(offset);
+                        return new SimpleImmutableEntry<>(readKey(chunk, pos), readValue(chunk, pos));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Appends records to direct ByteBuffer chunks.  The current chunk doubles as it fills, up to the chunk size, so
+     * small maps do not reserve a whole chunk.
+     */
+    private static final class DataWriter
+    {
+        private final int chunkShift;
+        private final int chunkSize;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer current;
+        private int pos;        // next write position in 'current'
+        private long length;    // bytes used, counting earlier (full) chunks
+        private long count;     // records appended
+
+        DataWriter(int chunkShift)
+        {
+            this.chunkShift = chunkShift;
+            chunkSize = 1 << chunkShift;
+        }
+
+        void append(String key, String value)
+        {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            long needed = (long) RECORD_HEADER + keyBytes.length + valueBytes.length;
+            if (needed > chunkSize)
+            {
+                throw new IllegalArgumentException("Entry too large for OffHeapCaseInsensitiveMap (" + needed + " bytes), key: " + key);
+            }
+            if (current == null || pos + needed > chunkSize)
+            {
+                startChunk();
+            }
+            ensureCapacity(pos + (int) needed);
+            current.putInt(pos, keyBytes.length);
+            current.putInt(pos + 4, valueBytes.length);
+            current.putInt(pos + 8, StringUtilities.hashCodeIgnoreCase(key));
+            current.position(pos + RECORD_HEADER);
+            current.put(keyBytes);
+            current.put(valueBytes);
+            pos += (int) needed;
+            length = ((long) (chunks.size() - 1) << chunkShift) + pos;
+            count++;
+        }
+
+        /**
+         * Close off the current chunk (full size, with a -1 marker where the next record would have started) and
+         * start a new one.
+         */
+        private void startChunk()
+        {
+            if (current != null)
+            {
+                ensureCapacity(chunkSize);
+                if (chunkSize - pos >= RECORD_HEADER)
+                {
+                    current.putInt(pos, -1);
+                }
+            }
+            current = ByteBuffer.allocateDirect(Math.min(chunkSize, 4096));
+            chunks.add(current);
+            pos = 0;
+        }
+
+        private void ensureCapacity(int capacity)
+        {
+            if (capacity <= current.capacity())
+            {
+                return;
+            }
+            int grown = current.capacity();
+            while (grown < capacity)
+            {
+                grown = (int) Math.min((long) grown << 1, chunkSize);
+            }
+            ByteBuffer larger = ByteBuffer.allocateDirect(grown);
+            ByteBuffer used = current.duplicate();
+            used.clear();
+            used.limit(pos);
+            larger.put(used);
+            current = larger;
+            chunks.set(chunks.size() - 1, larger);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.cedarsoftware.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal perfect hash over a fixed set of int hash codes, used by the frozen (read-only) forms of CompactMap and
+ * CompactSet.  Built once (hash and displace): the distinct hashes are spread over buckets, and each bucket is given
+ * a seed that sends all of its hashes to unused slots, or for single-hash buckets the slot itself.  A lookup is one
+ * bucket read, one slot computation, and one compare - no probing and no allocation.<p></p>
+ *
+ * Positions are indexes into the caller's parallel arrays (keys, values), which keep their own order.  Entries whose
+ * hash codes are identical cannot be told apart by any hash function, so they are linked with a chain array that is
+ * only allocated when such duplicates exist.  Callers must still compare the key found at the returned position.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+final class PerfectHashIndex
+{
+    private static final int MAX_SEED_ATTEMPTS = 1 << 16;
+    private final int[] hashes;     // by position
+    private final int[] seeds;      // by bucket: seed >= 0, or -(slot + 1) for a bucket holding a single hash
+    private final int[] slots;      // by slot: position of the first entry with that hash
+    private final int[] chain;      // by position: next position with the same hash, -1 at end (null if no duplicates)
+
+    /**
+     * @param hashes hash code of the entry at each position.  The array is retained, not copied.
+     */
+    PerfectHashIndex(int[] hashes)
+    {
+        this.hashes = hashes;
+        final int len = hashes.length;
+
+        // Distinct hashes (first position of each) and the chain linking positions that share a hash.
+        Map<Integer, Integer> firstPos = new HashMap<>(len * 2);
+        int[] lastPos = null;
+        int[] links = null;
+        List<Integer> distinct = new ArrayList<>(len);
+        for (int i=0; i < len; i++)
+        {
+            Integer prior = firstPos.putIfAbsent(hashes[i], i);
+            if (prior == null)
+            {
+                distinct.add(i);
+                continue;
+            }
+            if (links == null)
+            {
+                links = new int[len];
+                Arrays.fill(links, -1);
+                lastPos = new int[len];
+                for (int j=0; j < len; j++)
+                {
+                    lastPos[j] = j;
+                }
+            }
+            links[lastPos[prior]] = i;
+            lastPos[prior] = i;
+        }
+        chain = links;
+
+        final int n = distinct.size();
+        int bucketCount = Integer.highestOneBit(Math.max(1, (n + 1) >> 1) * 2 - 1);
+        bucketCount = Math.max(1, bucketCount);
+        int[] builtSeeds;
+        int[] builtSlots;
+        while (true)
+        {
+            builtSlots = new int[n];
+            builtSeeds = place(distinct, bucketCount, builtSlots);
+            if (builtSeeds != null)
+            {
+                break;
+            }
+            if (bucketCount > Math.max(n, 1) << 6)
+            {
+                throw new IllegalStateException("Unable to build perfect hash over " + n + " hash codes");
+            }
+            bucketCount <<= 1;   // Rare: more (smaller) buckets make seeds easier to find
+        }
+        seeds = builtSeeds;
+        slots = builtSlots;
+    }
+
+    /**
+     * Assign a seed to every bucket, largest buckets first.
+     * @return seeds by bucket, or null if some bucket could not be placed within MAX_SEED_ATTEMPTS.
+     */
+    private int[] place(List<Integer> distinct, int bucketCount, int[] slotToPos)
+    {
+        final int n = distinct.size();
+        final int mask = bucketCount - 1;
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int b=0; b < bucketCount; b++)
+        {
+            buckets.add(new ArrayList<>(2));
+        }
+        for (int pos : distinct)
+        {
+            buckets.get(mix(hashes[pos]) & mask).add(pos);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int b=0; b < bucketCount; b++)
+        {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] seeds = new int[bucketCount];
+        boolean[] used = new boolean[n];
+        int[] trial = new int[0];
+        int nextFree = 0;
+        for (int b : order)
+        {
+            List<Integer> bucket = buckets.get(b);
+            final int size = bucket.size();
+            if (size == 0)
+            {
+                break;  // sorted by size - the rest are empty too
+            }
+            if (size == 1)
+            {   // Single hash - address its slot directly
+                while (used[nextFree])
+                {
+                    nextFree++;
+                }
+                used[nextFree] = true;
+                slotToPos[nextFree] = bucket.get(0);
+                seeds[b] = -(nextFree + 1);
+                continue;
+            }
+
+            if (trial.length < size)
+            {
+                trial = new int[size];
+            }
+            int seed = 0;
+            while (!tryPlace(bucket, seed, n, used, trial))
+            {
+                if (++seed == MAX_SEED_ATTEMPTS)
+                {
+                    return null;
+                }
+            }
+            for (int i=0; i < size; i++)
+            {
+                used[trial[i]] = true;
+                slotToPos[trial[i]] = bucket.get(i);
+            }
+            seeds[b] = seed;
+        }
+        return seeds;
+    }
+
+    private boolean tryPlace(List<Integer> bucket, int seed, int n, boolean[] used, int[] trial)
+    {
+        final int size = bucket.size();
+        for (int i=0; i < size; i++)
+        {
+            int slot = slot(hashes[bucket.get(i)], seed, n);
+            if (used[slot])
+            {
+                return false;
+            }
+            for (int j=0; j < i; j++)
+            {
+                if (trial[j] == slot)
+                {
+                    return false;
+                }
+            }
+            trial[i] = slot;
+        }
+        return true;
+    }
+
+    /**
+     * @return position of the first entry whose hash equals 'hash', or -1 if there is none.
+     */
+    int first(int hash)
+    {
+        final int n = slots.length;
+        if (n == 0)
+        {
+            return -1;
+        }
+        int seed = seeds[mix(hash) & (seeds.length - 1)];
+        int pos = slots[seed < 0 ? -seed - 1 : slot(hash, seed, n)];
+        return hashes[pos] == hash ? pos : -1;
+    }
+
+    /**
+     * @return next position after 'pos' with the same hash, or -1 if there is none.
+     */
+    int next(int pos)
+    {
+        return chain == null ? -1 : chain[pos];
+    }
+
+    private static int slot(int hash, int seed, int n)
+    {
+        int h = mix(hash + seed * 0x9E3779B9);
+        return (int) (((h & 0xffffffffL) * n) >>> 32);
+    }
+
+    static int mix(int h)
+    {   // Murmur3 fmix32
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
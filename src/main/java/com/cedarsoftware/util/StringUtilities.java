@@ -48,13 +48,90 @@ public final class StringUtilities
         return str1.equals(str2);
     }
 
+    /**
+     * Same result as String.equalsIgnoreCase() (and null-safe), with a fast path for ASCII characters, which are
+     * case-folded by flipping one bit.  At the first non-ASCII character the remainder of the Strings is compared by
+     * the JDK's full Unicode rules.
+     */
     public static boolean equalsIgnoreCase(final String s1, final String s2)
     {
+        if (s1 == s2)
+        {
+            return true;
+        }
         if (s1 == null || s2 == null)
         {
-            return s1 == s2;
+            return false;
+        }
+        final int len = s1.length();
+        if (len != s2.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < len; i++)
+        {
+            final char c1 = s1.charAt(i);
+            final char c2 = s2.charAt(i);
+            if (c1 == c2)
+            {
+                continue;
+            }
+            if ((c1 | c2) >= 0x80)
+            {   // Non-ASCII - Unicode case folding for the rest
+                return s1.regionMatches(true, i, s2, i, len - i);
+            }
+            // ASCII letters differ only in the 0x20 bit
+            final int lower = c1 | 0x20;
+            if ((c1 ^ c2) != 0x20 || lower < 'a' || lower > 'z')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same ordering as String.CASE_INSENSITIVE_ORDER, with a fast path for ASCII characters.  At the first
+     * non-ASCII difference the JDK's comparator decides.  A null String sorts before any non-null String.
+     */
+    public static int compareIgnoreCase(final String s1, final String s2)
+    {
+        if (s1 == s2)
+        {
+            return 0;
+        }
+        if (s1 == null || s2 == null)
+        {
+            return s1 == null ? -1 : 1;
+        }
+        final int len1 = s1.length();
+        final int len2 = s2.length();
+        final int min = Math.min(len1, len2);
+        for (int i = 0; i < min; i++)
+        {
+            int c1 = s1.charAt(i);
+            int c2 = s2.charAt(i);
+            if (c1 == c2)
+            {
+                continue;
+            }
+            if ((c1 | c2) >= 0x80)
+            {   // Non-ASCII - the prefix is equal, so the JDK's answer for the whole Strings is the answer
+                return String.CASE_INSENSITIVE_ORDER.compare(s1, s2);
+            }
+            c1 = asciiToLower(c1);
+            c2 = asciiToLower(c2);
+            if (c1 != c2)
+            {
+                return c1 - c2;
+            }
         }
-        return s1.equalsIgnoreCase(s2);
+        return len1 - len2;
+    }
+
+    private static int asciiToLower(int c)
+    {
+        return c >= 'A' && c <= 'Z' ? c | 0x20 : c;
     }
 
     public static boolean equalsWithTrim(final String s1, final String s2)
@@ -505,7 +582,8 @@ public final class StringUtilities
 
     /**
      * Get the hashCode of a String, insensitive to case, without any new Strings
-     * being created on the heap.
+     * being created on the heap.  ASCII characters are lower-cased inline; only
+     * other characters go through Character.toLowerCase().
      * @param s String input
      * @return int hashCode of input String insensitive to case
      */
@@ -519,7 +597,8 @@ public final class StringUtilities
         int hash = 0;
         for (int i = 0; i < len; i++)
         {
-            hash = 31 * hash + Character.toLowerCase((int)s.charAt(i));
+            final int c = s.charAt(i);
+            hash = 31 * hash + (c < 0x80 ? asciiToLower(c) : Character.toLowerCase(c));
         }
         return hash;
     }
@@ -0,0 +1,288 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestBeanMapper
+{
+    static class BaseDto
+    {
+        String id;
+    }
+
+    static class CustomerDto extends BaseDto
+    {
+        String name;
+        int age;
+        String balance;
+        long created;
+        Integer score;
+        AddressDto address;
+        List<String> tags;
+        String ignored;
+        transient String cache = "cache";
+    }
+
+    static class AddressDto
+    {
+        String street;
+        String zip;
+    }
+
+    static class Customer
+    {
+        long id;
+        String name;
+        long age;
+        BigDecimal balance;
+        Date created;
+        int score;
+        Address address;
+        List<String> tags;
+        final String fixed = "fixed";
+        String cache;
+
+        private Customer() { }
+    }
+
+    static class Address
+    {
+        String street;
+        int zip;
+    }
+
+    static class Node
+    {
+        String label;
+        Node next;
+    }
+
+    static class NodeCopy
+    {
+        String label;
+        NodeCopy next;
+    }
+
+    static class Upper
+    {
+        String USERID;
+        String Email;
+    }
+
+    static class Lower
+    {
+        String userId;
+        String email;
+    }
+
+    static class ParentDto
+    {
+        String name;
+        ParentDto parent;
+        List<ParentDto> children;
+        Map<String, ParentDto> byName;
+        ParentDto[] siblings;
+        Set<String> tags;
+    }
+
+    static class Parent
+    {
+        String name;
+        Parent parent;
+        List<Parent> children;
+        Map<String, Parent> byName;
+        Parent[] siblings;
+        List<String> tags;
+    }
+
+    static class Holder<V>
+    {
+        V value;
+    }
+
+    static class HolderDto
+    {
+        Holder<String> holder;
+    }
+
+    static class HolderEntity
+    {
+        Holder<Integer> holder;
+    }
+
+    static class AddressAsText
+    {
+        String address;
+        Long zip;
+    }
+
+    static class NoDefaultConstructor
+    {
+        String name;
+
+        NoDefaultConstructor(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    private static CustomerDto customerDto()
+    {
+        CustomerDto dto = new CustomerDto();
+        dto.id = "42";
+        dto.name = "Ada";
+        dto.age = 36;
+        dto.balance = "1234.50";
+        dto.created = 86400000L;
+        dto.address = new AddressDto();
+        dto.address.street = "1 Main St";
+        dto.address.zip = "02134";
+        dto.tags = Arrays.asList("a", "b");
+        return dto;
+    }
+
+    @Test
+    public void testMapConvertsByFieldName()
+    {
+        BeanMapper<CustomerDto, Customer> mapper = BeanMapper.of(CustomerDto.class, Customer.class);
+        assert mapper == BeanMapper.of(CustomerDto.class, Customer.class);
+        assertEquals(Arrays.asList("id", "name", "age", "balance", "created", "score", "address", "tags"), mapper.getMappedFields());
+
+        CustomerDto dto = customerDto();
+        Customer customer = mapper.map(dto);
+        assertEquals(42L, customer.id);
+        assertEquals("Ada", customer.name);
+        assertEquals(36L, customer.age);
+        assertEquals(new BigDecimal("1234.50"), customer.balance);
+        assertEquals(new Date(86400000L), customer.created);
+        assertEquals(0, customer.score);     // null to a primitive is its zero
+        assertEquals("1 Main St", customer.address.street);
+        assertEquals(2134, customer.address.zip);
+        assert customer.tags == dto.tags;    // assignable types are copied as-is
+        assertEquals("fixed", customer.fixed);
+        assert customer.cache == null;
+
+        dto.score = 7;
+        dto.address = null;
+        mapper.copy(dto, customer);
+        assertEquals(7, customer.score);
+        assert customer.address == null;
+        assert mapper.map(null) == null;
+    }
+
+    @Test
+    public void testSelfReferencingAndCaseInsensitive()
+    {
+        Node first = new Node();
+        first.label = "first";
+        first.next = new Node();
+        first.next.label = "second";
+        NodeCopy copy = BeanMapper.of(Node.class, NodeCopy.class).map(first);
+        assertEquals("first", copy.label);
+        assertEquals("second", copy.next.label);
+        assert copy.next.next == null;
+
+        Upper upper = new Upper();
+        upper.USERID = "u1";
+        upper.Email = "u1@example.com";
+        assert BeanMapper.of(Upper.class, Lower.class).getMappedFields().isEmpty();
+        Lower lower = BeanMapper.of(Upper.class, Lower.class, true).map(upper);
+        assertEquals("u1", lower.userId);
+        assertEquals("u1@example.com", lower.email);
+    }
+
+    @Test
+    public void testErrors()
+    {
+        NoDefaultConstructor target = new NoDefaultConstructor("old");
+        Lower source = new Lower();
+        BeanMapper<Lower, NoDefaultConstructor> mapper = BeanMapper.of(Lower.class, NoDefaultConstructor.class);
+        assertThrows(IllegalArgumentException.class, () -> mapper.map(source));
+        assertThrows(IllegalArgumentException.class, () -> mapper.copy(null, target));
+        assertThrows(IllegalArgumentException.class, () -> BeanMapper.of(null, Lower.class));
+
+        CustomerDto dto = customerDto();
+        dto.balance = "not a number";
+        assertThrows(IllegalArgumentException.class, () -> BeanMapper.of(CustomerDto.class, Customer.class).map(dto));
+    }
+
+    @Test
+    public void testGenericContainersMapTheirElements()
+    {
+        ParentDto child = new ParentDto();
+        child.name = "child";
+        ParentDto dto = new ParentDto();
+        dto.name = "root";
+        dto.children = Arrays.asList(child, null);
+        dto.byName = Collections.singletonMap("child", child);
+        dto.siblings = new ParentDto[] { child };
+        dto.tags = Collections.singleton("t");
+
+        Parent root = BeanMapper.of(ParentDto.class, Parent.class).map(dto);
+        assertEquals(2, root.children.size());
+        Parent mapped = root.children.get(0);     // a Parent, not the ParentDto
+        assertEquals("child", mapped.name);
+        assert root.children.get(1) == null;
+        assert root.byName.get("child") == mapped;
+        assert root.siblings.getClass() == Parent[].class && root.siblings[0] == mapped;
+        assertEquals(Collections.singletonList("t"), root.tags);
+    }
+
+    @Test
+    public void testCyclesAndSharedReferences()
+    {
+        ParentDto dto = new ParentDto();
+        dto.name = "root";
+        dto.parent = dto;
+        ParentDto child = new ParentDto();
+        child.parent = dto;
+        dto.children = Collections.singletonList(child);
+        dto.siblings = new ParentDto[] { child, dto };
+
+        Parent root = BeanMapper.of(ParentDto.class, Parent.class).map(dto);
+        assert root.parent == root;
+        assert root.children.get(0).parent == root;
+        assert root.siblings[0] == root.children.get(0);
+        assert root.siblings[1] == root;
+
+        Parent existing = new Parent();
+        BeanMapper.of(ParentDto.class, Parent.class).copy(dto, existing);
+        assert existing.parent == existing;
+        assert existing.children.get(0).parent == existing;
+    }
+
+    @Test
+    public void testUnmappableFieldsAreRejectedWhenCreated()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BeanMapper.of(CustomerDto.class, AddressAsText.class));
+        assert e.getMessage().contains("'address'");
+        assertThrows(IllegalArgumentException.class, () -> BeanMapper.of(HolderDto.class, HolderEntity.class));
+    }
+}
@@ -0,0 +1,215 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCaseInsensitiveHashMap
+{
+    @Test
+    public void testSimpleCases()
+    {
+        CaseInsensitiveHashMap<Object, Object> map = new CaseInsensitiveHashMap<>();
+        assert map.isEmpty();
+        assert map.get("a") == null;
+        assert map.remove("a") == null;
+
+        assert map.put("Content-Type", "json") == null;
+        assert map.get("CONTENT-TYPE").equals("json");
+        assert map.containsKey("content-type");
+        assert map.put("CONTENT-type", "xml").equals("json");
+        assert map.size() == 1;
+        assert map.keySet().iterator().next().equals("Content-Type");    // first case retained
+
+        assert map.put(null, "nullKey") == null;
+        assert map.put(7, null) == null;
+        assert map.get(null).equals("nullKey");
+        assert map.containsKey(7);
+        assert map.get(7) == null;
+        assert map.containsValue(null);
+        assert map.containsValue("xml");
+        assert !map.containsKey("7");
+        assert map.size() == 3;
+
+        assert map.remove("content-TYPE").equals("xml");
+        assert map.remove(null).equals("nullKey");
+        assert map.remove(7) == null;
+        assert map.isEmpty();
+        assertThrows(IllegalArgumentException.class, () -> new CaseInsensitiveHashMap<>(-1));
+    }
+
+    @Test
+    public void testMatchesLinkedHashMap()
+    {
+        Random random = new Random(42);
+        CaseInsensitiveHashMap<String, Integer> map = new CaseInsensitiveHashMap<>(0);
+        Map<String, Integer> expected = new LinkedHashMap<>();     // keyed by lower case, insertion ordered
+        Map<String, String> firstCase = new LinkedHashMap<>();
+        for (int n=0; n < 50000; n++)
+        {
+            String key = "Key-" + random.nextInt(2000);
+            if (random.nextBoolean())
+            {
+                key = key.toUpperCase();
+            }
+            String lower = key.toLowerCase();
+            if (random.nextInt(3) == 0)
+            {
+                assert java.util.Objects.equals(map.remove(key), expected.remove(lower));
+                firstCase.remove(lower);
+            }
+            else
+            {
+                assert java.util.Objects.equals(map.put(key, n), expected.put(lower, n));
+                firstCase.putIfAbsent(lower, key);
+            }
+            assert map.size() == expected.size();
+        }
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : map.entrySet())
+        {
+            keys.add(entry.getKey());
+            assert entry.getValue().equals(expected.get(entry.getKey().toLowerCase()));
+        }
+        assert keys.equals(new ArrayList<>(firstCase.values()));
+    }
+
+    @Test
+    public void testIterator()
+    {
+        CaseInsensitiveHashMap<String, Integer> map = new CaseInsensitiveHashMap<>();
+        for (int i=0; i < 100; i++)
+        {
+            map.put("k" + i, i);
+        }
+        Iterator<Map.Entry<String, Integer>> i = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, i::remove);
+        while (i.hasNext())
+        {
+            Map.Entry<String, Integer> entry = i.next();
+            if (entry.getValue() % 2 == 0)
+            {
+                i.remove();
+            }
+            else
+            {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        assert map.size() == 50;
+        assert map.get("K3") == -3;
+        assert !map.containsKey("k4");
+
+        Iterator<String> keys = map.keySet().iterator();
+        keys.next();
+        map.put("new", 1);
+        assertThrows(ConcurrentModificationException.class, keys::next);
+
+        keys = map.keySet().iterator();
+        while (keys.hasNext())
+        {
+            keys.next();
+            keys.remove();
+        }
+        assert map.isEmpty();
+        map.put("again", 1);
+        assert map.get("AGAIN") == 1;
+        map.clear();
+        assert map.isEmpty();
+        assert !map.containsKey("again");
+    }
+
+    @Test
+    public void testAsCaseInsensitiveMapBacking()
+    {
+        Map<String, Object> backed = new CaseInsensitiveMap<>(Collections.emptyMap(), new CaseInsensitiveHashMap<>());
+        Map<String, Object> standard = new CaseInsensitiveMap<>();
+        for (int i=0; i < 200; i++)
+        {
+            backed.put("Header-" + i, i);
+            standard.put("HEADER-" + i, i);
+        }
+        assert backed.get("header-7").equals(7);
+        assert backed.containsKey("HEADER-199");
+        assert backed.equals(standard);
+        assert standard.equals(backed);
+        assert backed.hashCode() == standard.hashCode();
+        assert backed.keySet().hashCode() == standard.keySet().hashCode();
+        assert ((CaseInsensitiveMap<String, Object>) backed).getWrappedMap().keySet().iterator().next() instanceof String;
+
+        for (Map.Entry<String, Object> entry : backed.entrySet())
+        {
+            entry.setValue("v");
+        }
+        assert backed.get("HEADER-3").equals("v");
+        assert backed.remove("header-3").equals("v");
+        assert backed.keySet().retainAll(Collections.singleton("HEADER-4"));
+        assert backed.size() == 1;
+        assert backed.keySet().contains("header-4");
+
+        CaseInsensitiveHashMap<String, Object> raw = new CaseInsensitiveHashMap<>();
+        raw.put("Header-4", "v");
+        Map<String, Object> copy = new CaseInsensitiveMap<>(raw);
+        assert ((CaseInsensitiveMap<String, Object>) copy).getWrappedMap() instanceof CaseInsensitiveHashMap;
+        assert copy.equals(backed);
+    }
+
+    @Test
+    public void testStaleEntryDoesNotWriteAnotherKey()
+    {
+        CaseInsensitiveHashMap<String, Integer> m = new CaseInsensitiveHashMap<>();
+        m.put("a", 1);
+        Map.Entry<String, Integer> e = m.entrySet().iterator().next();
+        m.remove("a");
+        m.put("b", 2);
+        assertThrows(IllegalStateException.class, () -> e.setValue(99));
+        assertThrows(IllegalStateException.class, e::getValue);
+        assertEquals(Collections.singletonMap("b", 2), m);
+
+        for (int i = 0; i < 50; i++)
+        {
+            m.put("k" + i, i);
+        }
+        Map.Entry<String, Integer> last = null;
+        for (Map.Entry<String, Integer> entry : m.entrySet())
+        {
+            last = entry;
+        }
+        for (int i = 0; i < 40; i++)
+        {
+            m.remove("k" + i);
+        }
+        for (int i = 0; i < 100; i++)
+        {   // Fills the arrays, so they are rebuilt without the removed positions, moving "k49"
+            m.put("x" + i, i);
+        }
+        assertEquals(49, (int) last.setValue(100));
+        assertEquals(100, (int) m.get("K49"));
+    }
+}
@@ -1526,6 +1526,112 @@ public class TestCaseInsensitiveMap
     // ---------------------------------------------------
 
 
+    @Test
+    public void testGetAndContainsKeyDoNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return;     // allocation counting not available on this JVM
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+
+        List<Map<String, Object>> maps = new ArrayList<>();
+        maps.add(new CaseInsensitiveMap<>());
+        maps.add(new CaseInsensitiveMap<>(new TreeMap<>()));
+        maps.add(new CaseInsensitiveMap<>(new ConcurrentHashMap<>()));
+        String[] probes = new String[64];
+        for (int i=0; i < probes.length; i++)
+        {
+            probes[i] = ("Header-Name-" + i).toUpperCase();
+        }
+        for (Map<String, Object> map : maps)
+        {
+            for (int i=0; i < probes.length; i++)
+            {
+                map.put("header-name-" + i, i);
+            }
+
+            for (int pass=0; pass < 2; pass++)
+            {   // First pass warms up (ThreadLocal creation, class loading)
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                int found = 0;
+                for (int n=0; n < 100; n++)
+                {
+                    for (String probe : probes)
+                    {
+                        if (map.get(probe) != null && map.containsKey(probe) && !map.containsKey("X-Absent"))
+                        {
+                            found++;
+                        }
+                    }
+                }
+                long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+                assert found == 100 * probes.length;
+                if (pass == 1)
+                {   // 19,200 lookups - wrapping each key would be over 400KB
+                    assert allocated < 1024 : "CaseInsensitiveMap lookups allocated " + allocated + " bytes";
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInternCache()
+    {
+        CaseInsensitiveMap.CaseInsensitiveString.setInternCacheCapacity(4);
+        try
+        {
+            CaseInsensitiveMap.CaseInsensitiveString.clearInternCache();
+            Map<String, Object> map = new CaseInsensitiveMap<>();
+            Set<String> set = new CaseInsensitiveSet<>();
+            map.put("Content-Type", "json");
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheMisses() == 1;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheHits() == 0;
+
+            map.put("Content-Type", "xml");
+            set.add("Content-Type");
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheHits() == 2;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheMisses() == 1;
+
+            // get() and containsKey() probe without wrapping, so they do not touch the cache
+            assert map.get("Content-Type").equals("xml");
+            assert map.containsKey("CONTENT-TYPE");
+            assert set.contains("content-type");
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheHits() == 2;
+
+            // Different case is a different cache entry (the original String is retained)
+            map.put("CONTENT-TYPE", "json");
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheMisses() == 2;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheSize() == 2;
+            assert map.size() == 1;
+
+            assert CaseInsensitiveMap.CaseInsensitiveString.of("Accept") == CaseInsensitiveMap.CaseInsensitiveString.of("Accept");
+            for (int i=0; i < 20; i++)
+            {   // bounded
+                map.put("key" + i, i);
+                assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheSize() <= 4;
+            }
+            for (int i=0; i < 20; i++)
+            {
+                assert map.get("KEY" + i).equals(i);
+            }
+            assert new ArrayList<>(map.keySet()).get(0).equals("Content-Type");   // first key's case retained
+
+            CaseInsensitiveMap.CaseInsensitiveString.clearInternCache();
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheHits() == 0;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheSize() == 0;
+            assertThrows(IllegalArgumentException.class, () -> CaseInsensitiveMap.CaseInsensitiveString.setInternCacheCapacity(-1));
+        }
+        finally
+        {
+            CaseInsensitiveMap.CaseInsensitiveString.setInternCacheCapacity(0);
+        }
+        assert CaseInsensitiveMap.CaseInsensitiveString.of("Accept") != CaseInsensitiveMap.CaseInsensitiveString.of("Accept");
+        assert CaseInsensitiveMap.CaseInsensitiveString.getInternCacheSize() == 0;
+    }
+
     private CaseInsensitiveMap<String, Object> createSimpleMap()
     {
         CaseInsensitiveMap<String, Object> stringMap = new CaseInsensitiveMap<>();
@@ -0,0 +1,142 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCaseInsensitiveTreeMap
+{
+    @Test
+    public void testNavigation()
+    {
+        CaseInsensitiveTreeMap<Integer> map = new CaseInsensitiveTreeMap<>();
+        map.put("Bravo", 2);
+        map.put("alpha", 1);
+        map.put("CHARLIE", 3);
+        map.put("ALPHA", 11);
+        assert map.size() == 3;
+        assert map.get("Alpha") == 11;
+        assert map.firstKey().equals("alpha");      // first case is kept
+        assert map.containsKey("charlie");
+        assert map.headMap("BRAVO").keySet().iterator().next().equals("alpha");
+        assert map.tailMap("bravo", false).firstKey().equals("CHARLIE");
+        assert map.subMap("ALPHA", false, "charlie", true).size() == 2;
+        assert map.ceilingKey("b").equals("Bravo");
+        assertThrows(NullPointerException.class, () -> map.put(null, 0));
+
+        Map<String, Integer> ciMap = new CaseInsensitiveMap<>();
+        ciMap.put("Alpha", 11);
+        ciMap.put("bravo", 2);
+        ciMap.put("charlie", 3);
+        assert map.equals(ciMap);
+        assert ciMap.equals(map);
+        assert map.hashCode() == ciMap.hashCode();
+    }
+
+    @Test
+    public void testPrefixMap()
+    {
+        CaseInsensitiveTreeMap<String> headers = new CaseInsensitiveTreeMap<>();
+        headers.put("X-Request-Id", "42");
+        headers.put("x-trace-id", "7");
+        headers.put("X", "x");
+        headers.put("Content-Type", "json");
+        headers.put("Y-Other", "y");
+
+        NavigableMap<String, String> xHeaders = headers.prefixMap("x-");
+        assert xHeaders.size() == 2;
+        assert xHeaders.firstKey().equals("X-Request-Id");
+        assert xHeaders.lastKey().equals("x-trace-id");
+        assert headers.prefixMap("").size() == 5;
+        assert headers.prefixMap("z").isEmpty();
+
+        xHeaders.put("X-NEW", "1");         // live view
+        assert headers.get("x-new").equals("1");
+        assertThrows(IllegalArgumentException.class, () -> xHeaders.put("Accept", "no"));
+        xHeaders.clear();
+        assert headers.size() == 3;
+    }
+
+    @Test
+    public void testPrefixMapMatchesScan()
+    {
+        // '@' and '[' through '`' sort between folded letters, and non-ASCII folds are irregular
+        char[] alphabet = "aAbBzZ@[`{_\u00e9\u00c9\u0130\u0131iI\u212ak\u00ff\u0178\uffff".toCharArray();
+        Random random = new Random(7);
+        CaseInsensitiveTreeMap<Integer> map = new CaseInsensitiveTreeMap<>();
+        CaseInsensitiveTreeSet set = new CaseInsensitiveTreeSet();
+        for (int i=0; i < 2000; i++)
+        {
+            String key = randomString(random, alphabet, 4);
+            map.put(key, i);
+            set.add(key);
+        }
+
+        for (int i=0; i < 500; i++)
+        {
+            String prefix = randomString(random, alphabet, 3);
+            List<String> expected = new ArrayList<>();
+            for (String key : map.keySet())
+            {
+                if (key.regionMatches(true, 0, prefix, 0, prefix.length()))
+                {
+                    expected.add(key);
+                }
+            }
+            assert new ArrayList<>(map.prefixMap(prefix).keySet()).equals(expected) : "prefix: " + prefix;
+            assert new ArrayList<>(set.prefixSet(prefix)).equals(expected) : "prefix: " + prefix;
+        }
+    }
+
+    @Test
+    public void testTreeSet()
+    {
+        CaseInsensitiveTreeSet set = new CaseInsensitiveTreeSet();
+        assert set.add("config.Db.url");
+        assert !set.add("CONFIG.DB.URL");
+        set.add("config.db.user");
+        set.add("config.cache.size");
+        set.add("other");
+        NavigableSet<String> db = set.prefixSet("Config.DB.");
+        assert db.size() == 2;
+        assert db.first().equals("config.Db.url");
+        assert set.contains("OTHER");
+        assert set.hashCode() == new CaseInsensitiveSet<>(set).hashCode();
+        assert set.equals(new CaseInsensitiveSet<>(set));
+    }
+
+    private static String randomString(Random random, char[] alphabet, int maxLen)
+    {
+        int len = random.nextInt(maxLen + 1);
+        StringBuilder s = new StringBuilder(len);
+        for (int i=0; i < len; i++)
+        {
+            s.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return s.toString();
+    }
+}
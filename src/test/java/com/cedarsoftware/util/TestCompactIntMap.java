@@ -0,0 +1,95 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactIntMap
+{
+    @Test
+    public void testSimpleCases()
+    {
+        CompactIntMap<String> map = new CompactIntMap<>();
+        assert map.isEmpty();
+        assert map.put(1, "one") == null;
+        assert map.put(1, "uno").equals("one");
+        assert map.put(Integer.MIN_VALUE, "min") == null;
+        assert map.put(0, null) == null;
+        assert map.size() == 3;
+        assert map.get(1).equals("uno");
+        assert map.get(Integer.MIN_VALUE).equals("min");
+        assert map.containsKey(0);
+        assert map.containsValue(null);
+        assert map.remove(Integer.MIN_VALUE).equals("min");
+        assert map.remove(1).equals("uno");
+        assert map.remove(0) == null;
+        assert map.isEmpty();
+
+        Map<Integer, String> boxed = map;
+        boxed.put(7, "seven");
+        assert boxed.get(7L) == null;           // Long key is not an Integer key
+        assert boxed.get((Object) 7).equals("seven");
+    }
+
+    @Test
+    public void testMatchesHashMap()
+    {
+        Random random = new Random(9);
+        CompactIntMap<Integer> map = new CompactIntMap<Integer>()
+        {
+            protected int compactSize() { return 16; }
+        };
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int op=0; op < 50000; op++)
+        {
+            int key = random.nextInt(64) - 32;
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(map.remove(key), expected.remove(key));
+            }
+            else
+            {
+                Integer value = random.nextInt(10) == 0 ? null : op;
+                assert Objects.equals(map.put(key, value), expected.put(key, value));
+            }
+            assert map.size() == expected.size();
+            assert map.containsKey(key) == expected.containsKey(key);
+            assert Objects.equals(map.get(key), expected.get(key));
+        }
+        assert map.equals(expected);
+        assert expected.equals(map);
+
+        Iterator<Map.Entry<Integer, Integer>> i = map.entrySet().iterator();
+        while (i.hasNext())
+        {
+            Map.Entry<Integer, Integer> entry = i.next();
+            assert Objects.equals(expected.remove(entry.getKey()), entry.getValue());
+            i.remove();
+        }
+        assert map.isEmpty();
+        assert expected.isEmpty();
+    }
+}
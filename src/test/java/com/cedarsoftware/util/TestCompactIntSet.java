@@ -0,0 +1,100 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactIntSet
+{
+    @Test
+    public void testSimpleCases()
+    {
+        CompactIntSet set = new CompactIntSet();
+        assert set.add(0);
+        assert !set.add(0);
+        assert set.add(Integer.MIN_VALUE);
+        assert set.contains(0);
+        assert set.contains(Integer.MIN_VALUE);
+        assert !set.contains((Object) 0L);  // Long is not an Integer
+        assert set.remove(0);
+        assert set.size() == 1;
+    }
+
+    @Test
+    public void testUnionAndIntersection()
+    {
+        CompactIntSet evens = new CompactIntSet();
+        CompactIntSet threes = new CompactIntSet();
+        for (int i=0; i < 300; i++)
+        {
+            if (i % 2 == 0)
+            {
+                evens.add(i);
+            }
+            if (i % 3 == 0)
+            {
+                threes.add(i);
+            }
+        }
+        CompactIntSet union = new CompactIntSet(evens);
+        union.addAll(threes);
+        CompactIntSet intersection = new CompactIntSet(evens);
+        intersection.retainAll(threes);
+        for (int i=0; i < 300; i++)
+        {
+            assert union.contains(i) == (i % 2 == 0 || i % 3 == 0);
+            assert intersection.contains(i) == (i % 6 == 0);
+        }
+        int[] all = intersection.toIntArray();
+        Arrays.sort(all);
+        assert all.length == 50 && all[49] == 294;
+    }
+
+    @Test
+    public void testMatchesHashSet()
+    {
+        Random random = new Random(17);
+        CompactIntSet set = new CompactIntSet()
+        {
+            protected int compactSize() { return 16; }
+        };
+        Set<Integer> expected = new HashSet<>();
+        for (int op=0; op < 50000; op++)
+        {
+            int item = random.nextInt(64) - 16;
+            if (random.nextInt(3) == 0)
+            {
+                assert set.remove(item) == expected.remove(item);
+            }
+            else
+            {
+                assert set.add(item) == expected.add(item);
+            }
+            assert set.size() == expected.size();
+            assert set.contains(item) == expected.contains(item);
+        }
+        assert set.equals(expected);
+    }
+}
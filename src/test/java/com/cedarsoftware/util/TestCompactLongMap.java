@@ -0,0 +1,177 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactLongMap
+{
+    @Test
+    public void testSimpleCases()
+    {
+        CompactLongMap<String> map = new CompactLongMap<>();
+        assert map.isEmpty();
+        assert map.get(1L) == null;
+        assert !map.containsKey(1L);
+        assert map.remove(1L) == null;
+
+        assert map.put(1L, "one") == null;
+        assert map.put(1L, "uno").equals("one");
+        assert map.put(Long.MIN_VALUE, "min") == null;
+        assert map.put(0L, null) == null;
+        assert map.size() == 3;
+        assert map.get(1L).equals("uno");
+        assert map.get(Long.MIN_VALUE).equals("min");
+        assert map.containsKey(0L);
+        assert map.get(0L) == null;
+        assert map.containsValue(null);
+        assert map.containsValue("min");
+        assert !map.containsValue("one");
+        assert map.getOrDefault(2L, "none").equals("none");
+
+        assert map.remove(Long.MIN_VALUE).equals("min");
+        assert map.size() == 2;
+        assert map.remove(1L).equals("uno");
+        assert map.remove(0L) == null;
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testMapInterop()
+    {
+        CompactLongMap<String> map = new CompactLongMap<>();
+        map.put(10L, "ten");
+        map.put(20L, "twenty");
+        Map<Long, String> boxed = map;
+        assert boxed.get(10L).equals("ten");
+        assert boxed.get(10) == null;           // Integer key is not a Long key
+        assert boxed.get("10") == null;
+        assert boxed.containsKey(20L);
+        assert boxed.put(30L, "thirty") == null;
+        assert boxed.remove((Object) 30L).equals("thirty");
+
+        Map<Long, String> expected = new HashMap<>();
+        expected.put(10L, "ten");
+        expected.put(20L, "twenty");
+        assert map.equals(expected);
+        assert expected.equals(map);
+        assert map.hashCode() == expected.hashCode();
+        assert new CompactLongMap<>(expected).equals(map);
+        assertThrows(NullPointerException.class, () -> boxed.put(null, "null"));
+    }
+
+    @Test
+    public void testTransitions()
+    {
+        CompactLongMap<String> map = new CompactLongMap<String>()
+        {
+            protected int compactSize() { return 4; }
+        };
+        for (long i=0; i < 100; i++)
+        {
+            map.put(i * 1000, "v" + i);
+            assert map.size() == i + 1;
+        }
+        for (long i=0; i < 100; i++)
+        {
+            assert map.get(i * 1000).equals("v" + i);
+            assert !map.containsKey(i * 1000 + 1);
+        }
+        for (long i=99; i >= 0; i--)
+        {
+            assert map.remove(i * 1000).equals("v" + i);
+            assert map.size() == i;
+            assert !map.containsKey(i * 1000);
+        }
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testIteratorRemoveAcrossTiers()
+    {
+        CompactLongMap<String> map = new CompactLongMap<String>()
+        {
+            protected int compactSize() { return 8; }
+        };
+        for (long i=0; i < 20; i++)
+        {
+            map.put(i, "v" + i);
+        }
+        List<Long> seen = new ArrayList<>();
+        Iterator<Map.Entry<Long, String>> i = map.entrySet().iterator();
+        while (i.hasNext())
+        {
+            Map.Entry<Long, String> entry = i.next();
+            seen.add(entry.getKey());
+            assert entry.getValue().equals("v" + entry.getKey());
+            entry.setValue("changed");
+            assert map.get(entry.getKey().longValue()).equals("changed");
+            i.remove();     // crosses compactSize() part way through
+        }
+        assert seen.size() == 20;
+        assert map.isEmpty();
+        assertThrows(IllegalStateException.class, i::remove);
+
+        map.put(1L, "1");
+        map.put(2L, "2");
+        Iterator<Long> keys = map.keySet().iterator();
+        keys.next();
+        map.put(3L, "3");
+        assertThrows(ConcurrentModificationException.class, keys::next);
+    }
+
+    @Test
+    public void testMatchesHashMap()
+    {
+        Random random = new Random(5);
+        CompactLongMap<Integer> map = new CompactLongMap<Integer>()
+        {
+            protected int compactSize() { return 16; }
+        };
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int op=0; op < 50000; op++)
+        {
+            long key = random.nextInt(64) - 32L;
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(map.remove(key), expected.remove(key));
+            }
+            else
+            {
+                Integer value = random.nextInt(10) == 0 ? null : op;
+                assert Objects.equals(map.put(key, value), expected.put(key, value));
+            }
+            assert map.size() == expected.size();
+            assert map.containsKey(key) == expected.containsKey(key);
+            assert Objects.equals(map.get(key), expected.get(key));
+        }
+        assert map.equals(expected);
+        assert expected.equals(map);
+    }
+}
@@ -0,0 +1,172 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactLongSet
+{
+    @Test
+    public void testSimpleCases()
+    {
+        CompactLongSet set = new CompactLongSet();
+        assert set.isEmpty();
+        assert !set.contains(0L);
+        assert !set.remove(0L);
+        assert set.add(0L);
+        assert !set.add(0L);
+        assert set.add(Long.MAX_VALUE);
+        assert set.add(-1L);
+        assert set.size() == 3;
+        assert set.contains(0L);
+        assert set.contains(Long.MAX_VALUE);
+        assert !set.contains(1L);
+        assert !set.contains((Object) 0);   // Integer is not a Long
+        assert set.remove(-1L);
+        assert set.remove((Object) 0L);
+        assert set.size() == 1;
+        set.clear();
+        assert set.isEmpty();
+    }
+
+    @Test
+    public void testTransitionsWithZero()
+    {
+        CompactLongSet set = new CompactLongSet()
+        {
+            protected int compactSize() { return 4; }
+        };
+        for (long i=0; i < 100; i++)
+        {
+            assert set.add(i * 7);
+            assert set.size() == i + 1;
+        }
+        for (long i=0; i < 700; i++)
+        {
+            assert set.contains(i) == (i % 7 == 0);
+        }
+        long[] all = set.toLongArray();
+        Arrays.sort(all);
+        assert all.length == 100 && all[0] == 0 && all[99] == 693;
+        for (long i=0; i < 100; i++)
+        {
+            assert set.remove(i * 7);
+            assert !set.contains(i * 7);
+            assert set.size() == 99 - i;
+        }
+        assert set.isEmpty();
+    }
+
+    @Test
+    public void testUnionAndIntersection()
+    {
+        CompactLongSet evens = new CompactLongSet();
+        CompactLongSet threes = new CompactLongSet();
+        for (long i=0; i < 300; i++)
+        {
+            if (i % 2 == 0)
+            {
+                evens.add(i);
+            }
+            if (i % 3 == 0)
+            {
+                threes.add(i);
+            }
+        }
+        CompactLongSet union = new CompactLongSet(evens);
+        assert union.addAll(threes);
+        assert !union.addAll(threes);
+        CompactLongSet intersection = new CompactLongSet(evens);
+        assert intersection.retainAll(threes);
+        assert !intersection.retainAll(threes);
+        for (long i=0; i < 300; i++)
+        {
+            assert union.contains(i) == (i % 2 == 0 || i % 3 == 0);
+            assert intersection.contains(i) == (i % 6 == 0);
+        }
+        assert intersection.size() == 50;
+
+        // Generic Collection arguments still work
+        Set<Long> boxed = new HashSet<>(Arrays.asList(0L, 6L, 7L));
+        assert intersection.retainAll(boxed);
+        assert intersection.equals(new HashSet<>(Arrays.asList(0L, 6L)));
+    }
+
+    @Test
+    public void testIteratorRemove()
+    {
+        CompactLongSet set = new CompactLongSet()
+        {
+            protected int compactSize() { return 8; }
+        };
+        Set<Long> expected = new HashSet<>();
+        for (long i=-10; i < 40; i++)
+        {
+            set.add(i * 31);
+            expected.add(i * 31);
+        }
+        assert set.equals(expected);
+        assert expected.equals(set);
+        assert set.hashCode() == expected.hashCode();
+
+        Iterator<Long> i = set.iterator();
+        while (i.hasNext())
+        {
+            Long item = i.next();
+            assert expected.remove(item);
+            i.remove();         // backward-shift deletes and the switch back to the array tier
+        }
+        assert expected.isEmpty();
+        assert set.isEmpty();
+        assertThrows(IllegalStateException.class, i::remove);
+    }
+
+    @Test
+    public void testMatchesHashSet()
+    {
+        Random random = new Random(13);
+        CompactLongSet set = new CompactLongSet()
+        {
+            protected int compactSize() { return 16; }
+        };
+        Set<Long> expected = new HashSet<>();
+        for (int op=0; op < 50000; op++)
+        {
+            long item = random.nextInt(64) - 16;
+            if (random.nextInt(3) == 0)
+            {
+                assert set.remove(item) == expected.remove(item);
+            }
+            else
+            {
+                assert set.add(item) == expected.add(item);
+            }
+            assert set.size() == expected.size();
+            assert set.contains(item) == expected.contains(item);
+        }
+        assert set.equals(expected);
+    }
+}
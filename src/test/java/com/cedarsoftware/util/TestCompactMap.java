@@ -3464,6 +3464,709 @@ public class TestCompactMap
         assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;    // ensure switch over
     }
 
+    @Test
+    public void testHashIndexBasics()
+    {
+        CompactMap<String, Integer> map = new CompactMap<String, Integer>()
+        {
+            protected int compactSize() { return 10; }
+            protected boolean useHashIndex() { return true; }
+        };
+
+        for (int i=0; i < 10; i++)
+        {
+            assert map.put("k" + i, i) == null;
+            assert map.size() == i + 1;
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        for (int i=0; i < 10; i++)
+        {
+            assert map.get("k" + i) == i;
+            assert map.containsKey("k" + i);
+            assert map.containsValue(i);
+        }
+        assert !map.containsKey("K1");
+        assert map.get("nope") == null;
+        assert map.put("k3", 33) == 3;
+        assert map.get("k3") == 33;
+
+        // Insertion order is retained
+        Iterator<String> i = map.keySet().iterator();
+        for (int j=0; j < 10; j++)
+        {
+            assert i.next().equals("k" + j);
+        }
+
+        map.put("k10", 10);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.remove("k10") == 10;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.get("k9") == 9;
+        assert map.get("k3") == 33;
+
+        for (int j=0; j < 8; j++)
+        {
+            assert map.remove("k" + j) != null;
+            assert map.remove("k" + j) == null;
+        }
+        assert map.size() == 2;
+        assert map.remove("k8") == 8;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ENTRY;
+        assert map.get("k9") == 9;
+        assert map.remove("k9") == 9;
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testHashIndexCaseInsensitive()
+    {
+        CompactMap<Object, Object> map = new CompactMap<Object, Object>()
+        {
+            protected int compactSize() { return 20; }
+            protected boolean isCaseInsensitive() { return true; }
+            protected boolean useHashIndex() { return true; }
+            protected Map<Object, Object> getNewMap() { return new CaseInsensitiveMap<>(compactSize() + 1); }
+        };
+
+        map.put("Content-Type", "json");
+        map.put("Accept", "*/*");
+        map.put(null, "nullKey");
+        map.put(7, "seven");
+        assert map.get("CONTENT-TYPE").equals("json");
+        assert map.get("accept").equals("*/*");
+        assert map.get(null).equals("nullKey");
+        assert map.get(7).equals("seven");
+        assert map.put("content-type", "xml").equals("json");
+        assert map.size() == 4;
+        assert map.keySet().contains("Content-Type");
+        assert map.remove("ACCEPT").equals("*/*");
+        assert !map.containsKey("Accept");
+        assert map.size() == 3;
+
+        Map<Object, Object> other = new CaseInsensitiveMap<>();
+        other.put("CONTENT-type", "xml");
+        other.put(null, "nullKey");
+        other.put(7, "seven");
+        assert map.equals(other);
+    }
+
+    @Test
+    public void testHashIndexCollisions()
+    {
+        // Keys that all hash to the same value force the index to probe.
+        CompactMap<Object, Integer> map = new CompactMap<Object, Integer>()
+        {
+            protected int compactSize() { return 16; }
+            protected boolean useHashIndex() { return true; }
+        };
+        for (int i=0; i < 16; i++)
+        {
+            map.put(new Collider(i), i);
+        }
+        for (int i=0; i < 16; i++)
+        {
+            assert map.get(new Collider(i)) == i;
+        }
+        assert !map.containsKey(new Collider(99));
+        for (int i=0; i < 16; i += 2)
+        {
+            assert map.remove(new Collider(i)) == i;
+        }
+        for (int i=0; i < 16; i++)
+        {
+            assert map.containsKey(new Collider(i)) == (i % 2 == 1);
+        }
+    }
+
+    @Test
+    public void testHashIndexMatchesLinearStorage()
+    {
+        Random random = new Random(7);
+        CompactMap<Integer, Integer> hashed = new CompactMap<Integer, Integer>()
+        {
+            protected int compactSize() { return 30; }
+            protected boolean useHashIndex() { return true; }
+            protected Map<Integer, Integer> getNewMap() { return new LinkedHashMap<>(); }
+        };
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for (int op=0; op < 20000; op++)
+        {
+            Integer key = random.nextInt(40);
+            int choice = random.nextInt(3);
+            if (choice == 0)
+            {
+                assert Objects.equals(hashed.remove(key), expected.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(hashed.put(key, op), expected.put(key, op));
+            }
+            assert hashed.size() == expected.size();
+            assert Objects.equals(hashed.get(key), expected.get(key));
+        }
+        assert hashed.equals(expected);
+        assert expected.equals(hashed);
+        assert hashed.hashCode() == expected.hashCode();
+
+        // Iterator removal walks the parallel arrays correctly
+        Iterator<Map.Entry<Integer, Integer>> i = hashed.entrySet().iterator();
+        while (i.hasNext())
+        {
+            Map.Entry<Integer, Integer> entry = i.next();
+            assert expected.get(entry.getKey()).equals(entry.getValue());
+            i.remove();
+        }
+        assert hashed.isEmpty();
+    }
+
+    @Test
+    public void testSortedArrayBasics()
+    {
+        CompactSortedMap<String, Integer> map = new CompactSortedMap<String, Integer>()
+        {
+            protected int compactSize() { return 5; }
+        };
+        map.put("delta", 4);
+        map.put("alpha", 1);
+        assert map.keySet().iterator().next().equals("alpha");
+        map.put("echo", 5);
+        map.put("charlie", 3);
+        map.put("bravo", 2);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("alpha", "bravo", "charlie", "delta", "echo"));
+        assert new ArrayList<>(map.values()).equals(Arrays.asList(1, 2, 3, 4, 5));
+        assert map.get("charlie") == 3;
+        assert map.get("charlies") == null;
+        assert !map.containsKey("aaa");
+        assert !map.containsKey("zulu");
+        assert map.put("charlie", 33) == 3;
+        assert map.size() == 5;
+
+        // Into TreeMap and back out again - order retained
+        map.put("aaa", 0);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.remove("delta") == 4;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("aaa", "alpha", "bravo", "charlie", "echo"));
+        assert map.remove("aaa") == 0;
+        assert map.remove("echo") == 5;
+        assert map.remove("missing") == null;
+        assert map.remove("bravo") == 2;
+        assert map.remove("alpha") == 1;
+        assert map.size() == 1;
+        assert map.get("charlie") == 33;
+    }
+
+    @Test
+    public void testSortedArrayCaseInsensitive()
+    {
+        CompactCISortedMap<String, Integer> map = new CompactCISortedMap<String, Integer>()
+        {
+            protected int compactSize() { return 4; }
+        };
+        map.put("Banana", 2);
+        map.put("apple", 1);
+        map.put("CHERRY", 3);
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("apple", "Banana", "CHERRY"));
+        assert map.get("BANANA") == 2;
+        assert map.containsKey("cherry");
+        assert map.put("APPLE", 11) == 1;
+        assert map.keySet().contains("apple");     // original key case retained
+
+        map.put("date", 4);
+        map.put("Elder", 5);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("apple", "Banana", "CHERRY", "date", "Elder"));
+        assert map.get("ELDER") == 5;
+        assert map.remove("BANANA") == 2;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("apple", "CHERRY", "date", "Elder"));
+        assert map.get("Cherry") == 3;
+    }
+
+    @Test
+    public void testSortedArrayMatchesTreeMap()
+    {
+        Random random = new Random(11);
+        CompactSortedMap<Integer, Integer> sorted = new CompactSortedMap<Integer, Integer>()
+        {
+            protected int compactSize() { return 30; }
+        };
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int op=0; op < 20000; op++)
+        {
+            Integer key = random.nextInt(40);
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(sorted.remove(key), expected.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(sorted.put(key, op), expected.put(key, op));
+            }
+            assert sorted.size() == expected.size();
+            assert Objects.equals(sorted.get(key), expected.get(key));
+            if (op % 100 == 0)
+            {
+                assert new ArrayList<>(sorted.entrySet()).equals(new ArrayList<>(expected.entrySet()));
+            }
+        }
+        assert sorted.equals(expected);
+        assert sorted.hashCode() == expected.hashCode();
+    }
+
+    static class Collider
+    {
+        final int id;
+        Collider(int id) { this.id = id; }
+        public int hashCode() { return 42; }
+        public boolean equals(Object o) { return o instanceof Collider && ((Collider) o).id == id; }
+    }
+
+    static class CompactRecordMap extends CompactMap<String, Object>
+    {
+        protected int compactSize() { return 10; }
+        protected boolean useSharedKeys() { return true; }
+        protected Map<String, Object> getNewMap() { return new LinkedHashMap<>(); }
+    }
+
+    private static Object keyTable(CompactMap<?, ?> map) throws Exception
+    {
+        java.lang.reflect.Field field = CompactMap.class.getDeclaredField("val");
+        field.setAccessible(true);
+        Object storage = field.get(map);
+        field = storage.getClass().getDeclaredField("shape");
+        field.setAccessible(true);
+        Object shape = field.get(storage);
+        field = shape.getClass().getDeclaredField("keys");
+        field.setAccessible(true);
+        return field.get(shape);
+    }
+
+    @Test
+    public void testSharedKeysBasics() throws Exception
+    {
+        CompactRecordMap row1 = new CompactRecordMap();
+        CompactRecordMap row2 = new CompactRecordMap();
+        for (String field : new String[] {"id", "name", "email", "age"})
+        {
+            row1.put(field, field + "1");
+            row2.put(field, field + "2");
+        }
+        assert keyTable(row1) == keyTable(row2);
+        assert row1.get("email").equals("email1");
+        assert row2.get("email").equals("email2");
+        assert row1.get("missing") == null;
+        assert row1.containsKey("age");
+        assert row1.containsValue("age1");
+        assert !row1.containsValue("age2");
+        assert new ArrayList<>(row1.keySet()).equals(Arrays.asList("id", "name", "email", "age"));
+        assert new ArrayList<>(row2.values()).equals(Arrays.asList("id2", "name2", "email2", "age2"));
+
+        Map<String, Object> expected = new HashMap<>(row1);
+        assert row1.equals(expected);
+        assert expected.equals(row1);
+        assert row1.hashCode() == expected.hashCode();
+
+        // Overwrite does not change the shape
+        assert row1.put("name", "Bob").equals("name1");
+        assert keyTable(row1) == keyTable(row2);
+
+        // Remove and re-add the last key steps back and forth along the shared shapes
+        assert row1.remove("age").equals("age1");
+        row1.put("age", 30);
+        assert keyTable(row1) == keyTable(row2);
+
+        // Structural change (remove a middle key) moves row1 to a private layout; row2 is untouched
+        assert row1.remove("name").equals("Bob");
+        assert row1.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert new ArrayList<>(row1.keySet()).equals(Arrays.asList("id", "email", "age"));
+        assert row2.get("name").equals("name2");
+        assert row2.size() == 4;
+    }
+
+    @Test
+    public void testSharedKeysCaseInsensitive() throws Exception
+    {
+        CompactMap<String, Object> row1 = new CompactMap<String, Object>()
+        {
+            protected boolean isCaseInsensitive() { return true; }
+            protected boolean useSharedKeys() { return true; }
+        };
+        row1.put("Id", 1);
+        row1.put("Name", "Joe");
+        assert row1.get("ID").equals(1);
+        assert row1.get("name").equals("Joe");
+        assert row1.put("NAME", "Jane").equals("Joe");
+        assert row1.keySet().contains("Name");
+        assert new ArrayList<>(row1.keySet()).equals(Arrays.asList("Id", "Name"));
+    }
+
+    static class MixedCaseRecordMap extends CompactMap<String, Object>
+    {
+        final boolean caseInsensitive;
+        final int salt;
+        MixedCaseRecordMap(boolean caseInsensitive, int salt) { this.caseInsensitive = caseInsensitive; this.salt = salt; }
+        protected boolean isCaseInsensitive() { return caseInsensitive; }
+        protected boolean useSharedKeys() { return true; }
+        protected int computeKeyHashCode(Object key) { return super.computeKeyHashCode(key) + salt; }
+    }
+
+    @Test
+    public void testSharedKeysPerInstanceHooks() throws Exception
+    {
+        MixedCaseRecordMap sensitive = new MixedCaseRecordMap(false, 0);
+        MixedCaseRecordMap insensitive = new MixedCaseRecordMap(true, 0);
+        MixedCaseRecordMap salted = new MixedCaseRecordMap(true, 7);
+        for (MixedCaseRecordMap map : Arrays.asList(sensitive, insensitive, salted))
+        {
+            map.put("Alpha", 1);
+            map.put("beta", 2);
+            map.put("gamma", 3);
+        }
+        assert keyTable(sensitive) != keyTable(insensitive);
+        assert sensitive.get("alpha") == null;
+        assert insensitive.get("alpha").equals(1);
+        assert insensitive.get("BETA").equals(2);
+        java.lang.reflect.Field val = CompactMap.class.getDeclaredField("val");
+        val.setAccessible(true);
+        assert val.get(salted) instanceof Object[];     // hashes differ from the shared shape - private storage
+        assert salted.get("ALPHA").equals(1);
+        assert salted.get("Gamma").equals(3);
+    }
+
+    @Test
+    public void testSharedKeysOverflowAndBack()
+    {
+        CompactRecordMap row = new CompactRecordMap();
+        for (int i=0; i < 11; i++)
+        {
+            row.put("field" + i, i);
+        }
+        assert row.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert row.remove("field10").equals(10);
+        assert row.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        for (int i=0; i < 10; i++)
+        {
+            assert row.get("field" + i).equals(i);
+        }
+
+        Iterator<Map.Entry<String, Object>> i = row.entrySet().iterator();
+        int count = 0;
+        while (i.hasNext())
+        {
+            assert i.next().getValue().equals(count++);
+            i.remove();
+        }
+        assert row.isEmpty();
+    }
+
+    @Test
+    public void testSharedKeysMatchesLinkedHashMap()
+    {
+        Random random = new Random(3);
+        Map<Object, Object> expected = new LinkedHashMap<>();
+        CompactMap<Object, Object> shaped = new CompactMap<Object, Object>()
+        {
+            protected int compactSize() { return 30; }
+            protected boolean useSharedKeys() { return true; }
+            protected Map<Object, Object> getNewMap() { return new LinkedHashMap<>(); }
+        };
+
+        for (int op=0; op < 20000; op++)
+        {
+            Object key = random.nextInt(10) == 0 ? null : random.nextInt(40);
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(shaped.remove(key), expected.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(shaped.put(key, op), expected.put(key, op));
+            }
+            assert shaped.size() == expected.size();
+            assert Objects.equals(shaped.get(key), expected.get(key));
+            if (op % 100 == 0)
+            {
+                assert new ArrayList<>(shaped.entrySet()).equals(new ArrayList<>(expected.entrySet()));
+            }
+        }
+        assert shaped.equals(expected);
+        assert shaped.hashCode() == expected.hashCode();
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        CompactMap<String, Object> map = new CompactCILinkedMap<>();
+        map.put("One", 1);
+        map.put("two", 2);
+        map.put(null, 0);
+        map.put("THREE", 3);
+        assert map.freeze() == map;
+        assert map.isFrozen();
+        assert map.size() == 4;
+        assert !map.isEmpty();
+        assert map.get("one").equals(1);
+        assert map.get("TWO").equals(2);
+        assert map.get(null).equals(0);
+        assert map.get("four") == null;
+        assert map.containsKey("three");
+        assert map.containsValue(3);
+        assert !map.containsValue(4);
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("One", "two", null, "THREE"));
+
+        Map<String, Object> expected = new CaseInsensitiveMap<>(map);
+        assert map.equals(expected);
+        assert expected.equals(map);
+        assert map.hashCode() == expected.hashCode();
+
+        assertThrows(UnsupportedOperationException.class, () -> map.put("four", 4));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("one", 11));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("one"));
+        assertThrows(UnsupportedOperationException.class, () -> map.putAll(expected));
+        assertThrows(UnsupportedOperationException.class, map::clear);
+        Iterator<Map.Entry<String, Object>> i = map.entrySet().iterator();
+        Map.Entry<String, Object> entry = i.next();
+        assertThrows(UnsupportedOperationException.class, () -> entry.setValue(99));
+        assertThrows(UnsupportedOperationException.class, i::remove);
+        assert entry.getValue().equals(1);
+        assert map.size() == 4;
+    }
+
+    @Test
+    public void testFreezeEveryStorage()
+    {
+        for (int size : new int[] {0, 1, 2, 10, 80, 81, 500})
+        {
+            CompactMap<Object, Object> map = new CompactMap<>();
+            Map<Object, Object> expected = new HashMap<>();
+            for (int i=0; i < size; i++)
+            {
+                map.put("k" + i, i);
+                expected.put("k" + i, i);
+            }
+            map.freeze();
+            assert map.size() == size;
+            assert map.isEmpty() == (size == 0);
+            assert map.equals(expected);
+            assert map.hashCode() == expected.hashCode();
+            for (int i=0; i < size + 10; i++)
+            {
+                assert Objects.equals(map.get("k" + i), expected.get("k" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testFreezeIdenticalHashCodes()
+    {
+        CompactMap<Object, Object> map = new CompactMap<>();
+        for (int i=0; i < 20; i++)
+        {
+            map.put(new Collider(i), i);
+        }
+        map.put("Aa", "Aa");
+        map.put("BB", "BB");    // same String.hashCode() as "Aa"
+        map.freeze();
+        for (int i=0; i < 20; i++)
+        {
+            assert map.get(new Collider(i)).equals(i);
+        }
+        assert map.get(new Collider(20)) == null;
+        assert map.get("Aa").equals("Aa");
+        assert map.get("BB").equals("BB");
+    }
+
+    @Test
+    public void testFreezeSortedKeepsOrder()
+    {
+        CompactSortedMap<String, Integer> map = new CompactSortedMap<>();
+        map.put("c", 3);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.freeze();
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("a", "b", "c"));
+        assert map.get("b") == 2;
+    }
+
+    private static List<CompactMap<String, Object>> cursorMaps(int size)
+    {
+        List<CompactMap<String, Object>> maps = new ArrayList<>();
+        maps.add(new CompactMap<>());
+        maps.add(new CompactMap<String, Object>()
+        {
+            protected boolean useHashIndex() { return true; }
+        });
+        maps.add(new CompactSortedMap<>());
+        maps.add(new CompactRecordMap());
+        maps.add(new CompactLinkedMap<>());
+        for (CompactMap<String, Object> map : maps)
+        {
+            for (int i=0; i < size; i++)
+            {
+                map.put("k" + i, i);
+            }
+        }
+        CompactMap<String, Object> frozen = new CompactMap<>();
+        frozen.putAll(maps.get(0));
+        maps.add(frozen.freeze());
+        return maps;
+    }
+
+    @Test
+    public void testForEachMatchesIterator()
+    {
+        for (int size : new int[] {0, 1, 2, 10, 80, 81, 200})
+        {
+            for (CompactMap<String, Object> map : cursorMaps(size))
+            {
+                List<Object> expected = new ArrayList<>();
+                for (Map.Entry<String, Object> entry : map.entrySet())
+                {
+                    expected.add(entry.getKey());
+                    expected.add(entry.getValue());
+                }
+
+                List<Object> actual = new ArrayList<>();
+                map.forEach((k, v) -> { actual.add(k); actual.add(v); });
+                assert actual.equals(expected);
+
+                actual.clear();
+                map.forEachEntry(entry -> { actual.add(entry.getKey()); actual.add(entry.getValue()); });
+                assert actual.equals(expected);
+
+                actual.clear();
+                CompactMap.Cursor<String, Object> cursor = map.cursor();
+                while (cursor.next())
+                {
+                    actual.add(cursor.getKey());
+                    actual.add(cursor.getValue());
+                }
+                assert !cursor.next();
+                assert actual.equals(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testForEachUsesCopyOrder()
+    {
+        CompactMap<String, Integer> map = new CompactMap<String, Integer>()
+        {
+            protected Map<String, Integer> getNewMap() { return new TreeMap<>(); }
+        };
+        map.put("c", 3);
+        map.put("a", 1);
+        map.put("b", 2);
+        List<String> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        assert keys.equals(Arrays.asList("a", "b", "c"));
+
+        keys.clear();
+        CompactMap.Cursor<String, Integer> cursor = map.cursor();
+        while (cursor.next())
+        {
+            keys.add(cursor.getKey());
+        }
+        assert keys.equals(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void testForEachHonorsIteratesInStorageOrder()
+    {
+        CompactMap<String, Integer> map = new CompactMap<String, Integer>()
+        {
+            protected Map<String, Integer> getNewMap() { return new TreeMap<>(); }
+            protected boolean iteratesInStorageOrder() { return true; }
+        };
+        map.put("c", 3);
+        map.put("a", 1);
+        map.put("b", 2);
+        List<String> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        assert keys.equals(Arrays.asList("c", "a", "b"));
+
+        keys.clear();
+        CompactMap.Cursor<String, Integer> cursor = map.cursor();
+        while (cursor.next())
+        {
+            keys.add(cursor.getKey());
+        }
+        assert keys.equals(Arrays.asList("c", "a", "b"));
+    }
+
+    @Test
+    public void testCursorReuseSetValueAndRemove()
+    {
+        CompactMap.Cursor<String, Object> cursor = new CompactMap.Cursor<>();
+        assertThrows(IllegalStateException.class, cursor::next);
+        for (int size : new int[] {1, 2, 10, 80, 84, 200})
+        {
+            List<CompactMap<String, Object>> maps = cursorMaps(size);
+            maps.remove(maps.size() - 1);   // frozen
+            for (CompactMap<String, Object> map : maps)
+            {
+                Map<String, Object> expected = new HashMap<>();
+                cursor.reset(map);
+                assertThrows(IllegalStateException.class, cursor::getKey);
+                assertThrows(IllegalStateException.class, cursor::remove);
+                int count = 0;
+                while (cursor.next())
+                {
+                    count++;
+                    int value = (Integer) cursor.getValue();
+                    if (value % 2 == 0)
+                    {   // Crosses from the Map back to compact storage mid-walk when size is just over compactSize
+                        cursor.remove();
+                    }
+                    else
+                    {
+                        assert cursor.setValue(value * 10).equals(value);
+                        assert cursor.getValue().equals(value * 10);
+                        expected.put(cursor.getKey(), value * 10);
+                    }
+                }
+                assert count == size;
+                assert map.equals(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testForEachConcurrentModification()
+    {
+        CompactMap<String, Object> map = cursorMaps(5).get(0);
+        assertThrows(ConcurrentModificationException.class, () -> map.forEach((k, v) -> map.put(k + "x", v)));
+        CompactMap.Cursor<String, Object> cursor = map.cursor();
+        cursor.next();
+        map.remove("k4");
+        assertThrows(ConcurrentModificationException.class, cursor::next);
+
+        CompactMap<String, Object> frozen = cursorMaps(5).get(5);
+        CompactMap.Cursor<String, Object> frozenCursor = frozen.cursor();
+        frozenCursor.next();
+        assertThrows(UnsupportedOperationException.class, () -> frozenCursor.setValue(1));
+        assertThrows(UnsupportedOperationException.class, frozenCursor::remove);
+    }
+
+    @Test
+    public void testSortedArrayAndHashIndexExclusive()
+    {
+        assertThrows(IllegalStateException.class, () -> new CompactMap<String, Integer>()
+        {
+            protected boolean useHashIndex() { return true; }
+            protected boolean useSortedArray() { return true; }
+        });
+        assertThrows(IllegalStateException.class, () -> new CompactMap<String, Integer>()
+        {
+            protected boolean useHashIndex() { return true; }
+            protected boolean useSharedKeys() { return true; }
+        });
+    }
+
     @Disabled
     @Test
     public void testPerformance()
@@ -3,8 +3,12 @@ package com.cedarsoftware.util;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -362,6 +366,135 @@ public class TestCompactSet
         clearViaIterator(copy);
     }
     
+    @Test
+    public void testFreeze()
+    {
+        CompactSet<String> set = new CompactCILinkedSet<>();
+        set.add("Alpha");
+        set.add("beta");
+        set.add(null);
+        set.add("GAMMA");
+        assert set.freeze() == set;
+        assert set.isFrozen();
+        assert set.size() == 4;
+        assert set.contains("alpha");
+        assert set.contains("BETA");
+        assert set.contains(null);
+        assert !set.contains("delta");
+        assert new java.util.ArrayList<>(set).equals(Arrays.asList("Alpha", "beta", null, "GAMMA"));
+
+        assertThrows(UnsupportedOperationException.class, () -> set.add("delta"));
+        assertThrows(UnsupportedOperationException.class, () -> set.remove("alpha"));
+        assertThrows(UnsupportedOperationException.class, set::clear);
+        Iterator<String> i = set.iterator();
+        i.next();
+        assertThrows(UnsupportedOperationException.class, i::remove);
+        assert set.size() == 4;
+
+        CompactSet<Integer> empty = new CompactSet<Integer>().freeze();
+        assert empty.isEmpty();
+        assert !empty.contains(1);
+    }
+
+    @Test
+    public void testFreezeLarge()
+    {
+        CompactSet<Integer> set = new CompactSet<>();
+        Set<Integer> expected = new HashSet<>();
+        for (int i=0; i < 5000; i++)
+        {
+            set.add(i * 31);
+            expected.add(i * 31);
+        }
+        set.freeze();
+        assert set.equals(expected);
+        for (int i=0; i < 5000 * 31; i++)
+        {
+            assert set.contains(i) == expected.contains(i);
+        }
+    }
+
+    @Test
+    public void testForEachAndCursor()
+    {
+        CompactSet.Cursor<Integer> cursor = new CompactSet.Cursor<>();
+        for (int size : new int[] {0, 1, 2, 10, 80, 84, 200})
+        {
+            CompactSet<Integer> set = new CompactLinkedSet<>();
+            for (int i=0; i < size; i++)
+            {
+                set.add(i);
+            }
+            List<Integer> expected = new ArrayList<>(set);
+            List<Integer> actual = new ArrayList<>();
+            set.forEach(actual::add);
+            assert actual.equals(expected);
+
+            actual.clear();
+            cursor.reset(set);
+            while (cursor.next())
+            {
+                actual.add(cursor.get());
+            }
+            assert actual.equals(expected);
+
+            int count = 0;
+            cursor.reset(set);
+            while (cursor.next())
+            {
+                count++;
+                if (cursor.get() % 2 == 0)
+                {
+                    cursor.remove();
+                }
+            }
+            assert count == size;
+            assert set.size() == size / 2;
+            for (int i=0; i < size; i++)
+            {
+                assert set.contains(i) == (i % 2 == 1);
+            }
+
+            set.freeze();
+            actual.clear();
+            set.forEach(actual::add);
+            assert actual.equals(new ArrayList<>(set));
+        }
+    }
+
+    @Test
+    public void testForEachUsesCopyOrder()
+    {
+        CompactSet<String> set = new CompactSet<String>()
+        {
+            protected Set<String> getNewSet() { return new TreeSet<>(); }
+        };
+        set.add("c");
+        set.add("a");
+        set.add("b");
+        List<String> items = new ArrayList<>();
+        set.forEach(items::add);
+        assert items.equals(Arrays.asList("a", "b", "c"));
+        CompactSet<String> copy = new CompactSet<>(items);
+        assertThrows(ConcurrentModificationException.class, () -> copy.forEach(copy::remove));
+    }
+
+    @Test
+    public void testForEachHonorsIteratesInStorageOrder()
+    {
+        CompactSet<String> set = new CompactSet<String>()
+        {
+            protected Set<String> getNewSet() { return new TreeSet<>(); }
+            protected boolean iteratesInStorageOrder() { return true; }
+        };
+        set.add("c");
+        set.add("a");
+        set.add("b");
+        List<String> items = new ArrayList<>();
+        set.forEach(items::add);
+        assert items.equals(Arrays.asList("c", "a", "b"));
+    }
+
     @Disabled
     @Test
     public void testPerformance()
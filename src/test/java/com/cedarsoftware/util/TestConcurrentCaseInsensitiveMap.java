@@ -0,0 +1,167 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestConcurrentCaseInsensitiveMap
+{
+    @Test
+    public void testCaseInsensitiveBasics()
+    {
+        ConcurrentCaseInsensitiveMap<Object, Integer> map = new ConcurrentCaseInsensitiveMap<>();
+        assert map.put("Content-Type", 1) == null;
+        assert map.put("CONTENT-TYPE", 2) == 1;
+        assert map.size() == 1;
+        assert map.get("content-type") == 2;
+        assert map.containsKey("cOnTeNt-TyPe");
+        assert map.keySet().iterator().next().equals("Content-Type");   // first case is kept
+        assert map.containsValue(2);
+
+        assert map.put(5L, 5) == null;
+        assert map.get(5L) == 5;
+        assert map.get(5) == null;
+        assert map.size() == 2;
+
+        assert map.remove("CONTENT-type") == 2;
+        assert !map.containsKey("Content-Type");
+        assert map.get(null) == null;
+        assert !map.containsKey(null);
+        assert map.remove(null) == null;
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.put("a", null));
+    }
+
+    @Test
+    public void testAtomicOperations()
+    {
+        ConcurrentCaseInsensitiveMap<String, Integer> map = new ConcurrentCaseInsensitiveMap<>();
+        assert map.putIfAbsent("Key", 1) == null;
+        assert map.putIfAbsent("KEY", 2) == 1;
+        assert !map.replace("key", 2, 3);
+        assert map.replace("kEy", 1, 3);
+        assert map.replace("KEY", 4) == 3;
+        assert map.replace("missing", 4) == null;
+        assert !map.remove("key", 3);
+        assert map.merge("KEY", 10, Integer::sum) == 14;
+        assert map.compute("key", (k, v) -> {
+            assert k.equals("key");
+            return v + 1;
+        }) == 15;
+        assert map.computeIfPresent("KeY", (k, v) -> v + 1) == 16;
+        assert map.computeIfAbsent("KEY", k -> 99) == 16;
+        assert map.computeIfAbsent("Other", String::length) == 5;
+        assert map.computeIfPresent("OTHER", (k, v) -> null) == null;
+        assert !map.containsKey("other");
+        assert map.getOrDefault("nope", 7) == 7;
+        assert map.remove("key", 16);
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testViewsAndEquality()
+    {
+        ConcurrentCaseInsensitiveMap<String, Integer> map = new ConcurrentCaseInsensitiveMap<>();
+        map.put("One", 1);
+        map.put("Two", 2);
+        map.put("Three", 3);
+
+        Map<String, Integer> ciMap = new CaseInsensitiveMap<>();
+        ciMap.put("ONE", 1);
+        ciMap.put("two", 2);
+        ciMap.put("three", 3);
+        assert map.equals(ciMap);
+        assert ciMap.equals(map);
+        assert map.hashCode() == ciMap.hashCode();
+
+        assert map.keySet().contains("ONE");
+        assert map.keySet().remove("one");
+        assert map.entrySet().contains(new HashMap.SimpleEntry<>("TWO", 2));
+        assert !map.entrySet().contains(new HashMap.SimpleEntry<>("TWO", 3));
+
+        for (Map.Entry<String, Integer> entry : map.entrySet())
+        {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assert map.get("two") == 20;
+        assert map.get("THREE") == 30;
+
+        Iterator<String> i = map.keySet().iterator();
+        while (i.hasNext())
+        {
+            if (i.next().equals("Two"))
+            {
+                i.remove();
+            }
+        }
+        assert map.size() == 1;
+        map.replaceAll((k, v) -> k.length());
+        map.forEach((k, v) -> {
+            assert k.equals("Three");
+            assert v == 5;
+        });
+        map.values().clear();
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testConcurrentMergeAcrossCases() throws Exception
+    {
+        final ConcurrentCaseInsensitiveMap<String, Integer> map = new ConcurrentCaseInsensitiveMap<>();
+        final String[] spellings = {"counter", "COUNTER", "Counter", "cOUNTER"};
+        final int perThread = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread[] threads = new Thread[spellings.length];
+        for (int t=0; t < threads.length; t++)
+        {
+            final String key = spellings[t];
+            threads[t] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                    for (int i=0; i < perThread; i++)
+                    {
+                        map.merge(key, 1, Integer::sum);
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failed.set(true);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assert !failed.get();
+        assert map.size() == 1;
+        assert map.get("COUNTER") == perThread * spellings.length;
+    }
+}
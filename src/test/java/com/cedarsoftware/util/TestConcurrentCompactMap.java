@@ -0,0 +1,292 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestConcurrentCompactMap
+{
+    private static ConcurrentCompactMap<String, Integer> newMap(final int compactSize)
+    {
+        return new ConcurrentCompactMap<String, Integer>()
+        {
+            protected int compactSize() { return compactSize; }
+        };
+    }
+
+    @Test
+    public void testSimpleCases()
+    {
+        ConcurrentCompactMap<String, Integer> map = newMap(3);
+        assert map.isEmpty();
+        assert map.get("a") == null;
+        assert !map.containsKey("a");
+        assert map.remove("a") == null;
+
+        assert map.put("a", 1) == null;
+        assert map.put("a", 11) == 1;
+        assert map.put("b", 2) == null;
+        assert map.size() == 2;
+        assert map.get("a") == 11;
+        assert map.containsValue(2);
+        assert !map.containsValue(1);
+        assert !map.containsKey("A");
+
+        assert map.remove("a") == 11;
+        assert map.size() == 1;
+        assert map.get("b") == 2;
+        map.clear();
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testNullsRejected()
+    {
+        ConcurrentCompactMap<String, Integer> map = newMap(3);
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.put("a", null));
+        assert map.get(null) == null;
+        assert !map.containsKey(null);
+        assert map.remove(null) == null;
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testCompactSizeMinimum()
+    {
+        assertThrows(IllegalStateException.class, () -> newMap(1));
+    }
+
+    @Test
+    public void testTransitions()
+    {
+        ConcurrentCompactMap<String, Integer> map = newMap(4);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i=0; i < 10; i++)
+        {
+            assert map.put("k" + i, i) == null;
+            expected.put("k" + i, i);
+            assert map.size() == i + 1;
+            assert map.equals(expected);
+            assert expected.equals(map);
+        }
+        for (int i=0; i < 10; i++)
+        {
+            assert map.get("k" + i) == i;
+        }
+        for (int i=9; i >= 0; i--)
+        {
+            assert map.remove("k" + i) == i;
+            expected.remove("k" + i);
+            assert map.size() == i;
+            assert map.equals(expected);
+            assert map.hashCode() == expected.hashCode();
+        }
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testConcurrentMapOperations()
+    {
+        for (int size : new int[] {1, 6})
+        {   // compact array, then Map
+            ConcurrentCompactMap<String, Integer> map = newMap(3);
+            for (int i=0; i < size; i++)
+            {
+                map.put("k" + i, i);
+            }
+
+            assert map.putIfAbsent("k0", 99) == 0;
+            assert map.get("k0") == 0;
+            assert map.putIfAbsent("new", 7) == null;
+            assert map.get("new") == 7;
+
+            assert !map.remove("new", 8);
+            assert map.remove("new", 7);
+            assert !map.containsKey("new");
+
+            assert !map.replace("k0", 5, 6);
+            assert map.replace("k0", 0, 6);
+            assert map.get("k0") == 6;
+            assert map.replace("k0", 0) == 6;
+            assert map.replace("absent", 1) == null;
+            assert !map.containsKey("absent");
+
+            assert map.computeIfAbsent("c", k -> 3) == 3;
+            assert map.merge("c", 10, Integer::sum) == 13;
+            assert map.compute("c", (k, v) -> null) == null;
+            assert !map.containsKey("c");
+            assert map.size() == size;
+        }
+    }
+
+    @Test
+    public void testIterators()
+    {
+        for (int size : new int[] {3, 8})
+        {
+            ConcurrentCompactMap<String, Integer> map = newMap(4);
+            for (int i=0; i < size; i++)
+            {
+                map.put("k" + i, i);
+            }
+
+            int count = 0;
+            Iterator<Map.Entry<String, Integer>> i = map.entrySet().iterator();
+            assertThrows(IllegalStateException.class, i::remove);
+            while (i.hasNext())
+            {
+                Map.Entry<String, Integer> entry = i.next();
+                map.put("during" + count, -1);     // weakly consistent - never throws
+                entry.setValue(entry.getValue() * 10);
+                count++;
+            }
+            assert count >= size;
+            for (int j=0; j < size; j++)
+            {
+                assert map.get("k" + j) == j * 10;
+            }
+
+            i = map.entrySet().iterator();
+            while (i.hasNext())
+            {
+                if (i.next().getKey().startsWith("during"))
+                {
+                    i.remove();
+                }
+            }
+            assert map.size() == size;
+            assert map.keySet().contains("k0");
+            assert map.values().contains(0);
+            assert map.entrySet().remove(new AbstractMap.SimpleEntry<>("k0", 0));
+            assert map.size() == size - 1;
+        }
+    }
+
+    @Test
+    public void testCaseInsensitive()
+    {
+        ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<String, Integer>()
+        {
+            protected int compactSize() { return 3; }
+            protected boolean isCaseInsensitive() { return true; }
+        };
+        map.put("Key", 1);
+        assert map.get("KEY") == 1;
+        assert map.put("kEy", 2) == 1;
+        assert map.size() == 1;
+        assert map.remove("key") == 2;
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception
+    {
+        final ConcurrentCompactMap<String, Integer> map = newMap(16);
+        for (int i=0; i < 8; i++)
+        {
+            map.put("stable" + i, i);
+        }
+        final AtomicBoolean failed = new AtomicBoolean();
+        final AtomicInteger done = new AtomicInteger();
+        final int writers = 2;
+        final int readers = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[writers + readers];
+        for (int t=0; t < writers; t++)
+        {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                    for (int n=0; n < 20000; n++)
+                    {   // Moves the map back and forth across the array / Map boundary
+                        String key = "w" + id + "_" + (n % 20);
+                        if (map.putIfAbsent(key, n) != null)
+                        {
+                            map.remove(key);
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failed.set(true);
+                }
+                finally
+                {
+                    done.incrementAndGet();
+                }
+            });
+        }
+        for (int t=writers; t < threads.length; t++)
+        {
+            threads[t] = new Thread(() -> {
+                try
+                {
+                    start.await();
+                    while (done.get() < writers)
+                    {
+                        for (int i=0; i < 8; i++)
+                        {
+                            Integer value = map.get("stable" + i);
+                            if (value == null || value != i)
+                            {
+                                failed.set(true);
+                            }
+                        }
+                        for (Map.Entry<String, Integer> entry : map.entrySet())
+                        {
+                            if (entry.getKey() == null || entry.getValue() == null)
+                            {
+                                failed.set(true);
+                            }
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failed.set(true);
+                }
+            });
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assert !failed.get();
+        for (int i=0; i < 8; i++)
+        {
+            assert map.get("stable" + i) == i;
+        }
+    }
+}
@@ -11,10 +11,25 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -1635,4 +1650,384 @@ public class TestConverter
         AtomicLong atomicLong = convertToAtomicLong(ZonedDateTime.of(2020, 9, 8, 13, 11, 1, 0, ZoneId.systemDefault()));
         assert atomicLong.get() == cal.getTime().getTime();
     }
+
+    static class Money
+    {
+        final long cents;
+        Money(long cents) { this.cents = cents; }
+    }
+
+    static class Euros extends Money
+    {
+        Euros(long cents) { super(cents); }
+    }
+
+    @Test
+    public void testAddConversion()
+    {
+        // Unregistered source - falls back to convertToBigDecimal(), which does not know it
+        assert Converter.getConversion(Money.class, BigDecimal.class) == Converter.getConversion(String.class, BigDecimal.class);
+        try
+        {
+            convert(new Money(1), BigDecimal.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().toLowerCase().contains("unsupported value"));
+        }
+
+        assert Converter.addConversion(Money.class, BigDecimal.class, money -> BigDecimal.valueOf(((Money) money).cents, 2)) == null;
+        Converter.addConversion(Money.class, Long.class, money -> ((Money) money).cents);
+        Converter.addConversion(String.class, Money.class, cents -> new Money(Long.parseLong((String) cents)));
+
+        assert convert(new Money(1234), BigDecimal.class).equals(new BigDecimal("12.34"));
+        assert convert(new Euros(99), BigDecimal.class).equals(new BigDecimal("0.99"));    // subclass uses Money's
+        assert convert(new Euros(99), long.class) == 99L;                                  // primitive uses wrapper's
+        assert convert("250", Money.class).cents == 250;
+        assert convert(null, Money.class) == null;
+        assert Converter.getConversion(Euros.class, Long.class) != null;
+        assert Converter.getConversion(Money.class, Money[].class) == null;
+
+        // A subclass registration wins over its superclass's
+        Converter.addConversion(Euros.class, BigDecimal.class, euros -> BigDecimal.ONE);
+        assert convert(new Euros(99), BigDecimal.class).equals(BigDecimal.ONE);
+        assert convert(new Money(99), BigDecimal.class).equals(new BigDecimal("0.99"));
+
+        assertThrows(IllegalArgumentException.class, () -> convert(new Money(1), Date.class));
+        assertThrows(IllegalArgumentException.class, () -> convert(null, Money[].class));
+        assertThrows(IllegalArgumentException.class, () -> Converter.addConversion(null, Long.class, x -> 0L));
+    }
+
+    @Test
+    public void testBuiltInPairsMatchConvertToMethods()
+    {
+        Object[] sources = {(byte) -7, (short) 300, 70000, 5000000000L, 3.75f, -2.5d, new BigInteger("123456789012"),
+                new BigDecimal("-98.6"), new AtomicInteger(42), new AtomicLong(43), true, false, 'A', (char) 0,
+                "17", "", new AtomicBoolean(true), new Date(1000), new java.sql.Date(1000), new Timestamp(1000)};
+        for (Object source : sources)
+        {
+            assertEquals(safe(() -> convertToByte(source)), safe(() -> convert(source, Byte.class)));
+            assertEquals(safe(() -> convertToShort(source)), safe(() -> convert(source, short.class)));
+            assertEquals(safe(() -> convertToInteger(source)), safe(() -> convert(source, Integer.class)));
+            assertEquals(safe(() -> convertToLong(source)), safe(() -> convert(source, long.class)));
+            assertEquals(safe(() -> convertToFloat(source)), safe(() -> convert(source, Float.class)));
+            assertEquals(safe(() -> convertToDouble(source)), safe(() -> convert(source, double.class)));
+            assertEquals(safe(() -> convertToBoolean(source)), safe(() -> convert(source, Boolean.class)));
+            assertEquals(safe(() -> convertToCharacter(source)), safe(() -> convert(source, char.class)));
+            assertEquals(safe(() -> convertToString(source)), safe(() -> convert(source, String.class)));
+        }
+        Long big = 5000000000L;
+        assert convert(big, Long.class) == big;     // immutable - same instance
+
+        // Date subclasses use java.util.Date's String form
+        assertEquals(convertToString(new Date(1000)), convertToString(new Timestamp(1000)));
+        try
+        {
+            convert("x", Thread.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {   // Names the source class as well as the target
+            assertEquals("Unsupported type 'java.lang.Thread' for conversion from 'java.lang.String'", e.getMessage());
+        }
+    }
+
+    private static Object safe(java.util.function.Supplier<Object> conversion)
+    {
+        try
+        {
+            return conversion.get();
+        }
+        catch (IllegalArgumentException e)
+        {
+            return IllegalArgumentException.class;
+        }
+    }
+
+    @Test
+    public void testBulkConversion()
+    {
+        Object[] column = {"12", 7, 8L, null, 2.9d, new BigDecimal("4.5"), true, " 33 ", new AtomicLong(5)};
+        long[] longs = convertToLongArray(column);
+        int[] ints = convertToIntArray(column);
+        double[] doubles = convertToDoubleArray(column);
+        Long[] wrappers = convertAll(column, Long.class);
+        Long[] primitives = convertAll(column, long.class);
+        for (int i=0; i < column.length; i++)
+        {
+            assert longs[i] == convert2long(column[i]);
+            assert ints[i] == convert2int(column[i]);
+            assert doubles[i] == convert2double(column[i]);
+            assertEquals(convert(column[i], Long.class), wrappers[i]);
+            assertEquals(convert(column[i], long.class), primitives[i]);
+        }
+        assert wrappers[3] == null;
+        assert primitives[3] == 0L;
+        assert convertToLongArray(null) == null;
+        assert convertAll(null, String.class) == null;
+        assert convertAll(new Object[] {1, true}, String[].class.getComponentType())[1].equals("true");
+
+        try
+        {
+            convertToLongArray(new Object[] {1L, "x1"});
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().toLowerCase().contains("could not be converted"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> convertAll(new Object[] {1}, TestConverter.class));
+    }
+
+    @Test
+    public void testParallelBulkConversion()
+    {
+        Object[] column = new Object[100000];
+        for (int i=0; i < column.length; i++)
+        {
+            column[i] = (i % 3 == 0) ? Integer.toString(i) : (i % 3 == 1) ? (Object) (long) i : (Object) (double) i;
+        }
+        long[] sequential = convertToLongArray(column);
+        long[] parallel = convertToLongArray(column, true);
+        assertArrayEquals(sequential, parallel);
+        for (int i=0; i < column.length; i++)
+        {
+            assert parallel[i] == i;
+        }
+        assertArrayEquals(convertToDoubleArray(column), convertToDoubleArray(column, true));
+        assertArrayEquals(convertToIntArray(column), convertToIntArray(column, true));
+        assertArrayEquals(convertAll(column, String.class), convertAll(column, String.class, true));
+    }
+
+    @Test
+    public void testParseMatchesStringConversion()
+    {
+        String[] inputs = {"0", "-0", "+7", " 42 ", "\t-17\n", "12.7", "-12.7", "-0.5", ".5", "5.", "007",
+                "2147483647", "2147483648", "-2147483648", "-2147483649", "999999999999999999", "1000000000000000000",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808", "1e3", "-2.5E2", "",
+                "   ", "3.14159265358979", "0.1", "123456789.123456789", "1.7976931348623157E308"};
+        for (String input : inputs)
+        {
+            assertEquals(referenceLong(input), parseLong(input));
+            assertEquals(referenceLong(input), convert2long(input));
+            assertEquals((Long) referenceLong(input), convert(input, Long.class));
+            assertEquals(referenceDouble(input), parseDouble(input), 0.0);
+            assertEquals(Double.doubleToLongBits(referenceDouble(input)), Double.doubleToLongBits(convert2double(input)));
+            long asLong = referenceLong(input);
+            if (asLong >= Integer.MIN_VALUE && asLong <= Integer.MAX_VALUE)
+            {
+                assertEquals((int) asLong, parseInt(input));
+                assertEquals((int) asLong, convert2int(input));
+            }
+            else
+            {
+                assertThrows(IllegalArgumentException.class, () -> parseInt(input));
+            }
+        }
+
+        assertEquals(12L, parseLong("\u0661\u0662"));     // non-ASCII digits, as Long.parseLong() accepts
+
+        // Ranges of a larger buffer, trimmed without substrings
+        String line = "id=  123 ;price=19.99;qty=-4";
+        assertEquals(123, parseInt(line, 3, 9));
+        assertEquals(19.99, parseDouble(line, 16, 21), 0.0);
+        assertEquals(-4L, parseLong(line, 26, line.length()));
+        assertEquals(19L, parseLong(new StringBuilder(line), 16, 21));
+
+        Random random = new Random(19);
+        for (int i=0; i < 100000; i++)
+        {
+            String text = (random.nextBoolean() ? "-" : "") + random.nextInt(1000000) + "." + random.nextInt(1000000000);
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(text)), Double.doubleToLongBits(parseDouble(text)));
+            String big = Long.toString(random.nextLong() >>> random.nextInt(64));
+            assertEquals(Long.parseLong(big), parseLong(big));
+        }
+
+        try
+        {
+            parseLong("12abc");
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().toLowerCase().contains("could not be converted");
+        }
+        assertThrows(IllegalArgumentException.class, () -> parseDouble("1.2.3"));
+        assertThrows(IllegalArgumentException.class, () -> parseInt("-"));
+
+        // Malformed text is reported exactly as given, surrounding whitespace included
+        for (String bad : new String[] {" 1 2", "x ", " \t12abc "})
+        {
+            assertEquals(message(() -> convertToLong(bad)), message(() -> parseLong(bad)));
+            assertEquals(message(() -> convertToInteger(bad)), message(() -> parseInt(bad)));
+            assertEquals(message(() -> convertToDouble(bad)), message(() -> parseDouble(bad)));
+            assertEquals(message(() -> convertToDouble(bad)), message(() -> parseDouble("[" + bad + "]", 1, bad.length() + 1)));
+        }
+    }
+
+    private static String message(Runnable conversion)
+    {
+        try
+        {
+            conversion.run();
+        }
+        catch (IllegalArgumentException e)
+        {
+            return e.getMessage();
+        }
+        throw new AssertionError("expected IllegalArgumentException");
+    }
+
+    /**
+     * convert2long() of a String as it was before the CharSequence parser.
+     */
+    private static long referenceLong(String input)
+    {
+        String text = input.trim();
+        if (text.isEmpty())
+        {
+            return 0;
+        }
+        try
+        {
+            return Long.parseLong(text);
+        }
+        catch (NumberFormatException e)
+        {
+            return new BigDecimal(text).longValue();
+        }
+    }
+
+    private static double referenceDouble(String input)
+    {
+        String text = input.trim();
+        return text.isEmpty() ? 0.0 : Double.parseDouble(text);
+    }
+
+    @Test
+    public void testParseDoesNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return;     // allocation counting not available on this JVM
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+        String[] values = new String[64];
+        for (int i=0; i < values.length; i++)
+        {
+            values[i] = " " + (i * 1000003L) + "." + i + " ";
+        }
+        Object[] column = values.clone();
+
+        for (int pass=0; pass < 2; pass++)
+        {   // First pass warms up (class loading)
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            long sum = 0;
+            for (int n=0; n < 100; n++)
+            {
+                for (String value : values)
+                {
+                    sum += parseLong(value) + parseInt(value) + (long) parseDouble(value);
+                }
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            assert sum > 0;
+            if (pass == 1)
+            {   // 19,200 parses - a trim() and a Long for each would be over 500KB
+                assert allocated < 1024 : "parsing allocated " + allocated + " bytes";
+            }
+        }
+        long[] longs = convertToLongArray(column);
+        assert longs[5] == 5 * 1000003L;
+    }
+
+    @Test
+    public void testConvertToArray()
+    {
+        List<String> ids = Arrays.asList("1", " 2 ", "3.7", null);
+        assertArrayEquals(new long[] {1, 2, 3, 0}, convertToArray(ids, long[].class));
+        assertArrayEquals(new int[] {1, 2, 3, 0}, convertToArray(ids.toArray(), int[].class));
+        assertArrayEquals(new double[] {1, 2, 3.7, 0}, convertToArray(ids, double[].class));
+        assert Arrays.equals(new short[] {1, 2, 3, 0}, convertToArray(ids, short[].class));
+        assertArrayEquals(new Long[] {1L, 2L, 3L, null}, convertToArray(ids, Long[].class));
+        assertArrayEquals(new String[] {"1", "2", "3"}, convertToArray(new int[] {1, 2, 3}, String[].class));
+        assertArrayEquals(new boolean[] {true, false}, convertToArray(Arrays.asList(1, 0).iterator(), boolean[].class));
+
+        Iterable<Object> iterable = () -> Arrays.<Object>asList(1.5d, 2L).iterator();
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("1.5"), new BigDecimal(2)}, convertToArray(iterable, BigDecimal[].class));
+        assert convertToArray(null, long[].class) == null;
+
+        assertThrows(IllegalArgumentException.class, () -> convertToArray(ids, long.class));
+        assertThrows(IllegalArgumentException.class, () -> convertToArray("not a container", long[].class));
+        assertThrows(IllegalArgumentException.class, () -> convertToArray(new Object[] {new Object()}, long[].class));
+    }
+
+    @Test
+    public void testConvertToCollectionAndMap()
+    {
+        List<?> list = convertToCollection(new String[] {"3", "1", "2"}, List.class, Long.class);
+        assert list instanceof ArrayList;
+        assertEquals(Arrays.asList(3L, 1L, 2L), list);
+
+        SortedSet<?> sorted = convertToCollection(new long[] {3, 1, 2, 1}, SortedSet.class, String.class);
+        assertEquals(Arrays.asList("1", "2", "3"), new ArrayList<>(sorted));
+        Set<?> set = convertToCollection(Arrays.asList("7", "7.9", "8"), LinkedHashSet.class, Integer.class);
+        assertEquals(Arrays.asList(7, 8), new ArrayList<>(set));
+        Deque<?> deque = convertToCollection(Arrays.asList(1, 2), Deque.class, Double.class);
+        assertEquals(1.0, deque.peekFirst());
+        LinkedList<?> linked = convertToCollection(Arrays.asList("true", null), LinkedList.class, Boolean.class);
+        assertEquals(Arrays.asList(true, null), linked);
+        assert convertToCollection(null, List.class, Long.class) == null;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> convertToCollection(Arrays.asList("1", null), Queue.class, Long.class));
+        assert e.getMessage().contains("java.util.Queue");
+        assertThrows(IllegalArgumentException.class, () -> convertToCollection(Arrays.asList("1", null), SortedSet.class, Long.class));
+
+        Map<String, String> strings = new LinkedHashMap<>();
+        strings.put("a", "1");
+        strings.put("b", "2.0");
+        strings.put("c", null);
+        Map<?, ?> ints = convertToMap(strings, Map.class, String.class, Integer.class);
+        assert ints instanceof LinkedHashMap;
+        assertEquals(1, ints.get("a"));
+        assertEquals(2, ints.get("b"));
+        assert ints.containsKey("c") && ints.get("c") == null;
+        e = assertThrows(IllegalArgumentException.class, () -> convertToMap(strings, ConcurrentMap.class, String.class, Integer.class));
+        assert e.getMessage().contains("java.util.concurrent.ConcurrentMap");
+
+        Map<Long, String> byId = new HashMap<>();
+        byId.put(10L, "ten");
+        byId.put(2L, "two");
+        SortedMap<?, ?> sortedMap = convertToMap(byId, SortedMap.class, String.class, String.class);
+        assertEquals(Arrays.asList("10", "2"), new ArrayList<>(sortedMap.keySet()));
+        CaseInsensitiveMap<?, ?> caseless = convertToMap(strings, CaseInsensitiveMap.class, String.class, Long.class);
+        assertEquals(2L, caseless.get("B"));
+    }
+
+    @Test
+    public void testConvertIterator()
+    {
+        // Unbounded source - only what is consumed is converted
+        Iterator<Integer> naturals = new Iterator<Integer>()
+        {
+            int next = 0;
+            public boolean hasNext() { return true; }
+            public Integer next() { return next++; }
+        };
+        Iterator<String> strings = convertIterator(naturals, String.class);
+        assertEquals("0", strings.next());
+        assertEquals("1", strings.next());
+        assert strings.hasNext();
+
+        List<Object> values = new ArrayList<>(Arrays.asList("1", 2.9f, null));
+        Iterator<Long> longs = convertIterator(values.iterator(), Long.class);
+        assertEquals(1L, (long) longs.next());
+        longs.remove();
+        assertEquals(2L, (long) longs.next());
+        assert longs.next() == null;
+        assert !longs.hasNext();
+        assertEquals(2, values.size());
+    }
 }
@@ -9,6 +9,7 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -760,6 +761,237 @@ public class TestDeepEquals
         map.put("yankee", 25);
     }
 
+    @Test
+    public void testLongChainsAndCycles()
+    {
+        ChainNode head1 = chain(200000);
+        ChainNode head2 = chain(200000);
+        assertTrue(DeepEquals.deepEquals(head1, head2));
+
+        ChainNode tail = head2;
+        while (tail.next != head2)
+        {
+            tail = tail.next;
+        }
+        tail.value = -1;
+        assertFalse(DeepEquals.deepEquals(head1, head2));
+
+        DeepEquals.Difference difference = DeepEquals.deepDiff(head1, head2);     // path 199,999 steps deep
+        assertEquals(199999 * ".next".length() + ".value".length(), difference.getPath().length());
+        assertTrue(difference.getPath().startsWith(".next.next.") && difference.getPath().endsWith(".next.value"));
+        assertEquals(-1, difference.getValue2());
+    }
+
+    @Test
+    public void testVisitedPairsDoNotCallHashCode()
+    {
+        HashCounting.calls = 0;
+        List<Object> list1 = new ArrayList<>();
+        List<Object> list2 = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            list1.add(new HashCounting(i));
+            list2.add(new HashCounting(i));
+        }
+        Map<String, Object> options = new HashMap<>();
+        options.put(DeepEquals.IGNORE_CUSTOM_EQUALS, Collections.emptySet());
+        assertTrue(DeepEquals.deepEquals(list1, list2, options));
+        assertEquals(0, HashCounting.calls);
+
+        ((HashCounting) list2.get(999)).id = 0;
+        assertFalse(DeepEquals.deepEquals(list1, list2, options));
+        assertEquals(0, HashCounting.calls);
+    }
+
+    @Test
+    public void testParallelCompare()
+    {
+        Map<String, Object> options = new HashMap<>();
+        options.put(DeepEquals.PARALLEL, true);
+        TreeNode root1 = tree(null, 7, 0);
+        TreeNode root2 = tree(null, 7, 0);
+        assertTrue(DeepEquals.deepEquals(root1, root2, options));
+
+        TreeNode leaf = root2;
+        while (!leaf.children.isEmpty())
+        {
+            leaf = leaf.children.get(2);
+        }
+        leaf.attributes.put("weight", -1.0d);
+        assertFalse(DeepEquals.deepEquals(root1, root2, options));
+        leaf.attributes.put("weight", leaf.id * 1.5d);
+        leaf.tags.add("extra");
+        assertFalse(DeepEquals.deepEquals(root1, root2, options));
+        leaf.tags.remove("extra");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            options.put(DeepEquals.PARALLEL, pool);
+            assertTrue(DeepEquals.deepEquals(root1, root2, options));
+            root2.children.get(3).children.get(1).id = -5;
+            assertFalse(DeepEquals.deepEquals(root1, root2, options));
+
+            ChainNode head1 = chain(100000);
+            ChainNode head2 = chain(100000);
+            assertTrue(DeepEquals.deepEquals(head1, head2, options));
+            head2.next.next.value = 0;
+            assertFalse(DeepEquals.deepEquals(head1, head2, options));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        options.put(DeepEquals.PARALLEL, false);
+        assertFalse(DeepEquals.deepEquals(root1, root2, options));
+        assertTrue(DeepEquals.deepEquals(root1, tree(null, 7, 0), options));
+    }
+
+    @Test
+    public void testDeepDiff()
+    {
+        TreeNode root1 = tree(null, 2, 0);
+        TreeNode root2 = tree(null, 2, 0);
+        assertNull(DeepEquals.deepDiff(root1, root2));
+        assertTrue(DeepEquals.deepDiff(root1, root2, new HashMap<>(), 10).isEmpty());
+
+        root2.children.get(3).children.get(1).attributes.put("weight", 2.5d);
+        DeepEquals.Difference difference = DeepEquals.deepDiff(root1, root2);
+        assertEquals(".children[3].children[1].attributes[\"weight\"]", difference.getPath());
+        assertEquals(DeepEquals.Difference.Reason.NUMERIC_EPSILON, difference.getReason());
+        assertEquals(27.0d, difference.getValue1());
+        assertEquals(2.5d, difference.getValue2());
+
+        root2.children.get(0).id = 99;
+        root2.children.get(2).tags.add("extra");
+        root2.attributes.remove("level");
+        List<DeepEquals.Difference> differences = DeepEquals.deepDiff(root1, root2, new HashMap<>(), 10);
+        assertEquals(4, differences.size());    // nearest the roots first
+        assertEquals(".attributes", differences.get(0).getPath());
+        assertEquals(DeepEquals.Difference.Reason.SIZE_MISMATCH, differences.get(0).getReason());
+        assertEquals(".children[0].id", differences.get(1).getPath());
+        assertEquals(DeepEquals.Difference.Reason.VALUE_MISMATCH, differences.get(1).getReason());
+        assertEquals(".children[2].tags", differences.get(2).getPath());
+        assertEquals(DeepEquals.Difference.Reason.SIZE_MISMATCH, differences.get(2).getReason());
+        assertEquals(".children[3].children[1].attributes[\"weight\"]", differences.get(3).getPath());
+        assertEquals(2, DeepEquals.deepDiff(root1, root2, new HashMap<>(), 2).size());
+        assertEquals(".attributes: SIZE_MISMATCH (java.util.HashMap vs java.util.HashMap)", differences.get(0).toString());
+
+        // Type mismatches
+        assertEquals(DeepEquals.Difference.Reason.TYPE_MISMATCH, DeepEquals.deepDiff(asList(1, 2), new HashSet<>(asList(1, 2))).getReason());
+        assertEquals(DeepEquals.Difference.Reason.TYPE_MISMATCH, DeepEquals.deepDiff(new Object[] {1, "2"}, new Object[] {1, 2}).getReason());
+        assertEquals("[1]", DeepEquals.deepDiff(new Object[] {1, "2"}, new Object[] {1, 2}).getPath());
+        assertEquals(DeepEquals.Difference.Reason.SIZE_MISMATCH, DeepEquals.deepDiff(new int[] {1, 2}, new int[] {1, 2, 3}).getReason());
+        assertEquals(DeepEquals.Difference.Reason.VALUE_MISMATCH, DeepEquals.deepDiff(new int[] {1, 2}, new int[] {1, 3}).getReason());
+
+        // Missing Set elements and Map keys
+        difference = DeepEquals.deepDiff(new HashSet<>(asList("a", "b")), new HashSet<>(asList("a", "c")));
+        assertEquals("{1}", difference.getPath());
+        assertEquals("b", difference.getValue1());
+        assertNull(difference.getValue2());
+        Set<ChainNode> nodes1 = new LinkedHashSet<>(asList(chain(2), chain(3)));
+        Set<ChainNode> nodes2 = new LinkedHashSet<>(asList(chain(2), chain(3)));
+        nodes2.iterator().next().next.value = 20;
+        assertEquals("{0}.next.value", DeepEquals.deepDiff(nodes1, nodes2).getPath());   // inside the element, not missing
+        Map<Object, Object> map1 = new LinkedHashMap<>();
+        map1.put(7, "seven");
+        map1.put(new ChainNode(), "node");
+        Map<Object, Object> map2 = new LinkedHashMap<>();
+        map2.put(7, "seven");
+        map2.put("other", "node");
+        difference = DeepEquals.deepDiff(map1, map2);
+        assertEquals("[#1]", difference.getPath());
+        assertEquals("node", difference.getValue1());
+        map2.remove("other");
+        map2.put(new ChainNode(), "NODE");
+        map2.put(7, "SEVEN");
+        differences = DeepEquals.deepDiff(map1, map2, new HashMap<>(), 5);
+        assertEquals("[7]", differences.get(0).getPath());
+        assertEquals("[#1]", differences.get(1).getPath());
+
+        // Cycles, options
+        ChainNode head1 = chain(5);
+        ChainNode head2 = chain(5);
+        head2.next.next.next.value = 30;
+        assertEquals(".next.next.next.value", DeepEquals.deepDiff(head1, head2).getPath());
+        Map<String, Object> options = new HashMap<>();
+        options.put(DeepEquals.ALLOW_STRINGS_TO_MATCH_NUMBERS, true);
+        options.put(DeepEquals.PARALLEL, true);
+        assertTrue(DeepEquals.deepDiff(asList("1", 2), asList(1, "2"), options, 3).isEmpty());
+        assertEquals(DeepEquals.Difference.Reason.VALUE_MISMATCH, DeepEquals.deepDiff(asList("1", 2), asList(1, "3"), options, 3).get(0).getReason());
+        assertThrows(IllegalArgumentException.class, () -> DeepEquals.deepDiff(head1, head2, new HashMap<>(), 0));
+    }
+
+    private static TreeNode tree(TreeNode parent, int level, int id)
+    {
+        TreeNode node = new TreeNode();
+        node.id = id;
+        node.parent = parent;
+        node.attributes.put("level", level);
+        node.attributes.put("weight", id * 1.5d);
+        node.tags.add("t" + (id % 7));
+        if (level > 0)
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                node.children.add(tree(node, level - 1, id * 4 + i + 1));
+            }
+        }
+        return node;
+    }
+
+    private static ChainNode chain(int length)
+    {
+        ChainNode head = new ChainNode();
+        ChainNode node = head;
+        for (int i = 1; i < length; i++)
+        {
+            node.next = new ChainNode();
+            node.next.value = i;
+            node = node.next;
+        }
+        node.next = head;   // cycle back to the start
+        return head;
+    }
+
+    private static class TreeNode
+    {
+        int id;
+        TreeNode parent;
+        List<TreeNode> children = new ArrayList<>();
+        Map<String, Object> attributes = new HashMap<>();
+        Set<String> tags = new HashSet<>();
+    }
+
+    private static class ChainNode
+    {
+        int value;
+        ChainNode next;
+    }
+
+    private static class HashCounting
+    {
+        static int calls;
+        int id;
+
+        HashCounting(int id)
+        {
+            this.id = id;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof HashCounting && ((HashCounting) o).id == id;
+        }
+
+        public int hashCode()
+        {
+            calls++;
+            return id;
+        }
+    }
+
     private void fillCollection(Collection<String> col)
     {
         col.add("zulu");
@@ -0,0 +1,161 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestIsoDateTime
+{
+    private static final long YEAR_1600 = -11676096000000L;
+    private static final long YEAR_9999 = 253370764800000L;
+
+    @Test
+    public void testFormatDateMatchesSimpleDateFormat()
+    {
+        TimeZone saved = TimeZone.getDefault();
+        Random random = new Random(42);
+        try
+        {
+            for (String zone : new String[] {"UTC", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Kiritimati"})
+            {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                SimpleDateFormat expected = new SimpleDateFormat(IsoDateTime.DATE_TIME_PATTERN);
+                for (int i=0; i < 20000; i++)
+                {
+                    Date date = new Date(YEAR_1600 + (long) (random.nextDouble() * (YEAR_9999 - YEAR_1600)));
+                    assertEquals(expected.format(date), IsoDateTime.format(date));
+                }
+                Date epoch = new Date(0);
+                assertEquals(expected.format(epoch), IsoDateTime.format(epoch));
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTime(epoch);
+                assertEquals(expected.format(epoch), Converter.convertToString(calendar));
+            }
+        }
+        finally
+        {
+            TimeZone.setDefault(saved);
+        }
+
+        // Outside the Gregorian range the result comes from SimpleDateFormat itself
+        Date julian = new Date(-20000000000000L);
+        assertEquals(SafeSimpleDateFormat.getDateFormat(IsoDateTime.DATE_TIME_PATTERN).format(julian), IsoDateTime.format(julian));
+    }
+
+    @Test
+    public void testFormatLocalAndZonedMatchJdk()
+    {
+        DateTimeFormatter zonedFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+        ZoneId[] zones = {ZoneOffset.UTC, ZoneId.of("America/Los_Angeles"), ZoneId.of("Asia/Kathmandu"),
+                ZoneId.of("Europe/Amsterdam"), ZoneOffset.ofHoursMinutesSeconds(-3, -20, -15)};
+        Random random = new Random(7);
+        for (int i=0; i < 20000; i++)
+        {
+            long epochSecond = (long) ((random.nextDouble() - 0.5) * 2 * 400000000000L);     // about 12,700 years each way
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, random.nextInt(1000000000), ZoneOffset.UTC);
+            LocalDate date = dateTime.toLocalDate();
+            assertEquals(String.format("%04d-%02d-%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth()),
+                    IsoDateTime.format(date));
+            assertEquals(String.format("%04d-%02d-%02dT%02d:%02d:%02d", dateTime.getYear(), dateTime.getMonthValue(),
+                    dateTime.getDayOfMonth(), dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond()),
+                    IsoDateTime.format(dateTime));
+            ZonedDateTime zoned = Instant.ofEpochSecond(epochSecond).atZone(zones[i % zones.length]);
+            assertEquals(zoned.format(zonedFormat), IsoDateTime.format(zoned));
+        }
+
+        assertEquals("2020-04-10", Converter.convert(LocalDate.of(2020, 4, 10), String.class));
+        assertEquals("0007-01-02T03:04:05", Converter.convert(LocalDateTime.of(7, 1, 2, 3, 4, 5), String.class));
+        assertEquals("2020-04-10T12:15:47-0530", Converter.convert(ZonedDateTime.of(2020, 4, 10, 12, 15, 47, 0,
+                ZoneOffset.ofHoursMinutes(-5, -30)), String.class));
+    }
+
+    @Test
+    public void testParseMatchesGeneralParse()
+    {
+        Random random = new Random(11);
+        for (int i=0; i < 20000; i++)
+        {
+            int year = 1583 + random.nextInt(8400);
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(31);     // past the end of the month rolls over, as Calendar does
+            int hour = random.nextInt(24), minute = random.nextInt(60), second = random.nextInt(60);
+            int millis = random.nextInt(1000);
+            int offsetMinutes = (random.nextInt(35) - 17) * 60 + (random.nextBoolean() ? 0 : 30);
+
+            String date = String.format("%04d-%02d-%02d", year, month, day);
+            String time = String.format("%02d:%02d:%02d.%03d", hour, minute, second, millis);
+            String offset = String.format("%s%02d:%02d", offsetMinutes < 0 ? "-" : "+", Math.abs(offsetMinutes) / 60, Math.abs(offsetMinutes) % 60);
+
+            OffsetDateTime expected = OffsetDateTime.of(year, month, 1, hour, minute, second, millis * 1000000,
+                    ZoneOffset.ofTotalSeconds(offsetMinutes * 60)).plusDays(day - 1);
+            assertEquals(expected.toInstant().toEpochMilli(), DateUtilities.parseDate(date + "T" + time + offset).getTime());
+            assertEquals(expected.toInstant().toEpochMilli(), DateUtilities.parseDate(date + " " + time + offset.replace(":", "")).getTime());
+
+            Calendar local = Calendar.getInstance();
+            local.clear();
+            local.set(year, month - 1, day, hour, minute, second);
+            assertEquals(local.getTimeInMillis(), DateUtilities.parseDate(date + "T" + time.substring(0, 8)).getTime());
+            local.clear();
+            local.set(year, month - 1, day);
+            assertEquals(local.getTime(), DateUtilities.parseDate(date));
+        }
+
+        // Fractions: first three digits are milliseconds
+        assertEquals(500L, DateUtilities.parseDate("1970-01-01T00:00:00.5Z").getTime());
+        assertEquals(123L, DateUtilities.parseDate("1970-01-01T00:00:00.1239999999Z").getTime());
+
+        // Converter output parses back
+        Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+        assertEquals(now, Converter.convert(Converter.convert(now, String.class), Date.class));
+        ZonedDateTime zoned = ZonedDateTime.of(2021, 3, 4, 5, 6, 7, 0, ZoneOffset.ofHours(9));
+        assertEquals(zoned.toInstant(), Converter.convert(Converter.convert(zoned, String.class), Date.class).toInstant());
+    }
+
+    @Test
+    public void testParseLeavesOtherFormsToDateUtilities()
+    {
+        String[] others = {"2020/01/02", "2020-1-2", "2020-01-02T10:00", "2020-01-02T10:00:00z", "2020-01-02T10:00:00+2400",
+                "2020-01-02T10:00:00.12345678901", "2020-01-02T10:00:00+05", "Jan 2, 2020", "2020-01-02T10:00:00 +05:00",
+                "0999-01-02T10:00:00Z", "2020-13-02", "2020-01-32", "2020-01-02T24:00:00"};
+        for (String other : others)
+        {
+            assert IsoDateTime.parse(other) == null : other;
+        }
+        assertEquals(DateUtilities.parseDate("2020-01-02T10:00:00"), DateUtilities.parseDate("2020/01/02 10:00"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtilities.parseDate("2020-01-32"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtilities.parseDate("2020-01-02T24:00:00"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtilities.parseDate("2020-01-02T10:00:00z"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.cedarsoftware.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestOffHeapCaseInsensitiveMap
+{
+    @Test
+    public void testLookups()
+    {
+        Map<String, String> source = new LinkedHashMap<>();
+        source.put("Content-Type", "text/html");
+        source.put("", "empty");
+        source.put("Stra\u00dfe", "street");
+        source.put("\u212a", "kelvin");
+        source.put("na\u00efve", "caf\u00e9");
+        OffHeapCaseInsensitiveMap map = OffHeapCaseInsensitiveMap.build(source.entrySet());
+
+        assert map.size() == 5;
+        assert map.get("CONTENT-TYPE").equals("text/html");
+        assert map.get("content-type").equals("text/html");
+        assert map.get("content-typ") == null;
+        assert map.get("content-typex") == null;
+        assert map.get("").equals("empty");
+        assert map.get("STRASSE") == null;                 // not equal ignoring case (char by char)
+        assert map.get("STRA\u00dfE").equals("street");
+        assert map.get("k").equals("kelvin");              // Kelvin sign folds to 'k'
+        assert map.get("NA\u00cfVE").equals("caf\u00e9");
+        assert map.containsKey("Content-type");
+        assert !map.containsKey(42);
+        assert map.get(null) == null;
+
+        assert map.equals(new CaseInsensitiveMap<>(source));
+        assert new CaseInsensitiveMap<>(source).equals(map);
+        assert map.hashCode() == new CaseInsensitiveMap<>(source).hashCode();
+
+        assertThrows(UnsupportedOperationException.class, () -> map.put("a", "b"));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("Content-Type"));
+        assertThrows(NullPointerException.class, () -> OffHeapCaseInsensitiveMap.build(
+                Collections.singletonMap("a", (String) null).entrySet()));
+    }
+
+    @Test
+    public void testLastDuplicateWins()
+    {
+        OffHeapCaseInsensitiveMap map = OffHeapCaseInsensitiveMap.build(Arrays.asList(
+                new AbstractMap.SimpleEntry<>("Key", "1"),
+                new AbstractMap.SimpleEntry<>("other", "2"),
+                new AbstractMap.SimpleEntry<>("KEY", "3")));
+        assert map.size() == 2;
+        assert map.get("key").equals("3");
+        assert map.keySet().contains("KEY");
+        assert map.entrySet().contains(new AbstractMap.SimpleEntry<>("kEy", "3"));
+    }
+
+    @Test
+    public void testChunksSaveAndLoad() throws Exception
+    {
+        // 64 byte chunks, so the records spread over many chunks with padding at the end of each
+        Random random = new Random(11);
+        Map<String, String> source = new CaseInsensitiveMap<>();
+        for (int i=0; i < 3000; i++)
+        {
+            String key = "k" + Integer.toString(random.nextInt(5000), 36) + (random.nextBoolean() ? "\u00e9" : "");
+            source.put(random.nextBoolean() ? key.toUpperCase() : key, "v" + i + "xxxxxxxxxxxxxxxxxxx".substring(random.nextInt(20)));
+        }
+        OffHeapCaseInsensitiveMap map = OffHeapCaseInsensitiveMap.build(source.entrySet(), 6);
+        assert map.size() == source.size();
+        assert map.equals(source);
+        assertThrows(IllegalArgumentException.class, () -> OffHeapCaseInsensitiveMap.build(
+                Collections.singletonMap("a-key-long-enough-to-overflow-a-chunk", "and-a-long-value-too").entrySet(), 6));
+
+        File file = File.createTempFile("offheap", ".cimap");
+        try
+        {
+            map.save(file);
+            OffHeapCaseInsensitiveMap loaded = OffHeapCaseInsensitiveMap.load(file);
+            assert loaded.size() == source.size();
+            for (Map.Entry<String, String> entry : source.entrySet())
+            {
+                assert loaded.get(entry.getKey().toLowerCase()).equals(entry.getValue());
+            }
+            assert loaded.equals(map);
+            assert loaded.hashCode() == map.hashCode();
+
+            OffHeapCaseInsensitiveMap.build(Collections.<String, String>emptyMap().entrySet()).save(file);
+            assert OffHeapCaseInsensitiveMap.load(file).isEmpty();
+
+            try (FileOutputStream out = new FileOutputStream(file))
+            {
+                out.write(new byte[40]);
+            }
+            assertThrows(java.io.IOException.class, () -> OffHeapCaseInsensitiveMap.load(file));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoadRejectsCorruptHeaders() throws Exception
+    {
+        File file = File.createTempFile("offheap", ".cimap");
+        try
+        {
+            OffHeapCaseInsensitiveMap.build(Collections.singletonMap("Key", "value").entrySet()).save(file);
+            byte[] saved = java.nio.file.Files.readAllBytes(file.toPath());
+            int[][] corruptions = {
+                    {8, -1},            // size
+                    {8, 1000},          // size >= slotCount
+                    {12, 0},            // slotCount
+                    {12, -8},
+                    {16, -1},           // chunkShift
+                    {16, 4},
+                    {16, 31},
+                    {24, -1}};          // dataLength (high word)
+            for (int[] corruption : corruptions)
+            {
+                byte[] bytes = saved.clone();
+                java.nio.ByteBuffer.wrap(bytes).putInt(corruption[0], corruption[1]);
+                try (FileOutputStream out = new FileOutputStream(file))
+                {
+                    out.write(bytes);
+                }
+                assertThrows(java.io.IOException.class, () -> OffHeapCaseInsensitiveMap.load(file), Arrays.toString(corruption));
+            }
+
+            try (FileOutputStream out = new FileOutputStream(file))
+            {
+                out.write(saved, 0, saved.length - 3);
+            }
+            assertThrows(java.io.IOException.class, () -> OffHeapCaseInsensitiveMap.load(file));
+
+            try (FileOutputStream out = new FileOutputStream(file))
+            {
+                out.write(saved);
+            }
+            assert OffHeapCaseInsensitiveMap.load(file).get("KEY").equals("value");
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -377,6 +377,58 @@ public class TestStringUtilities
         assert StringUtilities.hashCodeIgnoreCase("") == 0;
     }
 
+    @Test
+    public void testIgnoreCaseMatchesJdk()
+    {
+        // ASCII, Latin-1, and characters with irregular case mappings (Kelvin sign, dotted/dotless I, sharp s, sigma)
+        char[] alphabet = "aAzZ@[`{09 _\u00e9\u00c9\u00df\u0130\u0131\u212a\u03a3\u03c3\u03c2\u00ff\u0178".toCharArray();
+        Random random = new Random(42);
+        for (int i=0; i < 20000; i++)
+        {
+            String s1 = randomString(random, alphabet);
+            String s2 = random.nextBoolean() ? flipCase(random, s1) : randomString(random, alphabet);
+            assert StringUtilities.equalsIgnoreCase(s1, s2) == s1.equalsIgnoreCase(s2);
+            assert Integer.signum(StringUtilities.compareIgnoreCase(s1, s2)) == Integer.signum(s1.compareToIgnoreCase(s2));
+            assert StringUtilities.compareIgnoreCase(s1, s2) == String.CASE_INSENSITIVE_ORDER.compare(s1, s2);
+            int expectedHash = 0;
+            for (int j=0; j < s1.length(); j++)
+            {
+                expectedHash = 31 * expectedHash + Character.toLowerCase((int) s1.charAt(j));
+            }
+            assert StringUtilities.hashCodeIgnoreCase(s1) == expectedHash;
+        }
+
+        assert StringUtilities.equalsIgnoreCase("\u212a", "k");
+        assert !StringUtilities.equalsIgnoreCase("@", "`");
+        assert !StringUtilities.equalsIgnoreCase("[", "{");
+        assert StringUtilities.compareIgnoreCase(null, null) == 0;
+        assert StringUtilities.compareIgnoreCase(null, "a") < 0;
+        assert StringUtilities.compareIgnoreCase("a", null) > 0;
+        assert StringUtilities.compareIgnoreCase("ABC", "abd") < 0;
+        assert StringUtilities.compareIgnoreCase("abc", "AB") > 0;
+    }
+
+    private static String randomString(Random random, char[] alphabet)
+    {
+        int len = random.nextInt(6);
+        StringBuilder s = new StringBuilder(len);
+        for (int i=0; i < len; i++)
+        {
+            s.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return s.toString();
+    }
+
+    private static String flipCase(Random random, String s)
+    {
+        StringBuilder flipped = new StringBuilder(s.length());
+        for (char c : s.toCharArray())
+        {
+            flipped.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        return flipped.toString();
+    }
+
     @Test
     public void testCount2()
     {